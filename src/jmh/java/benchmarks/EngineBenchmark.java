@@ -0,0 +1,54 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A complete single-threaded search to a fixed depth, starting from an empty transposition table each time.
+ */
+@org.openjdk.jmh.annotations.State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EngineBenchmark {
+    // Small enough that clearing it doesn't dominate the shallow searches
+    private static final int TABLE_SIZE = 1;
+
+    @Param({"opening", "midgame", "multijump"})
+    public String position;
+
+    @Param({"4", "6", "8"})
+    public int depth;
+
+    private Object _state;
+    private Object _engine;
+
+    @Setup
+    public void setup() throws Throwable {
+        this._state = Targets.getPosition(this.position);
+        this._engine = Targets.newEngine(TABLE_SIZE, 1);
+    }
+
+    @Setup(Level.Invocation)
+    public void clear() throws Throwable {
+        Targets.clearEngine(this._engine);
+    }
+
+    @Benchmark
+    public Object search() throws Throwable {
+        return Targets.search(this._engine, this._state, Integer.MAX_VALUE, 0, this.depth);
+    }
+}
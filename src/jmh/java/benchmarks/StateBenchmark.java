@@ -0,0 +1,67 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The state operations used by the GUI and controller for every move: generating successors, building the grid that
+ * the board is drawn from, applying a single step and grouping moves by their shared paths.
+ */
+@org.openjdk.jmh.annotations.State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StateBenchmark {
+    @Param({"opening", "midgame", "multijump"})
+    public String position;
+
+    private Object _state;
+    private ArrayList<?> _successors;
+    private Object _find;
+    private Object _replace;
+
+    @Setup
+    public void setup() throws Throwable {
+        this._state = Targets.getPosition(this.position);
+        this._successors = Targets.getSuccessors(this._state);
+
+        // The first step of the first move, as the GUI would apply it
+        Object[] changed = Targets.identifyChangedPiece(Targets.getPieces(this._state), Targets.getPieces(Targets.getNext(this._successors.get(0))));
+        this._find = changed[0];
+        this._replace = changed[1];
+    }
+
+    @Benchmark
+    public ArrayList<?> getSuccessors() throws Throwable {
+        return Targets.getSuccessors(this._state);
+    }
+
+    @Benchmark
+    public int[][] create2DGrid() throws Throwable {
+        return Targets.create2DGrid(this._state);
+    }
+
+    @Benchmark
+    public Object createNewState() throws Throwable {
+        return Targets.createNewState(this._state, this._find, this._replace, true);
+    }
+
+    @Benchmark
+    public HashMap<?, ?> groupBySharedPath() throws Throwable {
+        return Targets.groupBySharedPath(this._successors, null);
+    }
+}
@@ -0,0 +1,134 @@
+package benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Gives the benchmarks access to the game's classes. JMH won't generate code for benchmarks in the default package,
+ * and classes in a named package can't refer to classes in the default package, so the game's methods are looked up
+ * by name instead. Each handle is a static final, which lets the JIT compile the call as if it were direct.
+ *
+ * Game objects are passed around as Object for the same reason.
+ */
+final class Targets {
+    // Positions written as described in Perft#parsePosition
+    static final String OPENING = "b:rrrrrrrrrrrr........bbbbbbbbbbbb";
+    static final String MIDGAME = "b:r...rr.rr..r...r.b..rbb....bbbbb";
+    static final String MULTI_JUMP = "b:....rrrr...r.rrr...b..b..b..bRb.";
+
+    private static final MethodHandle PARSE_POSITION;
+    private static final MethodHandle GET_SUCCESSORS;
+    private static final MethodHandle GET_PIECES;
+    private static final MethodHandle GET_NEXT;
+    private static final MethodHandle IDENTIFY_CHANGED_PIECE;
+    private static final MethodHandle CREATE_2D_GRID;
+    private static final MethodHandle CREATE_NEW_STATE;
+    private static final MethodHandle GROUP_BY_SHARED_PATH;
+    private static final MethodHandle NEW_ENGINE;
+    private static final MethodHandle CLEAR_ENGINE;
+    private static final MethodHandle SEARCH;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            Class<?> state = Class.forName("State");
+            Class<?> move = Class.forName("Move");
+            Class<?> pieceState = Class.forName("PieceState");
+            Class<?> pieceStates = Class.forName("[LPieceState;");
+            Class<?> engine = Class.forName("Engine");
+
+            PARSE_POSITION = lookup.findStatic(Class.forName("Perft"), "parsePosition", MethodType.methodType(state, String.class))
+                    .asType(MethodType.methodType(Object.class, String.class));
+            GET_SUCCESSORS = lookup.findVirtual(state, "getSuccessors", MethodType.methodType(ArrayList.class))
+                    .asType(MethodType.methodType(ArrayList.class, Object.class));
+            GET_PIECES = lookup.findVirtual(state, "getPieces", MethodType.methodType(ArrayList.class))
+                    .asType(MethodType.methodType(ArrayList.class, Object.class));
+            GET_NEXT = lookup.findVirtual(move, "getNext", MethodType.methodType(state))
+                    .asType(MethodType.methodType(Object.class, Object.class));
+            IDENTIFY_CHANGED_PIECE = lookup.findStatic(pieceState, "identifyChangedPiece", MethodType.methodType(pieceStates, ArrayList.class, ArrayList.class))
+                    .asType(MethodType.methodType(Object[].class, ArrayList.class, ArrayList.class));
+            CREATE_2D_GRID = lookup.findStatic(Class.forName("StateManager"), "create2DGrid", MethodType.methodType(int[][].class, state))
+                    .asType(MethodType.methodType(int[][].class, Object.class));
+            CREATE_NEW_STATE = lookup.findStatic(Class.forName("StateManager"), "createNewState", MethodType.methodType(state, state, pieceState, pieceState, boolean.class))
+                    .asType(MethodType.methodType(Object.class, Object.class, Object.class, Object.class, boolean.class));
+            GROUP_BY_SHARED_PATH = lookup.findStatic(Class.forName("GUI"), "groupBySharedPath", MethodType.methodType(HashMap.class, ArrayList.class, move))
+                    .asType(MethodType.methodType(HashMap.class, ArrayList.class, Object.class));
+            NEW_ENGINE = lookup.findConstructor(engine, MethodType.methodType(void.class, int.class, int.class))
+                    .asType(MethodType.methodType(Object.class, int.class, int.class));
+            CLEAR_ENGINE = lookup.findVirtual(engine, "clear", MethodType.methodType(void.class))
+                    .asType(MethodType.methodType(void.class, Object.class));
+            SEARCH = lookup.findVirtual(engine, "search", MethodType.methodType(move, state, long.class, long.class, int.class))
+                    .asType(MethodType.methodType(Object.class, Object.class, Object.class, long.class, long.class, int.class));
+        }
+        catch(ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private Targets() {
+    }
+
+    static Object parsePosition(String position) throws Throwable {
+        return PARSE_POSITION.invokeExact(position);
+    }
+
+    static ArrayList<?> getSuccessors(Object state) throws Throwable {
+        return (ArrayList<?>) GET_SUCCESSORS.invokeExact(state);
+    }
+
+    static ArrayList<?> getPieces(Object state) throws Throwable {
+        return (ArrayList<?>) GET_PIECES.invokeExact(state);
+    }
+
+    static Object getNext(Object move) throws Throwable {
+        return GET_NEXT.invokeExact(move);
+    }
+
+    static Object[] identifyChangedPiece(ArrayList<?> current, ArrayList<?> next) throws Throwable {
+        return (Object[]) IDENTIFY_CHANGED_PIECE.invokeExact(current, next);
+    }
+
+    static int[][] create2DGrid(Object state) throws Throwable {
+        return (int[][]) CREATE_2D_GRID.invokeExact(state);
+    }
+
+    static Object createNewState(Object state, Object find, Object replace, boolean endTurn) throws Throwable {
+        return CREATE_NEW_STATE.invokeExact(state, find, replace, endTurn);
+    }
+
+    static HashMap<?, ?> groupBySharedPath(ArrayList<?> moves, Object previousMove) throws Throwable {
+        return (HashMap<?, ?>) GROUP_BY_SHARED_PATH.invokeExact(moves, previousMove);
+    }
+
+    static Object newEngine(int tableSize, int threads) throws Throwable {
+        return NEW_ENGINE.invokeExact(tableSize, threads);
+    }
+
+    static void clearEngine(Object engine) throws Throwable {
+        CLEAR_ENGINE.invokeExact(engine);
+    }
+
+    static Object search(Object engine, Object state, long timeBudget, long nodeBudget, int depthLimit) throws Throwable {
+        return SEARCH.invokeExact(engine, state, timeBudget, nodeBudget, depthLimit);
+    }
+
+    /**
+     * @param name One of opening, midgame or multijump.
+     * @return The state for the named position.
+     */
+    static Object getPosition(String name) throws Throwable {
+        switch(name) {
+            case "opening":
+                return Targets.parsePosition(OPENING);
+            case "midgame":
+                return Targets.parsePosition(MIDGAME);
+            case "multijump":
+                return Targets.parsePosition(MULTI_JUMP);
+            default:
+                throw new IllegalArgumentException("Unknown position: " + name);
+        }
+    }
+}
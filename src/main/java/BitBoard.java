@@ -0,0 +1,166 @@
+/**
+ * Helpers for the packed board representation. Only the 32 playable tiles are stored, numbered row by row from the
+ * top of the board, so that the tile at (x, y) is bit {@code x * 4 + y / 2} of a 32-bit mask.
+ */
+public class BitBoard {
+    public static final int SQUARES = 32;
+
+    // Directions are in the same order that moves have always been offered: top left, top right, bottom left and
+    // bottom right. Black moves towards the top of the board and red towards the bottom.
+    public static final int TOP_LEFT = 0;
+    public static final int TOP_RIGHT = 1;
+    public static final int BOTTOM_LEFT = 2;
+    public static final int BOTTOM_RIGHT = 3;
+
+    private static final int[] DIRECTION_X = {-1, -1, 1, 1};
+    private static final int[] DIRECTION_Y = {-1, 1, -1, 1};
+
+    // Masks of the rows where pieces sit on odd or even columns, and of the leftmost and rightmost squares of each row
+    public static final int EVEN_ROWS = 0x0F0F0F0F;
+    public static final int ODD_ROWS = 0xF0F0F0F0;
+    public static final int LEFT_SQUARES = 0x11111111;
+    public static final int RIGHT_SQUARES = 0x88888888;
+
+    // The rows on which each colour's pieces are made kings
+    public static final int BLACK_KING_ROW = 0x0000000F;
+    public static final int RED_KING_ROW = 0xF0000000;
+
+    // Per-square tables of the adjacent square and the landing square of a jump in each direction, -1 if off the board
+    public static final int[][] NEIGHBOURS = new int[4][SQUARES];
+    public static final int[][] JUMPS = new int[4][SQUARES];
+
+    static {
+        for(int direction = 0; direction < 4; direction++) {
+            for(int square = 0; square < SQUARES; square++) {
+                int x = BitBoard.getX(square);
+                int y = BitBoard.getY(square);
+
+                NEIGHBOURS[direction][square] = BitBoard.toSquare(x + DIRECTION_X[direction], y + DIRECTION_Y[direction]);
+                JUMPS[direction][square] = BitBoard.toSquare(x + 2 * DIRECTION_X[direction], y + 2 * DIRECTION_Y[direction]);
+            }
+        }
+    }
+
+    /**
+     * @param x The row of the tile.
+     * @param y The column of the tile.
+     * @return The square index of the tile, or -1 if the tile is off the board or can never hold a piece.
+     */
+    public static int toSquare(int x, int y) {
+        if(x < 0 || x > 7 || y < 0 || y > 7 || ((x + y) & 1) == 0) {
+            return -1;
+        }
+
+        return (x << 2) | (y >> 1);
+    }
+
+    /**
+     * @param square The square index.
+     * @return The row of the square.
+     */
+    public static int getX(int square) {
+        return square >> 2;
+    }
+
+    /**
+     * @param square The square index.
+     * @return The column of the square. Even rows hold pieces on odd columns and vice versa.
+     */
+    public static int getY(int square) {
+        return ((square & 3) << 1) | (((square >> 2) & 1) ^ 1);
+    }
+
+    /**
+     * @param x The row of the tile.
+     * @param y The column of the tile.
+     * @return A mask with only the tile at (x, y) set, or 0 if the tile can never hold a piece.
+     */
+    public static int toMask(int x, int y) {
+        int square = BitBoard.toSquare(x, y);
+
+        return square < 0 ? 0 : 1 << square;
+    }
+
+    /**
+     * @param mask A board mask.
+     * @param x The row of the tile.
+     * @param y The column of the tile.
+     * @return Whether the tile at (x, y) is set in {@code mask}.
+     */
+    public static boolean isSet(int mask, int x, int y) {
+        return (mask & BitBoard.toMask(x, y)) != 0;
+    }
+
+    /**
+     * @param direction The direction.
+     * @return Whether {@code direction} is towards the top of the board.
+     */
+    public static boolean isUpwards(int direction) {
+        return direction < BOTTOM_LEFT;
+    }
+
+    /**
+     * @param turn The turn, true for black.
+     * @return The row on which the given player's pieces are made kings.
+     */
+    public static int getKingRow(boolean turn) {
+        return turn ? BLACK_KING_ROW : RED_KING_ROW;
+    }
+
+    /**
+     * The following four methods move every square of {@code mask} one step in a direction, dropping any that would
+     * leave the board. Moving down a row is a shift of 3, 4 or 5 depending on whether the row is odd or even.
+     */
+    public static int topLeft(int mask) {
+        return ((mask & EVEN_ROWS) >>> 4) | ((mask & ODD_ROWS & ~LEFT_SQUARES) >>> 5);
+    }
+
+    public static int topRight(int mask) {
+        return ((mask & EVEN_ROWS & ~RIGHT_SQUARES) >>> 3) | ((mask & ODD_ROWS) >>> 4);
+    }
+
+    public static int bottomLeft(int mask) {
+        return ((mask & EVEN_ROWS) << 4) | ((mask & ODD_ROWS & ~LEFT_SQUARES) << 3);
+    }
+
+    public static int bottomRight(int mask) {
+        return ((mask & EVEN_ROWS & ~RIGHT_SQUARES) << 5) | ((mask & ODD_ROWS) << 4);
+    }
+
+    /**
+     * Finds every piece that can make a jump. A piece jumps to the top left if the square to its top left holds an
+     * enemy with an empty square beyond it, which is the same as the piece being bottom right of such an enemy.
+     * @param own Mask of the pieces that are moving.
+     * @param enemy Mask of the opponent's pieces.
+     * @param kings Mask of the king pieces.
+     * @param turn The turn, true for black.
+     * @return Mask of the pieces in {@code own} that have at least one jump.
+     */
+    public static int getJumpers(int own, int enemy, int kings, boolean turn) {
+        int empty = ~(own | enemy);
+        int upwards = turn ? own : own & kings;
+        int downwards = turn ? own & kings : own;
+
+        return (upwards & (BitBoard.bottomRight(enemy & BitBoard.bottomRight(empty))
+                        | BitBoard.bottomLeft(enemy & BitBoard.bottomLeft(empty))))
+                | (downwards & (BitBoard.topRight(enemy & BitBoard.topRight(empty))
+                        | BitBoard.topLeft(enemy & BitBoard.topLeft(empty))));
+    }
+
+    /**
+     * Finds every piece that can make a regular move into an adjacent empty square.
+     * @param own Mask of the pieces that are moving.
+     * @param enemy Mask of the opponent's pieces.
+     * @param kings Mask of the king pieces.
+     * @param turn The turn, true for black.
+     * @return Mask of the pieces in {@code own} that have at least one regular move.
+     */
+    public static int getMovers(int own, int enemy, int kings, boolean turn) {
+        int empty = ~(own | enemy);
+        int upwards = turn ? own : own & kings;
+        int downwards = turn ? own & kings : own;
+
+        return (upwards & (BitBoard.bottomRight(empty) | BitBoard.bottomLeft(empty)))
+                | (downwards & (BitBoard.topRight(empty) | BitBoard.topLeft(empty)));
+    }
+}
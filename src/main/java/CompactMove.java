@@ -0,0 +1,92 @@
+/**
+ * Encodes a complete move as a single long, for the search to keep in primitive buffers instead of {@link Move}
+ * chains. Bits 0-4 hold the square the piece moves from, bits 5-9 the square it ends on, bit 10 whether it is made
+ * a king and bits 32-63 the mask of captured pieces.
+ */
+public class CompactMove {
+    public static final long NONE = -1;
+
+    public static long encode(int from, int to, int captured, boolean promotion) {
+        return from | (to << 5) | (promotion ? 1 << 10 : 0) | ((long) captured << 32);
+    }
+
+    public static int getFrom(long move) {
+        return (int) move & 31;
+    }
+
+    public static int getTo(long move) {
+        return (int) (move >>> 5) & 31;
+    }
+
+    public static boolean isPromotion(long move) {
+        return (move & (1 << 10)) != 0;
+    }
+
+    public static int getCaptured(long move) {
+        return (int) (move >>> 32);
+    }
+
+    /**
+     * Returns a 16-bit key for the move, small enough to keep in the transposition table. It is made of the squares,
+     * promotion flag and number of captures, which is enough to tell apart the moves of any one position in practice.
+     * @param move The encoded move.
+     * @return The key.
+     */
+    public static int getKey(long move) {
+        return ((int) move & 0x7FF) | (Integer.bitCount(CompactMove.getCaptured(move)) << 11);
+    }
+
+    /**
+     * Encodes a {@link Move} chain, as given by {@link State#getSuccessors()}.
+     * @param move The last move of the chain.
+     * @return The encoded move.
+     */
+    public static long fromMove(Move move) {
+        Move first = move.getFirstMove();
+        State current = first.getCurrent();
+        State next = move.getNext();
+        boolean turn = current.getTurn();
+
+        // Each step moves a single piece, so the first step shows where it came from and the last where it ended. The
+        // whole move can't be used for this, as a king can jump in a loop and end where it started.
+        int from = Integer.numberOfTrailingZeros(CompactMove._getOwn(current, turn) & ~CompactMove._getOwn(first.getNext(), turn));
+        int to = Integer.numberOfTrailingZeros(CompactMove._getOwn(next, turn) & ~CompactMove._getOwn(move.getCurrent(), turn));
+        int captured = CompactMove._getOwn(current, !turn) & ~CompactMove._getOwn(next, !turn);
+        boolean promotion = (current.getKings() & (1 << from)) == 0 && (next.getKings() & (1 << to)) != 0;
+
+        return CompactMove.encode(from, to, captured, promotion);
+    }
+
+    /**
+     * Finds the {@link Move} chain for an encoded move, so that it can be handed to the GUI or
+     * {@link Controller#updateState}. The chain comes from {@link State#getSuccessors()}, so multi-step jumps share
+     * their earlier steps as usual.
+     * @param state The state the move is made from.
+     * @param move The encoded move.
+     * @return The last move of the chain, or null if the move can't be made from {@code state}.
+     */
+    public static Move toMove(State state, long move) {
+        for(Move m: state.getSuccessors()) {
+            if(CompactMove.fromMove(m) == move) {
+                return m;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * @param move The encoded move.
+     * @return A readable description of the move, eg. "[5, 0] to [3, 2]".
+     */
+    public static String toString(long move) {
+        int from = CompactMove.getFrom(move);
+        int to = CompactMove.getTo(move);
+
+        return "[" + BitBoard.getX(from) + ", " + BitBoard.getY(from) + "] to [" + BitBoard.getX(to) + ", " + BitBoard.getY(to) + "]";
+    }
+
+    private static int _getOwn(State state, boolean turn) {
+        return turn ? state.getBlack() : state.getRed();
+    }
+}
@@ -0,0 +1,378 @@
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Read-only access to data stored as a run of Deflate-compressed blocks, eg. the values of a {@link Tablebase}. The
+ * file is memory-mapped rather than read onto the heap, so only the blocks that are used take up memory and the
+ * operating system can drop them again when memory is short.
+ *
+ * Blocks are decompressed when they are first needed. Each thread keeps its own small LRU cache of decompressed blocks,
+ * so looking up a value never locks or waits on another thread. A thread's cache is dropped along with the thread, and
+ * its inflater is ended then or when the file is closed, whichever is first.
+ *
+ * The blocks are followed by an index of where each block starts and a fixed-size trailer, so the file can start with
+ * a header of its own. See {@link Writer}.
+ */
+public class CompressedBlockFile implements Closeable {
+    // The number of decompressed blocks that each thread keeps
+    public static final int DEFAULT_CACHE_BLOCKS = 256;
+
+    // Mapped buffers are limited to 2GB, so large files are mapped in segments of whole blocks
+    private static final long SEGMENT_SIZE = 1L << 30;
+
+    // The block size, block count and index offset
+    private static final int TRAILER_BYTES = 4 + 4 + 8;
+
+    // Ends the inflaters of caches whose threads have finished
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    private final FileChannel _channel;
+    private final int _blockSize;
+    private final int _cacheBlocks;
+
+    // Where each block starts in the file, with an extra entry for where the last block ends
+    private final long[] _offsets;
+    private final ArrayList<MappedByteBuffer> _segments = new ArrayList<MappedByteBuffer>();
+    private final ArrayList<Long> _segmentStarts = new ArrayList<Long>();
+    private final int[] _blockSegments;
+
+    private final ThreadLocal<Reader> _reader = ThreadLocal.withInitial(this::_createReader);
+    // Only the inflaters are kept here, not the caches, so that a cache can be collected once its thread finishes
+    private final Set<Cleaner.Cleanable> _inflaters = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder _hits = new LongAdder();
+    private final LongAdder _misses = new LongAdder();
+    private final LongAdder _decodeTime = new LongAdder();
+
+    /**
+     * Maps the blocks of a file written by {@link Writer}.
+     * @param channel The file, which is closed along with this.
+     * @param cacheBlocks The number of decompressed blocks that each thread keeps.
+     * @throws IOException If the file can't be read.
+     */
+    public CompressedBlockFile(FileChannel channel, int cacheBlocks) throws IOException {
+        this._channel = channel;
+        this._cacheBlocks = Math.max(1, cacheBlocks);
+
+        ByteBuffer trailer = channel.map(FileChannel.MapMode.READ_ONLY, channel.size() - TRAILER_BYTES, TRAILER_BYTES);
+        this._blockSize = trailer.getInt();
+        int blockCount = trailer.getInt();
+        long indexOffset = trailer.getLong();
+
+        this._offsets = new long[blockCount + 1];
+        channel.map(FileChannel.MapMode.READ_ONLY, indexOffset, 8L * this._offsets.length).asLongBuffer().get(this._offsets);
+
+        // Start a new segment at the first block that would take the current one past the size limit
+        this._blockSegments = new int[blockCount];
+        int start = 0;
+        for(int block = 0; block < blockCount; block++) {
+            if(block > start && this._offsets[block + 1] - this._offsets[start] > SEGMENT_SIZE) {
+                this._mapSegment(start, block);
+                start = block;
+            }
+
+            this._blockSegments[block] = this._segments.size();
+        }
+
+        this._mapSegment(start, blockCount);
+    }
+
+    public int getBlockSize() {
+        return this._blockSize;
+    }
+
+    public int getBlockCount() {
+        return this._blockSegments.length;
+    }
+
+    /**
+     * Reads a byte, decompressing its block if this thread doesn't have it cached.
+     * @param block The block.
+     * @param offset The offset in the block.
+     * @return The byte, from 0 to 255.
+     */
+    public int get(int block, int offset) {
+        return this._reader.get().get(block, offset, true);
+    }
+
+    /**
+     * Reads a byte if this thread has its block cached, or optionally decompresses the block.
+     * @param block The block.
+     * @param offset The offset in the block.
+     * @param decode Whether to decompress the block if it isn't cached.
+     * @return The byte, from 0 to 255, or -1 if the block isn't cached and {@code decode} is false.
+     */
+    public int get(int block, int offset, boolean decode) {
+        return this._reader.get().get(block, offset, decode);
+    }
+
+    /**
+     * @return The number of reads that found their block in the thread's cache, across all threads.
+     */
+    public long getHits() {
+        return this._hits.sum();
+    }
+
+    /**
+     * @return The number of reads that had to decompress their block, across all threads.
+     */
+    public long getMisses() {
+        return this._misses.sum();
+    }
+
+    /**
+     * @return The time spent decompressing blocks, across all threads, in nanoseconds.
+     */
+    public long getDecodeTime() {
+        return this._decodeTime.sum();
+    }
+
+    /**
+     * Closes the file and ends every thread's inflater. No more values can be read.
+     * @throws IOException If the file can't be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        this._reader.remove();
+
+        for(Cleaner.Cleanable inflater: this._inflaters) {
+            inflater.clean();
+        }
+
+        this._channel.close();
+    }
+
+    private void _mapSegment(int start, int end) throws IOException {
+        long offset = this._offsets[start];
+
+        this._segmentStarts.add(offset);
+        this._segments.add(this._channel.map(FileChannel.MapMode.READ_ONLY, offset, this._offsets[end] - offset));
+    }
+
+    private Reader _createReader() {
+        Reader reader = new Reader();
+
+        InflaterRelease release = new InflaterRelease(reader._inflater, this._inflaters);
+        release.cleanable = CLEANER.register(reader, release);
+        this._inflaters.add(release.cleanable);
+
+        return reader;
+    }
+
+    /**
+     * Ends a cache's inflater, when the cache is collected or the file is closed. It must not refer to the cache, or the
+     * cache would never be collected.
+     */
+    private static class InflaterRelease implements Runnable {
+        private final Inflater _inflater;
+        private final Set<Cleaner.Cleanable> _inflaters;
+        Cleaner.Cleanable cleanable;
+
+        InflaterRelease(Inflater inflater, Set<Cleaner.Cleanable> inflaters) {
+            this._inflater = inflater;
+            this._inflaters = inflaters;
+        }
+
+        @Override
+        public void run() {
+            this._inflater.end();
+            this._inflaters.remove(this.cleanable);
+        }
+    }
+
+    /**
+     * A thread's cache of decompressed blocks. The cached blocks are kept in a list from most to least
+     * recently used, linked through arrays so that a hit doesn't allocate, and a table from block to cache slot finds
+     * them without searching.
+     */
+    private class Reader {
+        private final byte[][] _data = new byte[CompressedBlockFile.this._cacheBlocks][];
+        private final int[] _blocks = new int[CompressedBlockFile.this._cacheBlocks];
+        private final int[] _previous = new int[CompressedBlockFile.this._cacheBlocks];
+        private final int[] _next = new int[CompressedBlockFile.this._cacheBlocks];
+        // The cache slot of each block plus one, or 0 if it isn't cached
+        private final int[] _slots = new int[CompressedBlockFile.this.getBlockCount()];
+        private final ByteBuffer[] _segments = new ByteBuffer[CompressedBlockFile.this._segments.size()];
+        private final Inflater _inflater = new Inflater();
+        private byte[] _input = new byte[0];
+        private int _head;
+        private int _tail;
+
+        Reader() {
+            // Start with every slot empty, in a list from 0 to the last slot
+            for(int i = 0; i < this._blocks.length; i++) {
+                this._blocks[i] = -1;
+                this._previous[i] = i - 1;
+                this._next[i] = i + 1;
+            }
+
+            this._head = 0;
+            this._tail = this._blocks.length - 1;
+
+            // Each thread has its own views of the segments, so that their positions can be moved for bulk reads
+            for(int i = 0; i < this._segments.length; i++) {
+                this._segments[i] = CompressedBlockFile.this._segments.get(i).duplicate();
+            }
+        }
+
+        int get(int block, int offset, boolean decode) {
+            int slot = this._slots[block] - 1;
+
+            if(slot >= 0) {
+                CompressedBlockFile.this._hits.increment();
+                this._moveToHead(slot);
+                return this._data[slot][offset] & 0xFF;
+            }
+            else if(!decode) {
+                return -1;
+            }
+
+            // Replace the least recently used block
+            slot = this._tail;
+            if(this._blocks[slot] >= 0) {
+                this._slots[this._blocks[slot]] = 0;
+            }
+
+            CompressedBlockFile.this._misses.increment();
+            long start = System.nanoTime();
+            this._decode(block, slot);
+            CompressedBlockFile.this._decodeTime.add(System.nanoTime() - start);
+
+            this._blocks[slot] = block;
+            this._slots[block] = slot + 1;
+            this._moveToHead(slot);
+
+            return this._data[slot][offset] & 0xFF;
+        }
+
+        private void _moveToHead(int slot) {
+            if(slot == this._head) {
+                return;
+            }
+
+            // Unlink the slot, then put it in front of the head
+            this._next[this._previous[slot]] = this._next[slot];
+            if(slot == this._tail) {
+                this._tail = this._previous[slot];
+            }
+            else {
+                this._previous[this._next[slot]] = this._previous[slot];
+            }
+
+            this._previous[this._head] = slot;
+            this._next[slot] = this._head;
+            this._head = slot;
+        }
+
+        private void _decode(int block, int slot) {
+            CompressedBlockFile file = CompressedBlockFile.this;
+            int length = (int) (file._offsets[block + 1] - file._offsets[block]);
+            int segment = file._blockSegments[block];
+
+            if(this._input.length < length) {
+                this._input = new byte[length];
+            }
+
+            ByteBuffer buffer = this._segments[segment];
+            buffer.position((int) (file._offsets[block] - file._segmentStarts.get(segment)));
+            buffer.get(this._input, 0, length);
+
+            if(this._data[slot] == null) {
+                this._data[slot] = new byte[file._blockSize];
+            }
+
+            this._inflater.reset();
+            this._inflater.setInput(this._input, 0, length);
+
+            try {
+                this._inflater.inflate(this._data[slot]);
+            }
+            catch(DataFormatException e) {
+                throw new IllegalStateException("Block " + block + " is corrupt", e);
+            }
+        }
+    }
+
+    /**
+     * Writes data as compressed blocks, then the index and trailer that {@link CompressedBlockFile} reads.
+     */
+    public static class Writer {
+        private final DataOutputStream _output;
+        private final int _blockSize;
+        private final Deflater _deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        private final byte[] _buffer;
+        private final ArrayList<Long> _offsets = new ArrayList<Long>();
+        private long _position;
+
+        /**
+         * @param output The stream to write to.
+         * @param position The number of bytes already written to the file, eg. a header.
+         * @param blockSize The number of bytes in each block before compression.
+         */
+        public Writer(OutputStream output, long position, int blockSize) {
+            this._output = new DataOutputStream(output);
+            this._position = position;
+            this._blockSize = blockSize;
+            this._buffer = new byte[blockSize + blockSize / 2 + 64];
+        }
+
+        /**
+         * Writes data as whole blocks, so that the next data starts on a new block. The last block may be short.
+         * @param data The data.
+         * @return The index of the first block.
+         * @throws IOException If the data can't be written.
+         */
+        public int write(byte[] data) throws IOException {
+            int first = this._offsets.size();
+
+            for(int start = 0; start < data.length; start += this._blockSize) {
+                this._deflater.reset();
+                this._deflater.setInput(data, start, Math.min(this._blockSize, data.length - start));
+                this._deflater.finish();
+
+                int length = 0;
+                while(!this._deflater.finished()) {
+                    length += this._deflater.deflate(this._buffer, length, this._buffer.length - length);
+                }
+
+                this._offsets.add(this._position);
+                this._output.write(this._buffer, 0, length);
+                this._position += length;
+            }
+
+            return first;
+        }
+
+        /**
+         * Writes the index and trailer, and flushes the stream.
+         * @throws IOException If they can't be written.
+         */
+        public void finish() throws IOException {
+            long indexOffset = this._position;
+
+            for(long offset: this._offsets) {
+                this._output.writeLong(offset);
+            }
+            this._output.writeLong(indexOffset);
+
+            this._output.writeInt(this._blockSize);
+            this._output.writeInt(this._offsets.size());
+            this._output.writeLong(indexOffset);
+            this._output.flush();
+            this._deflater.end();
+        }
+    }
+}
@@ -1,16 +1,69 @@
-import com.sun.istack.internal.Nullable;
+import org.jspecify.annotations.Nullable;
 
 import java.util.ArrayList;
+import java.util.Random;
 import java.util.Stack;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
 
 public class Controller {
-    private GUI _gui;
+    // The default size of the transposition table, in megabytes
+    public static final int DEFAULT_TABLE_SIZE = 16;
+
+    // The time the AI may spend on a move for each difficulty level [easy, medium, hard], in milliseconds
+    public static final long[] TIME_BUDGETS = {250, 1000, 3000};
+
+    // Which selective search techniques each difficulty level uses by default, see setSelectiveSearch
+    public static final boolean[] LATE_MOVE_REDUCTIONS = {false, true, true};
+    public static final boolean[] PROB_CUT = {false, false, true};
+
+    // By default the AI searches with a thread for each processor
+    public static final int DEFAULT_THREADS = Runtime.getRuntime().availableProcessors();
+
+    // If the AI chooses its move quicker than this, it waits until this many milliseconds have passed so that the
+    // human player can visually register the change to the GUI
+    public static final long MINIMUM_AI_DELAY = 300;
+
+    private GameView _view;
     private StateManager _stateManager;
     private Stack<State> _history;
     private boolean _gameOver;
     private int _difficulty;
-    private int _evaluations;
+    private Engine _engine;
+    private long _nodeBudget;
+    private boolean[] _lateMoveReductions = LATE_MOVE_REDUCTIONS.clone();
+    private boolean[] _probCut = PROB_CUT.clone();
+
+    // The AI searches on its own thread so that the GUI stays responsive. Each search is given an id, and its move is
+    // only used if no newer search has been started or cancelled in the meantime.
+    private ExecutorService _aiExecutor;
+    private Future<?> _aiTask;
+    private volatile int _aiSearchId;
+    private volatile boolean _showProgress;
+
+    // While the human player thinks, the AI can search the same state (pondering). The human's move is likely to be
+    // the one the ponder search prefers (a ponder hit), in which case its reply has already been searched. The ponder
+    // result and statistics are only used on the AI's thread.
+    private boolean _pondering = true;
+    private Future<?> _ponderTask;
+    private volatile int _ponderId;
+    private Move _ponderMove;
+    private long _ponderTime;
+    private int _ponders;
+    private int _ponderHits;
+    private long _ponderTimeSaved;
+
+    // The depth of the last full search at each difficulty level, which a ponder result must match to be used as is
+    private int[] _searchDepths = new int[TIME_BUDGETS.length];
+
+    // Opening moves are picked from the book at random, weighted by how good they are, so that games vary. Whether the
+    // last move came from the book is only used on the AI's thread.
+    private OpeningBook _openingBook;
+    private Random _random = new Random();
+    private boolean _bookMove;
 
     public enum Type {
         RED,
@@ -20,13 +73,34 @@ public class Controller {
 
     /**
      * The constructor sets up the initial values of the game, and sets difficulty to medium by default.
-     * @param gui Instance of the the GUI
+     * @param view The view to show the game on, eg. the GUI
      * @param stateManager Instance of the State Manager
      */
-    public Controller(GUI gui, StateManager stateManager) {
-        this._gui = gui;
+    public Controller(GameView view, StateManager stateManager) {
+        this(view, stateManager, DEFAULT_TABLE_SIZE);
+    }
+
+    /**
+     * @param view The view to show the game on, eg. the GUI
+     * @param stateManager Instance of the State Manager
+     * @param tableSize The size of the transposition table, in megabytes.
+     */
+    public Controller(GameView view, StateManager stateManager, int tableSize) {
+        this._view = view;
         this._stateManager = stateManager;
         this._difficulty = 1;
+        this._engine = new Engine(tableSize, DEFAULT_THREADS);
+        this._engine.setProgressListener((depth, evaluations) -> {
+            if(this._showProgress) {
+                this._view.runLater(() -> this._view.setSearchProgress(depth, evaluations));
+            }
+        });
+
+        this._aiExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ai-search");
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 
     /**
@@ -34,10 +108,14 @@ public class Controller {
      * @param reset Whether the GUI is being reset.
      */
     public void setup(boolean reset) {
+        this.cancelAIMove();
         this._history = new Stack<State>();
         this._gameOver = false;
+
+        // The table is cleared on the AI's thread, after any cancelled search has finished with it
+        this._aiExecutor.execute(this._engine::clear);
         State initialState = StateManager.createInitialState();
-        this._gui.setup(initialState, reset, this);
+        this._view.setup(initialState, reset, this);
         this._addToHistory(initialState);
         this.updateState(initialState, null, false);
     }
@@ -63,7 +141,7 @@ public class Controller {
             this._addToHistory(this._stateManager.getState());
 
             // Update the GUI to reflect the turn end (eg. add history item to sidebar)
-            this._gui.endOfTurn(this._stateManager.getState(), previousState, this);
+            this._view.endOfTurn(this._stateManager.getState(), previousState, this);
         }
 
         if(successors == null) {
@@ -74,30 +152,25 @@ public class Controller {
         this._gameOver = false;
         if(this._stateManager.getState().isGoalState(!this._stateManager.getState().getTurn(), successors)) {
             // Update the GUI to reflect that the game is over
-            this._gui.gameOver(this._stateManager.getState(), previousState, this);
+            this._view.gameOver(this._stateManager.getState(), previousState, this);
             this._gameOver = true;
         }
 
-        // Update the GUI to reflect the new state and it's successor moves
-        this._updateGUI(successors);
-
-        // Check if it is time for the AI to make a move
-        if(!this._stateManager.getState().getTurn() && !this.isGameOver()) {
-            // Pick move to make
-            Move optimalAIMove = this._getAIMove();
+        // Update the GUI to reflect the new state and it's successor moves. The human player can't move while the AI
+        // is choosing its move, so none are offered.
+        boolean isAITurn = !this._stateManager.getState().getTurn() && !this.isGameOver();
+        this._updateView(isAITurn ? new ArrayList<Move>() : successors);
 
-            if(this._evaluations < 1000) {
-                // If the move was chosen quickly, sleep for 300 milliseconds to allow the human player to visually
-                // register the change to the GUI
-                try {
-                    TimeUnit.SECONDS.sleep((long) 0.3);
-                }
-                catch (Exception e) {
-                }
-            }
-
-            // Update the state
-            this.updateState(optimalAIMove.getNext(), null, true);
+        // Check if it is time for the AI to make a move, otherwise think about it while the human player does
+        if(isAITurn) {
+            this._startAIMove();
+        }
+        else if(!this.isGameOver()) {
+            this._startPondering();
+        }
+        else {
+            // The ponder search has no budget, so it would otherwise search behind the game over screen
+            this._stopPondering();
         }
     }
 
@@ -113,90 +186,295 @@ public class Controller {
      */
     public void setDifficulty(int level) {
         this._difficulty = level;
+
+        // A search that is already running restarts with the new difficulty's budget
+        if(this.isAIThinking()) {
+            this.cancelAIMove();
+            this._startAIMove();
+        }
     }
 
     /**
-     * Determines the optimal move for the AI player to take, given the current game state.
-     * @return An instance of {@link Move} that contains the optimal game state.
+     * @param nodeBudget The most evaluations the AI may use on a move, or 0 for no limit beyond the time budget.
      */
-    private Move _getAIMove() {
-        // An array is used rather than a Move object, as the array makes it easier to differentiate in recursive
-        // minimax calls, eg. in the initial call the array is empty, but in recursive calls it is null. This can not
-        // be achieved with the object alone.
-        ArrayList<Move> optimalMoves = new ArrayList<Move>();
+    public void setNodeBudget(long nodeBudget) {
+        this._nodeBudget = nodeBudget;
+    }
+
+    /**
+     * Sets which selective search techniques the AI uses at a difficulty level. These let the search go deeper in the
+     * same time, but may miss moves that a full search would find.
+     * @param level The difficulty level.
+     * @param lateMoveReductions Whether quiet moves late in the ordering are searched less deeply.
+     * @param probCut Whether states are cut off when a shallow search predicts that a full search would be.
+     */
+    public void setSelectiveSearch(int level, boolean lateMoveReductions, boolean probCut) {
+        this._lateMoveReductions[level] = lateMoveReductions;
+        this._probCut[level] = probCut;
+    }
 
-        // Translate the difficulty level [0, 1 or 2] to a tree depth [3, 5, 7].
-        int depth = (this.getDifficulty() * 2) + 3;
+    /**
+     * @param searchMode The algorithm the AI searches with.
+     */
+    public void setSearchMode(Engine.SearchMode searchMode) {
+        this._engine.setSearchMode(searchMode);
+    }
 
-        this._evaluations = 0;
+    /**
+     * Sets the tablebase that the AI and the hints look up endgames in. This must be done before the game is set up.
+     * @param tablebase The tablebase, or null for none.
+     */
+    public void setTablebase(@Nullable Tablebase tablebase) {
+        this._engine.setTablebase(tablebase);
+    }
 
-        // Run mimimax and pass in pointer to optimalMoves, so that we can retrieve the optimal move.
-        this._minimax(this._stateManager.getState(), depth, Integer.MIN_VALUE, Integer.MAX_VALUE, optimalMoves);
+    /**
+     * Sets the opening book that the AI looks up moves in before searching. This must be done before the game is set
+     * up.
+     * @param openingBook The opening book, or null for none.
+     */
+    public void setOpeningBook(@Nullable OpeningBook openingBook) {
+        this._openingBook = openingBook;
+    }
 
-        // Display the amount of evaluations
-        this._gui.setEvaluations(this._evaluations);
+    /**
+     * @param state The state to look up.
+     * @return The result of the state from the tablebase, see {@link Tablebase#probe(State)}, or
+     *         {@link Tablebase#UNKNOWN} if there is no tablebase.
+     */
+    public int probeTablebase(State state) {
+        Tablebase tablebase = this._engine.getTablebase();
 
-        // There will only be one optimal move to return
-        return optimalMoves.get(0);
+        return tablebase == null ? Tablebase.UNKNOWN : tablebase.probe(state);
     }
 
     /**
-     * Creates a search tree to identify the optimal move.
-     * @param state The state to consider.
-     * @param depth How many more search levels to consider.
-     * @param alpha The best value that the maximising player can guarantee
-     * @param beta The best value that the minimising player guarantee
-     * @param optimalMoves An array to store the optimal move for the initial call
-     * @return An integer representing the value of {@code state}.
+     * @param pondering Whether the AI searches while the human player is thinking.
      */
-    private int _minimax(State state, int depth, int alpha, int beta, @Nullable ArrayList<Move> optimalMoves) {
-        // Get the successor states
-        ArrayList<Move> successors = state.getSuccessors();
+    public void setPondering(boolean pondering) {
+        this._pondering = pondering;
 
-        // If we have reached our depth limit or there are no successors then return the current state value
-        if(depth < 1 || successors.isEmpty()) {
-            this._evaluations++;
-            return StateManager.getStateValue(state);
+        if(!pondering) {
+            this._stopPondering();
         }
+    }
 
-        // Initialise the best value to be worst case scenario for the player: -inf for human player and +inf for AI
-        int bestValue = state.getTurn() ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+    /**
+     * @return Whether the AI is searching while the human player thinks.
+     */
+    public boolean isPondering() {
+        return this._ponderTask != null;
+    }
 
-        for(Move m: successors) {
-            // Evaluate score for this successor, passing down alpha & beta values. Note that here optimalMoves is set
-            // to null as we don't care to store optimal moves from recursive calls
-            int eval = this._minimax(m.getNext(), depth-1, alpha, beta, null);
+    /**
+     * @return The number of AI moves that followed a ponder search.
+     */
+    public int getPonders() {
+        return this._ponders;
+    }
+
+    /**
+     * @return The number of times that the human player made the move the ponder search expected.
+     */
+    public int getPonderHits() {
+        return this._ponderHits;
+    }
 
-            this._evaluations++;
+    /**
+     * @return The time saved by ponder hits, compared with searching for the full time budget, in milliseconds.
+     */
+    public long getPonderTimeSaved() {
+        return this._ponderTimeSaved;
+    }
 
-            // If state is for the human player and the evaluated score is greater than our best OR if state is for the
-            // AI and the evaluated score is less than our best, then update best value (and store move if it's the
-            // initial method call).
-            if((state.getTurn() && eval > bestValue) || (!state.getTurn() && eval < bestValue)) {
-                if(optimalMoves != null) {
-                    // We clear the array because there should only ever be one element in the array
-                    optimalMoves.clear();
-                    optimalMoves.add(m);
-                }
+    /**
+     * @param threads The number of threads the AI searches with.
+     */
+    public void setThreads(int threads) {
+        this._engine.setThreads(threads);
+    }
+
+    /**
+     * @return Whether the AI is choosing its move, which lasts until the move has been made.
+     */
+    public boolean isAIThinking() {
+        return this._aiTask != null;
+    }
 
-                bestValue = eval;
+    /**
+     * Cancels the AI's move, if it is choosing one. The search stops shortly after and its move is thrown away.
+     */
+    public void cancelAIMove() {
+        this._stopPondering();
+        this._aiSearchId++;
+        this._engine.stop();
+
+        if(this._aiTask != null) {
+            // Interrupts the wait after a quick move
+            this._aiTask.cancel(true);
+            this._aiTask = null;
+        }
+    }
+
+    /**
+     * Starts choosing the AI's move for the current state on the AI's thread. Once chosen, the move is made on the
+     * JavaFX thread.
+     */
+    private void _startAIMove() {
+        this._stopPondering();
+
+        State state = this._stateManager.getState();
+        int searchId = ++this._aiSearchId;
+        int difficulty = this.getDifficulty();
+
+        this._aiTask = this._aiExecutor.submit(() -> {
+            // The search may have been cancelled while it was waiting for a previous one to finish
+            if(searchId != this._aiSearchId) {
+                return;
             }
 
-            if(state.getTurn()) {
-                alpha = Math.max(alpha, bestValue);
+            long start = System.currentTimeMillis();
+            this._showProgress = true;
+            Move optimalAIMove = this._getAIMove(state, difficulty, () -> searchId != this._aiSearchId);
+            boolean bookMove = this._bookMove;
+            this._showProgress = false;
+
+            // If the move was chosen quickly, wait so that the human player can visually register the change
+            long elapsed = System.currentTimeMillis() - start;
+            if(elapsed < MINIMUM_AI_DELAY) {
+                try {
+                    TimeUnit.MILLISECONDS.sleep(MINIMUM_AI_DELAY - elapsed);
+                }
+                catch(InterruptedException e) {
+                    return;
+                }
+            }
+
+            this._view.runLater(() -> {
+                if(searchId == this._aiSearchId) {
+                    this._aiTask = null;
+
+                    // Display the amount of evaluations, along with how the search went
+                    if(bookMove) {
+                        this._view.setBookMove();
+                    }
+                    else {
+                        this._view.setSearchStatistics(this._engine);
+                    }
+                    this._view.setPonderStatistics(this._ponderHits, this._ponders, this._ponderTimeSaved);
+
+                    this.updateState(optimalAIMove.getNext(), null, true);
+                }
+            });
+        });
+    }
+
+    /**
+     * Determines the optimal move for the AI player to take, given the current game state. The engine searches one
+     * level deeper at a time until the time budget of the difficulty level or the node budget runs out.
+     *
+     * If the human player made the move that the ponder search expected, then the AI's reply has already been
+     * searched. If it was searched as deeply as a full search would go, the stored move is played straight away,
+     * otherwise the time spent pondering is taken off the time budget.
+     *
+     * Positions in the opening book aren't searched at all.
+     * @param state The state to move from.
+     * @param difficulty The difficulty level to search at.
+     * @param cancelled Whether the search has been cancelled.
+     * @return An instance of {@link Move} that contains the optimal game state.
+     */
+    private Move _getAIMove(State state, int difficulty, BooleanSupplier cancelled) {
+        long start = System.currentTimeMillis();
+        Move ponderMove = this._ponderMove;
+        this._ponderMove = null;
+        this._bookMove = false;
+
+        // If there is only one move then there is nothing to search
+        ArrayList<Move> successors = state.getSuccessors();
+        if(successors.size() == 1) {
+            return successors.get(0);
+        }
+
+        if(this._openingBook != null) {
+            Move bookMove = this._openingBook.findMove(state, this._random);
+
+            if(bookMove != null) {
+                this._bookMove = true;
+                return bookMove;
             }
-            else {
-                beta = Math.min(beta, bestValue);
+        }
+
+        long timeBudget = TIME_BUDGETS[difficulty];
+        boolean isPonderHit = ponderMove != null && ponderMove.getNext().equals(state);
+
+        if(ponderMove != null) {
+            this._ponders++;
+        }
+
+        Move optimalMove = null;
+        if(isPonderHit) {
+            this._ponderHits++;
+
+            // Until there has been a full search at this difficulty, there is nothing to compare the depth with
+            if(this._searchDepths[difficulty] > 0) {
+                optimalMove = this._engine.getTableMove(state, this._searchDepths[difficulty]);
             }
 
-            // If alpha is greater or equal to beta, then we can stop considering moves at this level, we can
-            // guarantee these branches will never be evaluated anyway
-            if(alpha >= beta) {
-                break;
+            // Always leave some time, as pondering only searched this state as one of many
+            timeBudget = Math.max(timeBudget - this._ponderTime, timeBudget / 10);
+        }
+
+        if(optimalMove == null) {
+            this._engine.setLateMoveReductions(this._lateMoveReductions[difficulty]);
+            this._engine.setProbCut(this._probCut[difficulty]);
+            optimalMove = this._engine.search(state, timeBudget, this._nodeBudget, Engine.MAX_DEPTH, cancelled);
+
+            if(!isPonderHit) {
+                this._searchDepths[difficulty] = this._engine.getCompletedDepth();
             }
         }
 
-        return bestValue;
+        if(isPonderHit) {
+            this._ponderTimeSaved += Math.max(0, TIME_BUDGETS[difficulty] - (System.currentTimeMillis() - start));
+        }
+
+        return optimalMove;
+    }
+
+    /**
+     * Starts searching the current state on the AI's thread while the human player thinks, unless that is already
+     * happening (eg. part way through a multi-step move). The search runs until it is stopped.
+     */
+    private void _startPondering() {
+        State state = this._stateManager.getState();
+        if(!this._pondering || this._ponderTask != null || state.getSuccessors().size() < 2) {
+            return;
+        }
+
+        int ponderId = ++this._ponderId;
+        int difficulty = this.getDifficulty();
+
+        this._ponderTask = this._aiExecutor.submit(() -> {
+            if(ponderId != this._ponderId) {
+                return;
+            }
+
+            long start = System.currentTimeMillis();
+            this._engine.setLateMoveReductions(this._lateMoveReductions[difficulty]);
+            this._engine.setProbCut(this._probCut[difficulty]);
+            this._ponderMove = this._engine.search(state, Integer.MAX_VALUE, 0, Engine.MAX_DEPTH, () -> ponderId != this._ponderId);
+            this._ponderTime = System.currentTimeMillis() - start;
+        });
+    }
+
+    /**
+     * Stops pondering, if the AI is. The result is kept for the AI's next move.
+     */
+    private void _stopPondering() {
+        if(this._ponderTask != null) {
+            this._ponderId++;
+            this._ponderTask = null;
+        }
     }
 
     /**
@@ -230,6 +508,7 @@ public class Controller {
         State undoneState = null;
 
         if(this.canUndo()) {
+            this.cancelAIMove();
             undoneState = this._history.pop();
 
             if (shouldUpdateGUI) {
@@ -264,10 +543,10 @@ public class Controller {
     }
 
     /**
-     * Updates the GUI to represent the current game state.
+     * Updates the view to represent the current game state.
      * @param successors The successor moves that should be offered.
      */
-    private void _updateGUI(ArrayList<Move> successors) {
-        this._gui.render(this._stateManager.getState(), successors, this);
+    private void _updateView(ArrayList<Move> successors) {
+        this._view.render(this._stateManager.getState(), successors, this);
     }
 }
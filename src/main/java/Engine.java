@@ -0,0 +1,557 @@
+import org.jspecify.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Runs the AI's search on one or more threads. Every thread searches the same state and shares one transposition
+ * table (Lazy SMP), so helper threads speed up the main thread by filling the table with results it would otherwise
+ * have to search itself. Only the main thread's move is used, which keeps results close to a single-threaded search.
+ */
+public class Engine {
+    // The deepest that iterative deepening will go, regardless of the budget
+    public static final int MAX_DEPTH = 64;
+
+    // How often the progress listener is told about a running search, in milliseconds
+    public static final long PROGRESS_INTERVAL = 100;
+
+    /**
+     * The algorithm that each search thread uses.
+     */
+    public enum SearchMode {
+        // Minimax with alpha-beta pruning, every move searched with the full window
+        ALPHA_BETA,
+        // Principal variation search: the first move with the full window and the rest with a zero-width window, plus
+        // an aspiration window around the previous iteration's score at the root
+        PRINCIPAL_VARIATION
+    }
+
+    /**
+     * Told about the progress of a running search, from whichever search thread happens to check the budget.
+     */
+    public interface ProgressListener {
+        /**
+         * @param depth The depth of the main thread's last completed iteration.
+         * @param evaluations The number of evaluations made so far by all threads.
+         */
+        void onProgress(int depth, long evaluations);
+    }
+
+    /**
+     * Told about each iteration that the main search thread completes, on that thread.
+     */
+    public interface IterationListener {
+        /**
+         * @param depth The depth of the iteration.
+         * @param score The score of the root, where positive scores favour black.
+         * @param evaluations The number of evaluations made so far by all threads.
+         */
+        void onIteration(int depth, int score, long evaluations);
+    }
+
+    private TranspositionTable _transpositionTable;
+    private Tablebase _tablebase;
+    private int _threads;
+    private SearchMode _searchMode = SearchMode.PRINCIPAL_VARIATION;
+    private boolean _lateMoveReductions;
+    private boolean _probCut;
+    private ExecutorService _helpers;
+
+    private volatile boolean _stopped;
+    private long _deadline;
+    private long _nodeBudget;
+    private int _depthLimit;
+    private BooleanSupplier _cancelled;
+    private AtomicLong _evaluations = new AtomicLong();
+    private volatile ProgressListener _progressListener;
+    private volatile IterationListener _iterationListener;
+    private AtomicLong _nextProgress = new AtomicLong();
+
+    private ArrayList<Search> _searches = new ArrayList<Search>();
+    // Search threads are kept from one search to the next, as setting one up takes longer than a shallow search
+    private ArrayList<Search> _searchPool = new ArrayList<Search>();
+    private long _elapsed;
+    private boolean _tablebaseMove;
+    private int _tablebaseScore;
+
+    /**
+     * @param tableSize The size of the transposition table, in megabytes.
+     * @param threads The number of threads to search with.
+     */
+    public Engine(int tableSize, int threads) {
+        this._transpositionTable = new TranspositionTable(tableSize);
+        this.setThreads(threads);
+    }
+
+    public TranspositionTable getTranspositionTable() {
+        return this._transpositionTable;
+    }
+
+    @Nullable
+    public Tablebase getTablebase() {
+        return this._tablebase;
+    }
+
+    /**
+     * @param tablebase The tablebase to look up endgames in, or null for none.
+     */
+    public void setTablebase(@Nullable Tablebase tablebase) {
+        this._tablebase = tablebase;
+    }
+
+    public int getThreads() {
+        return this._threads;
+    }
+
+    /**
+     * @param threads The number of threads to search with, including the main thread.
+     */
+    public void setThreads(int threads) {
+        this._threads = Math.max(1, threads);
+
+        if(this._helpers != null) {
+            this._helpers.shutdown();
+            this._helpers = null;
+        }
+
+        if(this._threads > 1) {
+            this._helpers = Executors.newFixedThreadPool(this._threads - 1, runnable -> {
+                Thread thread = new Thread(runnable, "search-helper");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    public SearchMode getSearchMode() {
+        return this._searchMode;
+    }
+
+    public void setSearchMode(SearchMode searchMode) {
+        this._searchMode = searchMode;
+    }
+
+    public boolean getLateMoveReductions() {
+        return this._lateMoveReductions;
+    }
+
+    /**
+     * @param lateMoveReductions Whether quiet moves late in the ordering are searched less deeply. This searches
+     *                           deeper in the same time, at the risk of missing a good late move.
+     */
+    public void setLateMoveReductions(boolean lateMoveReductions) {
+        this._lateMoveReductions = lateMoveReductions;
+    }
+
+    public boolean getProbCut() {
+        return this._probCut;
+    }
+
+    /**
+     * @param probCut Whether states are cut off when a shallow search predicts that a full search would be. This
+     *                searches deeper in the same time, at the risk of wrong predictions.
+     */
+    public void setProbCut(boolean probCut) {
+        this._probCut = probCut;
+    }
+
+    /**
+     * Finds the optimal move for the player whose turn it is in {@code state}.
+     * @param state The state to search.
+     * @param timeBudget The time to search for, in milliseconds.
+     * @param nodeBudget The most evaluations to use across all threads, or 0 for no limit beyond the time budget.
+     * @return The optimal move.
+     */
+    public Move search(State state, long timeBudget, long nodeBudget) {
+        return this.search(state, timeBudget, nodeBudget, MAX_DEPTH);
+    }
+
+    /**
+     * Finds the optimal move for the player whose turn it is in {@code state}, searching no deeper than
+     * {@code depthLimit}.
+     * @param state The state to search.
+     * @param timeBudget The time to search for, in milliseconds.
+     * @param nodeBudget The most evaluations to use across all threads, or 0 for no limit beyond the time budget.
+     * @param depthLimit The deepest iteration to search, at most {@link #MAX_DEPTH}.
+     * @return The optimal move.
+     */
+    public Move search(State state, long timeBudget, long nodeBudget, int depthLimit) {
+        return this.search(state, timeBudget, nodeBudget, depthLimit, null);
+    }
+
+    /**
+     * Finds the optimal move for the player whose turn it is in {@code state}, searching no deeper than
+     * {@code depthLimit} and stopping early once {@code cancelled} is true. Unlike {@link #stop()}, this can't be lost
+     * by being called just before the search starts.
+     * @param state The state to search.
+     * @param timeBudget The time to search for, in milliseconds.
+     * @param nodeBudget The most evaluations to use across all threads, or 0 for no limit beyond the time budget.
+     * @param depthLimit The deepest iteration to search, at most {@link #MAX_DEPTH}.
+     * @param cancelled Checked along with the budget, or null.
+     * @return The optimal move.
+     */
+    public Move search(State state, long timeBudget, long nodeBudget, int depthLimit, @Nullable BooleanSupplier cancelled) {
+        long start = System.currentTimeMillis();
+        this._deadline = start + timeBudget;
+        this._nodeBudget = nodeBudget;
+        this._depthLimit = Math.min(depthLimit, MAX_DEPTH);
+        this._cancelled = cancelled;
+        this._stopped = false;
+        this._evaluations.set(0);
+        this._nextProgress.set(start + PROGRESS_INTERVAL);
+        this._transpositionTable.resetCounters();
+
+        this._searches.clear();
+
+        // A state in the tablebase has already been solved, so there is nothing to search
+        this._tablebaseMove = false;
+        if(this._tablebase != null) {
+            Move move = this._tablebase.findMove(state);
+
+            if(move != null) {
+                this._tablebaseMove = true;
+                this._tablebaseScore = Tablebase.getScore(this._tablebase.probe(state), 0, state.getTurn());
+                this._elapsed = System.currentTimeMillis() - start;
+                return move;
+            }
+        }
+
+        Search main = this._getSearch(0);
+        this._searches.add(main);
+
+        // Half of the helpers start a level deeper, so that the threads aren't all searching the same depth
+        ArrayList<Future<?>> futures = new ArrayList<Future<?>>();
+        for(int i = 1; i < this._threads; i++) {
+            Search helper = this._getSearch(i);
+            this._searches.add(helper);
+            futures.add(this._helpers.submit(() -> helper.run(state)));
+        }
+
+        main.run(state);
+
+        // The main thread may have finished by reaching the maximum depth, so make sure the helpers stop too
+        this._stopped = true;
+        // The helpers must have finished before the next search starts, so the wait carries on if this thread is
+        // interrupted, eg. by the search being cancelled
+        boolean interrupted = false;
+        for(Future<?> future: futures) {
+            while(true) {
+                try {
+                    future.get();
+                    break;
+                }
+                catch(InterruptedException e) {
+                    interrupted = true;
+                }
+                catch(Exception e) {
+                    // A helper that failed only means less help, the main thread's move is still valid
+                    break;
+                }
+            }
+        }
+
+        if(interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        this._elapsed = System.currentTimeMillis() - start;
+
+        return main.getOptimalMove();
+    }
+
+    /**
+     * @param index The index of the search thread, 0 for the main thread.
+     * @return The search for the thread. Half of the helpers start a level deeper.
+     */
+    private Search _getSearch(int index) {
+        while(this._searchPool.size() <= index) {
+            this._searchPool.add(new Search(this, this._searchPool.size() % 2));
+        }
+
+        return this._searchPool.get(index);
+    }
+
+    /**
+     * Looks up the best move stored in the transposition table for {@code state}, eg. from a search of an earlier
+     * state that reached it.
+     * @param state The state.
+     * @param minimumDepth How deeply the state must have been searched.
+     * @return The move, or null if there isn't one stored from a deep enough search.
+     */
+    @Nullable
+    public Move getTableMove(State state, int minimumDepth) {
+        long entry = this._transpositionTable.probe(state.getHash());
+        if(entry == 0 || TranspositionTable.getDepth(entry) < Math.max(1, minimumDepth)) {
+            return null;
+        }
+
+        int key = TranspositionTable.getMove(entry);
+        for(Move move: state.getSuccessors()) {
+            if(CompactMove.getKey(CompactMove.fromMove(move)) == key) {
+                return move;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Clears the transposition table, eg. when a new game starts.
+     */
+    public void clear() {
+        this._transpositionTable.clear();
+    }
+
+    public int getDepthLimit() {
+        return this._depthLimit;
+    }
+
+    /**
+     * Stops the running search, if there is one. The search returns as soon as it has a move to fall back on.
+     */
+    public void stop() {
+        this._stopped = true;
+    }
+
+    /**
+     * @param listener The listener to tell about the progress of each search every {@link #PROGRESS_INTERVAL}
+     *                 milliseconds, or null for none.
+     */
+    public void setProgressListener(@Nullable ProgressListener listener) {
+        this._progressListener = listener;
+    }
+
+    /**
+     * @param listener The listener to tell about each iteration of the main search thread, or null for none.
+     */
+    public void setIterationListener(@Nullable IterationListener listener) {
+        this._iterationListener = listener;
+    }
+
+    /**
+     * Tells the iteration listener that a search thread has completed an iteration, if it is the main thread.
+     * @param search The search thread.
+     * @param depth The depth of the iteration.
+     * @param score The score of the root.
+     */
+    public void reportIteration(Search search, int depth, int score) {
+        IterationListener listener = this._iterationListener;
+
+        if(listener != null && this._searches.get(0) == search) {
+            listener.onIteration(depth, score, this.getEvaluations());
+        }
+    }
+
+    /**
+     * Follows the best moves stored in the transposition table from {@code state}, which after a search are the moves
+     * that the search expects both players to make. The line stops at a state with no stored move or one that has
+     * already come up.
+     * @param state The state to start from.
+     * @param maxLength The most moves to follow.
+     * @return The moves.
+     */
+    public ArrayList<Move> getPrincipalVariation(State state, int maxLength) {
+        ArrayList<Move> moves = new ArrayList<Move>();
+        HashSet<Long> visited = new HashSet<Long>();
+
+        while(moves.size() < maxLength && visited.add(state.getHash())) {
+            Move move = this.getTableMove(state, 1);
+            if(move == null) {
+                break;
+            }
+
+            moves.add(move);
+            state = move.getNext();
+        }
+
+        return moves;
+    }
+
+    public boolean isStopped() {
+        return this._stopped;
+    }
+
+    /**
+     * Stops the search if it has used up its time or node budget.
+     */
+    public void checkBudget() {
+        long now = System.currentTimeMillis();
+
+        BooleanSupplier cancelled = this._cancelled;
+        if(now >= this._deadline
+                || (this._nodeBudget > 0 && this._evaluations.get() >= this._nodeBudget)
+                || (cancelled != null && cancelled.getAsBoolean())) {
+            this._stopped = true;
+        }
+
+        // Only the first thread to get here in each interval reports progress
+        ProgressListener listener = this._progressListener;
+        long nextProgress = this._nextProgress.get();
+        if(listener != null && now >= nextProgress && this._nextProgress.compareAndSet(nextProgress, now + PROGRESS_INTERVAL)) {
+            listener.onProgress(this.getCompletedDepth(), this.getEvaluations());
+        }
+    }
+
+    /**
+     * @param evaluations Evaluations made by a search thread since it last reported.
+     */
+    public void addEvaluations(int evaluations) {
+        this._evaluations.addAndGet(evaluations);
+    }
+
+    /**
+     * @return The number of evaluations made by all threads during the last search.
+     */
+    public long getEvaluations() {
+        return this._evaluations.get();
+    }
+
+    /**
+     * @return The depth of the main thread's last completed iteration.
+     */
+    public int getCompletedDepth() {
+        return this._searches.isEmpty() ? 0 : this._searches.get(0).getCompletedDepth();
+    }
+
+    /**
+     * @return The score of the state from the last search, where positive scores favour black.
+     */
+    public int getScore() {
+        if(this._tablebaseMove) {
+            return this._tablebaseScore;
+        }
+
+        return this._searches.isEmpty() ? 0 : this._searches.get(0).getScore();
+    }
+
+    /**
+     * @return The evaluations per second across all threads during the last search.
+     */
+    public long getNodesPerSecond() {
+        return this.getEvaluations() * 1000 / Math.max(1, this._elapsed);
+    }
+
+    public long getTableHits() {
+        long hits = 0;
+        for(Search search: this._searches) {
+            hits += search.getTableHits();
+        }
+
+        return hits;
+    }
+
+    public long getTableCutoffs() {
+        long cutoffs = 0;
+        for(Search search: this._searches) {
+            cutoffs += search.getTableCutoffs();
+        }
+
+        return cutoffs;
+    }
+
+    /**
+     * @return The number of states visited past the depth limit to finish off captures, across all threads during the
+     *         last search.
+     */
+    public long getQuiescenceNodes() {
+        long nodes = 0;
+        for(Search search: this._searches) {
+            nodes += search.getQuiescenceNodes();
+        }
+
+        return nodes;
+    }
+
+    /**
+     * @return The number of moves that had to be searched again after a zero-width or aspiration window search, across
+     *         all threads during the last search.
+     */
+    public long getResearches() {
+        long researches = 0;
+        for(Search search: this._searches) {
+            researches += search.getResearches();
+        }
+
+        return researches;
+    }
+
+    public long getReductions() {
+        long reductions = 0;
+        for(Search search: this._searches) {
+            reductions += search.getReductions();
+        }
+
+        return reductions;
+    }
+
+    public long getReductionResearches() {
+        long researches = 0;
+        for(Search search: this._searches) {
+            researches += search.getReductionResearches();
+        }
+
+        return researches;
+    }
+
+    public long getProbCutTries() {
+        long tries = 0;
+        for(Search search: this._searches) {
+            tries += search.getProbCutTries();
+        }
+
+        return tries;
+    }
+
+    public long getProbCuts() {
+        long cuts = 0;
+        for(Search search: this._searches) {
+            cuts += search.getProbCuts();
+        }
+
+        return cuts;
+    }
+
+    /**
+     * @return The number of states whose result was found in the tablebase, across all threads during the last
+     *         search.
+     */
+    public long getTablebaseHits() {
+        long hits = 0;
+        for(Search search: this._searches) {
+            hits += search.getTablebaseHits();
+        }
+
+        return hits;
+    }
+
+    /**
+     * @return Whether the last move was taken straight from the tablebase, without searching.
+     */
+    public boolean isTablebaseMove() {
+        return this._tablebaseMove;
+    }
+
+    /**
+     * @return The fraction of beta cutoffs that were caused by the first move visited, across all threads during the
+     *         last search. The closer this is to 1, the better the move ordering.
+     */
+    public double getFirstMoveCutoffRate() {
+        long cutoffs = 0;
+        long firstMoveCutoffs = 0;
+        for(Search search: this._searches) {
+            cutoffs += search.getCutoffs();
+            firstMoveCutoffs += search.getFirstMoveCutoffs();
+        }
+
+        return cutoffs == 0 ? 0 : (double) firstMoveCutoffs / cutoffs;
+    }
+
+    public long getTableOverwrites() {
+        return this._transpositionTable.getOverwrites();
+    }
+}
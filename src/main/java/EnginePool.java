@@ -0,0 +1,162 @@
+import org.jspecify.annotations.Nullable;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A fixed number of engines, each searching on a thread of its own, that searches for many games at once. Searches
+ * are CPU-bound, so there should be about one engine per processor however many games are being played: more would
+ * only share the processors between them, and make every search slower.
+ *
+ * Searches wait in a single queue and are taken in the order they were asked for. A game only asks for its next
+ * search once it has the last one's move, so no game can get more than its turn, however fast its player moves. The
+ * queue is bounded, and asking for a search when it is full waits for space, also in order.
+ *
+ * Each search has a time budget that starts when it is asked for, rather than when an engine takes it, so a game's
+ * moves take about as long as its budget however busy the pool is, down to {@link #MINIMUM_SEARCH_TIME}.
+ */
+public class EnginePool implements Closeable {
+    // The shortest time a search is given, however long it waited in the queue
+    public static final long MINIMUM_SEARCH_TIME = 10;
+
+    private final ArrayBlockingQueue<Request> _queue;
+    private final ArrayList<Thread> _workers = new ArrayList<Thread>();
+    private final LatencyHistogram _queueLatency = new LatencyHistogram();
+    private final AtomicLong _searches = new AtomicLong();
+    private volatile boolean _closed;
+
+    /**
+     * @param threads The number of engines, and threads to search with.
+     * @param tableSize The size of each engine's transposition table, in megabytes.
+     * @param capacity The most searches that can wait in the queue.
+     * @param tablebase The tablebase for the engines to look up endgames in, or null for none.
+     */
+    public EnginePool(int threads, int tableSize, int capacity, @Nullable Tablebase tablebase) {
+        // Fair, so that games waiting for space in a full queue get it in the order they asked
+        this._queue = new ArrayBlockingQueue<Request>(capacity, true);
+
+        for(int i = 0; i < threads; i++) {
+            Engine engine = new Engine(tableSize, 1);
+            engine.setLateMoveReductions(true);
+            engine.setProbCut(true);
+            engine.setTablebase(tablebase);
+
+            Thread worker = new Thread(() -> this._work(engine), "engine-pool-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            this._workers.add(worker);
+        }
+    }
+
+    /**
+     * Asks for a search, waiting for space in the queue if it is full.
+     * @param state The state to search, which must have moves.
+     * @param timeBudget The time from now until the move is needed, in milliseconds.
+     * @return The move, once it has been found. If the search fails or the pool is closed first, it is completed
+     *         exceptionally.
+     * @throws InterruptedException If the thread is interrupted while waiting for space in the queue.
+     * @throws IllegalStateException If the pool has been closed.
+     */
+    public CompletableFuture<Move> search(State state, long timeBudget) throws InterruptedException {
+        if(this._closed) {
+            throw new IllegalStateException("The pool is closed");
+        }
+
+        Request request = new Request(state, timeBudget);
+        this._queue.put(request);
+
+        // Closed while waiting, after the workers stopped taking requests
+        if(this._closed && this._queue.remove(request)) {
+            request.move.completeExceptionally(new IllegalStateException("The pool is closed"));
+        }
+
+        return request.move;
+    }
+
+    public int getThreads() {
+        return this._workers.size();
+    }
+
+    /**
+     * @return The number of searches waiting for an engine.
+     */
+    public int getQueued() {
+        return this._queue.size();
+    }
+
+    /**
+     * @return The number of searches that have been finished.
+     */
+    public long getSearches() {
+        return this._searches.get();
+    }
+
+    /**
+     * @return The time searches waited in the queue before an engine took them.
+     */
+    public LatencyHistogram getQueueLatency() {
+        return this._queueLatency;
+    }
+
+    /**
+     * Stops the engines once they finish their current searches. Searches still waiting are completed exceptionally.
+     */
+    @Override
+    public void close() {
+        this._closed = true;
+
+        for(Thread worker: this._workers) {
+            worker.interrupt();
+        }
+
+        Request request;
+        while((request = this._queue.poll()) != null) {
+            request.move.completeExceptionally(new IllegalStateException("The pool is closed"));
+        }
+    }
+
+    /**
+     * Takes requests from the queue and searches them until the pool is closed.
+     * @param engine The engine that this thread searches with.
+     */
+    private void _work(Engine engine) {
+        while(!this._closed) {
+            Request request;
+            try {
+                request = this._queue.take();
+            }
+            catch(InterruptedException e) {
+                break;
+            }
+
+            long waited = System.nanoTime() - request.requested;
+            this._queueLatency.record(waited);
+
+            try {
+                long searchTime = Math.max(MINIMUM_SEARCH_TIME, request.timeBudget - waited / 1000000);
+                Move move = engine.search(request.state, searchTime, 0, Engine.MAX_DEPTH);
+
+                this._searches.incrementAndGet();
+                request.move.complete(move);
+            }
+            catch(RuntimeException e) {
+                request.move.completeExceptionally(e);
+            }
+        }
+    }
+
+    private static class Request {
+        final State state;
+        final long timeBudget;
+        final long requested = System.nanoTime();
+        final CompletableFuture<Move> move = new CompletableFuture<Move>();
+
+        Request(State state, long timeBudget) {
+            this.state = state;
+            this.timeBudget = timeBudget;
+        }
+    }
+}
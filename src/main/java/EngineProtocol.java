@@ -0,0 +1,503 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * A line-based protocol for driving the engine over standard input and output, so that tournament managers and
+ * analysis programs can run it as a separate process. The commands follow UCI, the protocol that chess engines use:
+ *
+ *   uci                                  Replies with the engine's name and options, then uciok
+ *   isready                              Replies readyok, even while searching
+ *   setoption name N value V             Sets an option: Threads, LMR or ProbCut
+ *   ucinewgame                           Clears what was learned from the last game
+ *   position startpos|P [moves M...]     Sets the position, written as in {@link Perft#parsePosition(String)}, then
+ *                                        makes the moves
+ *   go [depth N] [movetime MS] [nodes N] [infinite]
+ *                                        Searches the position until a limit is reached or it is stopped, reporting
+ *                                        each completed iteration as "info depth D score cp S nodes N nps N time MS
+ *                                        pv M...", then the move as "bestmove M". With infinite, the move isn't
+ *                                        reported until stop, even if the search finishes first
+ *   stop                                 Stops the search, which still reports its best move
+ *   d                                    Shows the position and its legal moves
+ *   quit                                 Stops the search and exits
+ *
+ * Squares are numbered 1 to 32 in the same order as the position, from the top left. A move is written as the squares
+ * it passes through, separated by - for a step or x for jumps, eg. 22-18 or 15x22x31. A jump may also be given as
+ * just its first and last squares if that is enough to tell it apart. Scores are from the point of view of the
+ * player whose turn it is, in hundredths of a man, or as "mate N" for a forced win (or loss, if negative) in N plies.
+ *
+ * Commands are read on the calling thread while searches run on a thread of their own, so stop and isready are
+ * answered straight away. Output is queued and written by another thread, so the search never waits on the pipe.
+ *
+ * Usage: EngineProtocol [options]
+ *   --hash MB            The size of the transposition table (default {@link Controller#DEFAULT_TABLE_SIZE})
+ *   --threads N          The number of threads to search with (default all processors)
+ *   --tablebase FILE     The tablebase to use (default {@link Tablebase#DEFAULT_FILE}, if it exists)
+ */
+public class EngineProtocol {
+    public static final String NAME = "Checkers";
+
+    // Queued to make the output thread finish
+    private static final String END_OF_OUTPUT = new String();
+
+    private final Engine _engine;
+    private final BufferedReader _input;
+    private final PrintStream _output;
+    private final LinkedBlockingQueue<String> _lines = new LinkedBlockingQueue<String>();
+    private final Thread _writer;
+    private final ExecutorService _searcher;
+
+    private State _state = StateManager.createInitialState();
+    private Future<?> _search;
+    // Each search is given an id, and stops as soon as the id changes
+    private volatile int _searchId;
+
+    /**
+     * @param engine The engine to search with.
+     * @param input Where to read commands from.
+     * @param output Where to write replies to.
+     */
+    public EngineProtocol(Engine engine, InputStream input, PrintStream output) {
+        this._engine = engine;
+        this._input = new BufferedReader(new InputStreamReader(input));
+        this._output = output;
+
+        this._writer = new Thread(this::_write, "protocol-output");
+        this._writer.setDaemon(true);
+
+        this._searcher = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "protocol-search");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Reads and carries out commands until quit or the end of the input. Any running search is then stopped, and
+     * this returns once its best move and everything else has been written.
+     * @throws IOException If the input can't be read.
+     */
+    public void run() throws IOException {
+        this._writer.start();
+
+        try {
+            String line;
+            while((line = this._input.readLine()) != null) {
+                if(!this.handle(line)) {
+                    break;
+                }
+            }
+        }
+        finally {
+            this._stopSearch();
+            this._searcher.shutdown();
+            this._lines.add(END_OF_OUTPUT);
+
+            try {
+                this._writer.join();
+            }
+            catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Carries out a single command.
+     * @param line The command.
+     * @return False if the command was quit, otherwise true.
+     */
+    boolean handle(String line) {
+        String[] tokens = line.trim().split("\\s+");
+
+        try {
+            switch(tokens[0]) {
+                case "":
+                    break;
+                case "uci":
+                    this._send("id name " + NAME);
+                    this._send("option name Threads type spin default " + this._engine.getThreads() + " min 1 max 512");
+                    this._send("option name LMR type check default " + this._engine.getLateMoveReductions());
+                    this._send("option name ProbCut type check default " + this._engine.getProbCut());
+                    this._send("uciok");
+                    break;
+                case "isready":
+                    this._send("readyok");
+                    break;
+                case "setoption":
+                    this._stopSearch();
+                    this._setOption(tokens);
+                    break;
+                case "ucinewgame":
+                    this._stopSearch();
+                    this._engine.clear();
+                    break;
+                case "position":
+                    this._stopSearch();
+                    this._state = EngineProtocol._parsePosition(tokens);
+                    break;
+                case "go":
+                    this._stopSearch();
+                    this._go(tokens);
+                    break;
+                case "stop":
+                    this._cancelSearch();
+                    break;
+                case "d":
+                    this._send("info string position " + Perft.formatPosition(this._state));
+                    this._send("info string moves " + EngineProtocol._formatMoves(this._state.getSuccessors()));
+                    break;
+                case "quit":
+                    return false;
+                default:
+                    this._send("info string Unknown command: " + tokens[0]);
+            }
+        }
+        catch(IllegalArgumentException e) {
+            this._send("info string " + e.getMessage());
+        }
+
+        return true;
+    }
+
+    /**
+     * Starts searching the current position on the search thread.
+     * @param tokens The go command and its limits.
+     */
+    private void _go(String[] tokens) {
+        long timeBudget = Integer.MAX_VALUE;
+        long nodeBudget = 0;
+        int depthLimit = Engine.MAX_DEPTH;
+        boolean infinite = false;
+
+        for(int i = 1; i < tokens.length; i++) {
+            switch(tokens[i]) {
+                case "depth":
+                    depthLimit = EngineProtocol._parseNumber(tokens, ++i);
+                    break;
+                case "movetime":
+                    timeBudget = EngineProtocol._parseNumber(tokens, ++i);
+                    break;
+                case "nodes":
+                    nodeBudget = EngineProtocol._parseNumber(tokens, ++i);
+                    break;
+                case "infinite":
+                    infinite = true;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown limit: " + tokens[i]);
+            }
+        }
+
+        State state = this._state;
+        int searchId = ++this._searchId;
+        long start = System.currentTimeMillis();
+        long searchTime = timeBudget;
+        long searchNodes = nodeBudget;
+        int searchDepth = depthLimit;
+        boolean waitForStop = infinite;
+
+        // The line is worked out on the search thread, as it reads the transposition table while it is up to date
+        this._engine.setIterationListener((depth, score, evaluations) -> {
+            long elapsed = System.currentTimeMillis() - start;
+            ArrayList<Move> pv = this._engine.getPrincipalVariation(state, depth);
+
+            this._send("info depth " + depth + " score " + EngineProtocol._formatScore(score, state.getTurn())
+                    + " nodes " + evaluations + " nps " + evaluations * 1000 / Math.max(1, elapsed)
+                    + " time " + elapsed + " pv " + EngineProtocol._formatMoves(pv));
+        });
+
+        this._search = this._searcher.submit(() -> {
+            if(state.getSuccessors().isEmpty()) {
+                this._awaitStop(searchId, waitForStop);
+                this._send("bestmove none");
+                return;
+            }
+
+            Move move = this._engine.search(state, searchTime, searchNodes, searchDepth, () -> searchId != this._searchId);
+
+            if(this._engine.isTablebaseMove()) {
+                this._send("info depth 0 score " + EngineProtocol._formatScore(this._engine.getScore(), state.getTurn())
+                        + " pv " + EngineProtocol.formatMove(move));
+            }
+
+            this._awaitStop(searchId, waitForStop);
+            this._send("bestmove " + EngineProtocol.formatMove(move));
+        });
+    }
+
+    /**
+     * Stops the running search, if there is one, and waits for it to report its move.
+     */
+    private void _stopSearch() {
+        if(this._search == null) {
+            return;
+        }
+
+        this._cancelSearch();
+
+        try {
+            this._search.get();
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        catch(ExecutionException e) {
+            this._send("info string The search failed: " + e.getCause());
+        }
+
+        this._search = null;
+    }
+
+    /**
+     * Stops the running search, and wakes it if it is waiting to report its move.
+     */
+    private synchronized void _cancelSearch() {
+        this._searchId++;
+        this.notifyAll();
+    }
+
+    /**
+     * Waits until a search is stopped, so that the move of a "go infinite" search isn't reported before stop, as UCI
+     * requires, even if it reached the deepest iteration or found a forced win.
+     * @param searchId The search's id.
+     * @param infinite Whether the search was started with go infinite, otherwise this returns straight away.
+     */
+    private synchronized void _awaitStop(int searchId, boolean infinite) {
+        try {
+            while(infinite && searchId == this._searchId) {
+                this.wait();
+            }
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void _setOption(String[] tokens) {
+        // setoption name <name> value <value>
+        if(tokens.length != 5 || !tokens[1].equals("name") || !tokens[3].equals("value")) {
+            throw new IllegalArgumentException("Expected setoption name <name> value <value>");
+        }
+
+        switch(tokens[2].toLowerCase()) {
+            case "threads":
+                this._engine.setThreads(EngineProtocol._parseNumber(tokens, 4));
+                break;
+            case "lmr":
+                this._engine.setLateMoveReductions(Boolean.parseBoolean(tokens[4]));
+                break;
+            case "probcut":
+                this._engine.setProbCut(Boolean.parseBoolean(tokens[4]));
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown option: " + tokens[2]);
+        }
+    }
+
+    /**
+     * Queues a line to be written by the output thread.
+     * @param line The line.
+     */
+    private void _send(String line) {
+        this._lines.add(line);
+    }
+
+    /**
+     * Writes queued lines until the end of the output, flushing whenever the queue is empty.
+     */
+    private void _write() {
+        ArrayList<String> lines = new ArrayList<String>();
+
+        try {
+            while(true) {
+                lines.add(this._lines.take());
+                this._lines.drainTo(lines);
+
+                for(String line: lines) {
+                    if(line == END_OF_OUTPUT) {
+                        this._output.flush();
+                        return;
+                    }
+
+                    this._output.println(line);
+                }
+
+                this._output.flush();
+                lines.clear();
+            }
+        }
+        catch(InterruptedException e) {
+            this._output.flush();
+        }
+    }
+
+    /**
+     * @param tokens The position command: "position", then "startpos" or a position, then optionally "moves" and the
+     *               moves to make.
+     * @return The state.
+     */
+    private static State _parsePosition(String[] tokens) {
+        if(tokens.length < 2) {
+            throw new IllegalArgumentException("Expected position startpos|<position> [moves ...]");
+        }
+
+        State state = tokens[1].equals("startpos") ? StateManager.createInitialState() : Perft.parsePosition(tokens[1]);
+
+        if(tokens.length > 2 && !tokens[2].equals("moves")) {
+            throw new IllegalArgumentException("Expected moves after the position: " + tokens[2]);
+        }
+
+        for(int i = 3; i < tokens.length; i++) {
+            state = EngineProtocol.parseMove(state, tokens[i]).getNext();
+        }
+
+        return state;
+    }
+
+    private static int _parseNumber(String[] tokens, int index) {
+        if(index >= tokens.length) {
+            throw new IllegalArgumentException("Expected a number after " + tokens[index - 1]);
+        }
+
+        try {
+            return Integer.parseInt(tokens[index]);
+        }
+        catch(NumberFormatException e) {
+            throw new IllegalArgumentException("Expected a number: " + tokens[index]);
+        }
+    }
+
+    /**
+     * @param score A search score, where positive scores favour black.
+     * @param turn The player the score is for, true for black.
+     * @return The score as "cp N" or "mate N".
+     */
+    private static String _formatScore(int score, boolean turn) {
+        int own = turn ? score : -score;
+
+        // A win found n plies into the search is worth WIN - n
+        if(Math.abs(own) >= Evaluator.WIN_THRESHOLD) {
+            return "mate " + (own > 0 ? Evaluator.WIN - own : -(Evaluator.WIN + own));
+        }
+
+        return "cp " + own;
+    }
+
+    private static String _formatMoves(ArrayList<Move> moves) {
+        StringBuilder text = new StringBuilder();
+
+        for(Move move: moves) {
+            if(text.length() > 0) {
+                text.append(' ');
+            }
+            text.append(EngineProtocol.formatMove(move));
+        }
+
+        return text.toString();
+    }
+
+    /**
+     * @param move A move, as given by {@link State#getSuccessors()}.
+     * @return The move written as the squares it passes through, eg. 22-18 or 15x22x31.
+     */
+    public static String formatMove(Move move) {
+        // Every step moves the same piece, so the squares are found by comparing the mover's pieces before and after
+        // each step
+        ArrayList<Move> steps = new ArrayList<Move>();
+        for(Move step = move; step != null; step = step.getPreviousMove()) {
+            steps.add(0, step);
+        }
+
+        State start = move.getFirstMove().getCurrent();
+        boolean turn = start.getTurn();
+        boolean isJump = EngineProtocol._getPieces(start, !turn) != EngineProtocol._getPieces(move.getNext(), !turn);
+
+        StringBuilder text = new StringBuilder();
+        int from = EngineProtocol._getPieces(start, turn) & ~EngineProtocol._getPieces(steps.get(0).getNext(), turn);
+        text.append(Integer.numberOfTrailingZeros(from) + 1);
+
+        for(Move step: steps) {
+            int to = EngineProtocol._getPieces(step.getNext(), turn) & ~EngineProtocol._getPieces(step.getCurrent(), turn);
+            text.append(isJump ? 'x' : '-').append(Integer.numberOfTrailingZeros(to) + 1);
+        }
+
+        return text.toString();
+    }
+
+    /**
+     * Finds the move that is written as {@code text}, see {@link #formatMove(Move)}.
+     * @param state The state to move from.
+     * @param text The move.
+     * @return The move, as given by {@link State#getSuccessors()}.
+     * @throws IllegalArgumentException If the move can't be made from the state, or could be more than one move.
+     */
+    public static Move parseMove(State state, String text) {
+        Move match = null;
+        int matches = 0;
+        String[] squares = text.split("[-x]");
+
+        for(Move move: state.getSuccessors()) {
+            String written = EngineProtocol.formatMove(move);
+            if(written.equals(text)) {
+                return move;
+            }
+
+            // A jump may be given by its first and last squares only
+            String[] moveSquares = written.split("[-x]");
+            if(squares.length == 2 && squares[0].equals(moveSquares[0]) && squares[1].equals(moveSquares[moveSquares.length - 1])) {
+                match = move;
+                matches++;
+            }
+        }
+
+        if(matches == 1) {
+            return match;
+        }
+
+        throw new IllegalArgumentException((matches > 1 ? "Ambiguous move: " : "Illegal move: ") + text);
+    }
+
+    private static int _getPieces(State state, boolean turn) {
+        return turn ? state.getBlack() : state.getRed();
+    }
+
+    public static void main(String[] args) throws IOException {
+        int hash = Controller.DEFAULT_TABLE_SIZE;
+        int threads = Runtime.getRuntime().availableProcessors();
+        File tablebase = new File(Tablebase.DEFAULT_FILE);
+
+        for(int i = 0; i < args.length; i++) {
+            switch(args[i]) {
+                case "--hash":
+                    hash = Integer.parseInt(args[++i]);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "--tablebase":
+                    tablebase = new File(args[++i]);
+                    break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(2);
+            }
+        }
+
+        Engine engine = new Engine(hash, threads);
+        if(tablebase.exists()) {
+            engine.setTablebase(Tablebase.load(tablebase));
+        }
+
+        new EngineProtocol(engine, System.in, System.out).run();
+    }
+}
@@ -0,0 +1,148 @@
+/**
+ * Scores a board for the search. Like {@link StateManager#getStateValue(State)}, positive scores favour the human
+ * (black) player and negative scores favour the AI (red), but the score is measured in hundredths of a man rather
+ * than only telling wins from losses.
+ *
+ * Material, kings, advancement, back rank guard and centre control only depend on where each piece is, so they are
+ * combined into a single table per piece type. {@link SearchBoard} keeps the sum of these up to date as moves are made
+ * and unmade, which leaves only mobility to work out at each leaf. Each search thread has its own evaluator, with a
+ * small cache of recent scores keyed by hash.
+ */
+public class Evaluator {
+    // The score of a win at the root, a win found n plies into the search is worth WIN - n so that quicker wins are
+    // preferred. Scores must fit in 16 bits to be stored in the transposition table. A win from the tablebase can be
+    // further away than the deepest search.
+    public static final int WIN = 30000;
+    public static final int WIN_THRESHOLD = WIN - SearchBoard.MAX_PLY - Tablebase.MAX_DISTANCE;
+
+    private static final int MAN = 100;
+    private static final int KING = 150;
+
+    // Per row that a man has moved towards being crowned
+    private static final int ADVANCEMENT = 3;
+
+    // For a man still on its own back row, which stops the opponent from crowning there
+    private static final int BACK_RANK_GUARD = 8;
+
+    // For a piece on one of the centre squares, doubled for kings as they can use them in every direction
+    private static final int CENTRE = 5;
+
+    // Per move the player has over their opponent
+    private static final int MOBILITY = 2;
+
+    private static final int CACHE_SIZE = 1 << 14;
+
+    // Indexed by red, black, red king, black king, then square. Red entries are negative.
+    private static final int[][] PIECE_SQUARE = new int[4][BitBoard.SQUARES];
+
+    static {
+        for(int square = 0; square < BitBoard.SQUARES; square++) {
+            int x = BitBoard.getX(square);
+            int y = BitBoard.getY(square);
+            boolean isCentre = x >= 2 && x <= 5 && y >= 2 && y <= 5;
+
+            for(int colour = 0; colour < 2; colour++) {
+                boolean isRed = colour == 0;
+
+                // Red starts at the top and moves down, black starts at the bottom and moves up
+                int advanced = isRed ? x : 7 - x;
+                int man = MAN + advanced * ADVANCEMENT + (advanced == 0 ? BACK_RANK_GUARD : 0) + (isCentre ? CENTRE : 0);
+                int king = KING + (isCentre ? CENTRE * 2 : 0);
+
+                PIECE_SQUARE[colour][square] = isRed ? -man : man;
+                PIECE_SQUARE[colour + 2][square] = isRed ? -king : king;
+            }
+        }
+    }
+
+    // The cache is only used by one thread, so unlike the transposition table the key can be stored as it is
+    private final long[] _cacheKeys = new long[CACHE_SIZE];
+    private final int[] _cacheScores = new int[CACHE_SIZE];
+    private int _cacheHits;
+
+    /**
+     * Scores the board, which must not be a loss for the player whose turn it is (ie. they have a move).
+     * @param board The board to score.
+     * @return The score, positive when the human player is ahead.
+     */
+    public int evaluate(SearchBoard board) {
+        long hash = board.getHash();
+        int index = (int) (hash ^ (hash >>> 32)) & (CACHE_SIZE - 1);
+
+        if(this._cacheKeys[index] == hash) {
+            this._cacheHits++;
+            return this._cacheScores[index];
+        }
+
+        int score = board.getPieceScore() + Evaluator.getMobilityScore(board.getRed(), board.getBlack(), board.getKings());
+
+        this._cacheKeys[index] = hash;
+        this._cacheScores[index] = score;
+
+        return score;
+    }
+
+    public int getCacheHits() {
+        return this._cacheHits;
+    }
+
+    /**
+     * @param isRed Whether the piece is red.
+     * @param isKing Whether the piece is a king.
+     * @param square The square the piece is on.
+     * @return The piece's contribution to the score, negative for red.
+     */
+    public static int getPieceScore(boolean isRed, boolean isKing, int square) {
+        return PIECE_SQUARE[(isRed ? 0 : 1) + (isKing ? 2 : 0)][square];
+    }
+
+    /**
+     * @param mask Mask of the pieces, which must all be the same colour.
+     * @param isRed Whether the pieces are red.
+     * @param kings Mask of the king pieces.
+     * @return The sum of the pieces' contributions to the score.
+     */
+    public static int getPiecesScore(int mask, boolean isRed, int kings) {
+        int score = 0;
+        while(mask != 0) {
+            int square = Integer.numberOfTrailingZeros(mask);
+            mask &= mask - 1;
+            score += Evaluator.getPieceScore(isRed, (kings & (1 << square)) != 0, square);
+        }
+
+        return score;
+    }
+
+    /**
+     * @return The score of every piece on the board, as kept up to date by {@link SearchBoard}.
+     */
+    public static int computePieceScore(int red, int black, int kings) {
+        return Evaluator.getPiecesScore(red, true, kings) + Evaluator.getPiecesScore(black, false, kings);
+    }
+
+    /**
+     * Counts the moves that aren't jumps for each player using shifts of the whole board, rather than generating them.
+     * @return The mobility part of the score.
+     */
+    public static int getMobilityScore(int red, int black, int kings) {
+        int empty = ~(red | black);
+        int redKings = red & kings;
+        int blackKings = black & kings;
+
+        int redMoves = Integer.bitCount(BitBoard.bottomLeft(red) & empty) + Integer.bitCount(BitBoard.bottomRight(red) & empty)
+                + Integer.bitCount(BitBoard.topLeft(redKings) & empty) + Integer.bitCount(BitBoard.topRight(redKings) & empty);
+        int blackMoves = Integer.bitCount(BitBoard.topLeft(black) & empty) + Integer.bitCount(BitBoard.topRight(black) & empty)
+                + Integer.bitCount(BitBoard.bottomLeft(blackKings) & empty) + Integer.bitCount(BitBoard.bottomRight(blackKings) & empty);
+
+        return (blackMoves - redMoves) * MOBILITY;
+    }
+
+    /**
+     * @param ply How many moves into the search the player to move has lost.
+     * @param turn The turn of the player who has lost, true for black.
+     * @return The score of the loss.
+     */
+    public static int getLossScore(int ply, boolean turn) {
+        return turn ? -(WIN - ply) : WIN - ply;
+    }
+}
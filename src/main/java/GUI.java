@@ -1,4 +1,5 @@
 import javafx.animation.FillTransition;
+import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
@@ -18,7 +19,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
 
-public class GUI {
+public class GUI implements GameView {
     @FXML
     public Button newGameButton;
 
@@ -78,6 +79,7 @@ public class GUI {
      * @param reset Whether or not this is a reset ("New game").
      * @param controller The controller
      */
+    @Override
     public void setup(State state, boolean reset, Controller controller) {
         this.resetPieces();
         this.resetHistory();
@@ -103,7 +105,12 @@ public class GUI {
             });
 
             this.undoButton.setOnAction(e -> {
-                if (controller.canUndo()) {
+                if (controller.isAIThinking()) {
+                    // The AI hasn't moved yet, so only the human move needs undoing
+                    controller.undo(true);
+                    this._removeHistoryItems(1);
+                }
+                else if (controller.canUndo()) {
                     boolean gameOver = controller.isGameOver();
 
                     // Undo the AI's move
@@ -212,6 +219,7 @@ public class GUI {
      * @param successors Any potential following moves.
      * @param controller The controller.
      */
+    @Override
     public void render(State state, ArrayList<Move> successors, Controller controller) {
         this.resetPieces();
         this._options = new ArrayList<Circle>();
@@ -266,6 +274,7 @@ public class GUI {
                 changedPiecePane.getStyleClass().add("origin");
 
                 Circle optionButton = this.createOptionButton(piece.getX(), piece.getY(), "" + originalPieceState.getX() + originalPieceState.getY(), move.getFirstMove().getCurrent(), move.getNext(), controller);
+                this._addTablebaseHint(optionButton, move.getNext(), controller);
                 this.pieces.getChildren().add(optionButton);
                 this._options.add(optionButton);
             }
@@ -287,6 +296,24 @@ public class GUI {
         this.undoButton.setDisable(!controller.canUndo());
     }
 
+    /**
+     * Colours an option button by whether its move wins, draws or loses, if the tablebase knows.
+     * @param optionButton The option button.
+     * @param newState The state after the move.
+     * @param controller The controller.
+     */
+    private void _addTablebaseHint(Circle optionButton, State newState, Controller controller) {
+        int result = controller.probeTablebase(newState);
+
+        // The result is for the opponent, who moves next
+        if(result == Tablebase.DRAW) {
+            optionButton.getStyleClass().add("option--draw");
+        }
+        else if(result != Tablebase.UNKNOWN) {
+            optionButton.getStyleClass().add(Tablebase.isLoss(result) ? "option--win" : "option--loss");
+        }
+    }
+
     /**
      * Creates a new piece button
      * @param x The x location.
@@ -454,6 +481,7 @@ public class GUI {
      * @param previousState The previous state.
      * @param controller The controller.
      */
+    @Override
     public void endOfTurn(State newState, State previousState, Controller controller) {
         // Get the changes to be added to a history item
         String message = PieceState.changesToString(previousState.getPieces(), newState.getPieces());
@@ -480,6 +508,7 @@ public class GUI {
      * @param previousState The previous state.
      * @param controller The controller.
      */
+    @Override
     public void gameOver(State winningState, State previousState, Controller controller) {
         String message;
         if(!winningState.getTurn()) {
@@ -558,8 +587,83 @@ public class GUI {
         }
     }
 
-    public void setEvaluations(int num) {
-        this.evaluations.setText("Evaluations: " + num);
+    /**
+     * Displays the progress of the AI's running search.
+     * @param depth The depth of the last completed iteration.
+     * @param evaluations The number of evaluations made so far.
+     */
+    @Override
+    public void setSearchProgress(int depth, long evaluations) {
+        this.evaluations.setText("Thinking...    Depth: " + depth + "    Evaluations: " + evaluations);
+    }
+
+    /**
+     * Runs {@code runnable} on the JavaFX thread, which is the only thread that may change the GUI.
+     * @param runnable The code to run.
+     */
+    @Override
+    public void runLater(Runnable runnable) {
+        Platform.runLater(runnable);
+    }
+
+    /**
+     * Displays the amount of evaluations made by the engine's last search, along with the depth it reached, its speed
+     * and how much the transposition table helped.
+     * @param engine The engine.
+     */
+    @Override
+    public void setSearchStatistics(Engine engine) {
+        if(engine.isTablebaseMove()) {
+            this.evaluations.setText("Move taken from the endgame tablebase" + GUI._describeTablebaseCache(engine));
+            return;
+        }
+
+        this.evaluations.setText("Evaluations: " + engine.getEvaluations()
+                + "    Depth: " + engine.getCompletedDepth()
+                + "    Quiescence: " + engine.getQuiescenceNodes()
+                + "    Speed: " + engine.getNodesPerSecond() + "/s on " + engine.getThreads() + " threads"
+                + "    First move cutoffs: " + Math.round(engine.getFirstMoveCutoffRate() * 100) + "%"
+                + "    Reductions: " + engine.getReductions() + " (" + engine.getReductionResearches() + " re-searched)"
+                + "    ProbCuts: " + engine.getProbCuts() + "/" + engine.getProbCutTries()
+                + "    Tablebase hits: " + engine.getTablebaseHits() + GUI._describeTablebaseCache(engine)
+                + "    Table hits: " + engine.getTableHits()
+                + ", cutoffs: " + engine.getTableCutoffs()
+                + ", overwrites: " + engine.getTableOverwrites());
+    }
+
+    /**
+     * Replaces the search statistics, as the last move was taken from the opening book without searching.
+     */
+    @Override
+    public void setBookMove() {
+        this.evaluations.setText("Move taken from the opening book");
+    }
+
+    /**
+     * @return How often tablebase probes have had to decompress a block, and how long that took in total.
+     */
+    private static String _describeTablebaseCache(Engine engine) {
+        Tablebase tablebase = engine.getTablebase();
+        if(tablebase == null) {
+            return "";
+        }
+
+        return " (blocks cached: " + tablebase.getCacheHits() + ", decompressed: " + tablebase.getCacheMisses()
+                + " in " + tablebase.getDecodeTime() / 1000000 + "ms)";
+    }
+
+    /**
+     * Adds how well pondering has gone to the search statistics.
+     * @param hits The number of times the human player made the expected move.
+     * @param ponders The number of AI moves that followed a ponder search.
+     * @param savedMillis The time saved by ponder hits, in milliseconds.
+     */
+    @Override
+    public void setPonderStatistics(int hits, int ponders, long savedMillis) {
+        if(ponders > 0) {
+            this.evaluations.setText(this.evaluations.getText()
+                    + "    Ponder hits: " + hits + "/" + ponders + " (" + savedMillis + "ms saved)");
+        }
     }
 
     /**
@@ -0,0 +1,413 @@
+import org.jspecify.annotations.Nullable;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hosts many games between human players and the engine at once, over plain sockets on the loopback address. Each
+ * connection is a game, where the client plays black and the server replies to each of its moves, and is served by a
+ * virtual thread of its own. The searches for every game are shared between the engines of an {@link EnginePool}.
+ *
+ * The protocol is line-based, like {@link EngineProtocol}, and uses the same positions and moves. The server starts
+ * with "hello Checkers" and the position of a new game, then replies to these commands:
+ *
+ *   new [MS]          Starts a new game, where the engine has MS milliseconds for each move (default
+ *                     {@link Controller#TIME_BUDGETS}[1]), and replies with its position
+ *   move M            Makes a move, and replies with the engine's move as "reply M" if the game isn't over, then
+ *                     "gameover black|red" if it is over, then always the position
+ *   position          Replies with the position, as "position P"
+ *   moves             Replies with the moves that can be made, as "moves M..."
+ *   stats             Replies with the server's statistics: "stats games N active N moves N p50 MS p99 MS queued N",
+ *                     where p50 and p99 are percentiles of the time from a move arriving to the reply being sent
+ *   quit              Closes the connection
+ *
+ * A command that can't be carried out is answered with "error" and the reason.
+ *
+ * Usage: GameServer [options]
+ *   --port N             The port to listen on (default {@link #DEFAULT_PORT}), or 0 for any free port
+ *   --threads N          The number of engines (default all processors)
+ *   --hash MB            The size of each engine's transposition table (default {@link #DEFAULT_TABLE_SIZE})
+ *   --queue N            The most searches that can wait for an engine (default {@link #DEFAULT_QUEUE_CAPACITY})
+ *   --tablebase FILE     The tablebase to use (default {@link Tablebase#DEFAULT_FILE}, if it exists)
+ *   --book FILE          The opening book to use (default {@link OpeningBook#DEFAULT_FILE}, if it exists)
+ */
+public class GameServer implements Closeable {
+    public static final int DEFAULT_PORT = 7070;
+    public static final int DEFAULT_TABLE_SIZE = 16;
+    public static final int DEFAULT_QUEUE_CAPACITY = 1024;
+    // The longest time a game can give the engine for each move, so that one game can't hold an engine for long
+    public static final long MAXIMUM_TIME_BUDGET = 10000;
+    // How often the statistics are printed, in milliseconds
+    public static final long STATISTICS_INTERVAL = 10000;
+
+    private final EnginePool _pool;
+    private final ServerSocket _serverSocket;
+    private final ExecutorService _connections = Executors.newVirtualThreadPerTaskExecutor();
+    private final Set<Socket> _sockets = ConcurrentHashMap.newKeySet();
+    private final Thread _acceptor;
+
+    private @Nullable OpeningBook _openingBook;
+    private final Random _random = new Random();
+
+    private final LatencyHistogram _latency = new LatencyHistogram();
+    private final AtomicLong _games = new AtomicLong();
+    private final AtomicLong _moves = new AtomicLong();
+    private final AtomicInteger _active = new AtomicInteger();
+
+    /**
+     * Listens on the loopback address, but doesn't accept connections until {@link #start()}.
+     * @param pool The engines to search with, which the server doesn't close.
+     * @param port The port to listen on, or 0 for any free port.
+     * @throws IOException If the port can't be listened on.
+     */
+    public GameServer(EnginePool pool, int port) throws IOException {
+        this._pool = pool;
+        this._serverSocket = new ServerSocket(port, 0, InetAddress.getLoopbackAddress());
+        this._acceptor = Thread.ofPlatform().name("game-server").daemon().unstarted(this::_accept);
+    }
+
+    /**
+     * @param openingBook The book to take the engine's moves from before searching, or null for none.
+     */
+    public void setOpeningBook(@Nullable OpeningBook openingBook) {
+        this._openingBook = openingBook;
+    }
+
+    /**
+     * Starts accepting connections, on a thread of its own.
+     */
+    public void start() {
+        this._acceptor.start();
+    }
+
+    /**
+     * @return The port the server is listening on.
+     */
+    public int getPort() {
+        return this._serverSocket.getLocalPort();
+    }
+
+    /**
+     * @return The time from a move arriving to the reply being sent.
+     */
+    public LatencyHistogram getLatency() {
+        return this._latency;
+    }
+
+    /**
+     * @return The statistics, as sent for the stats command.
+     */
+    public String getStatistics() {
+        return String.format("stats games %d active %d moves %d p50 %.1f p99 %.1f queued %d", this._games.get(),
+                this._active.get(), this._moves.get(), this._latency.getPercentile(50),
+                this._latency.getPercentile(99), this._pool.getQueued());
+    }
+
+    /**
+     * Stops accepting connections and closes the open ones.
+     * @throws IOException If the server socket can't be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        this._serverSocket.close();
+
+        for(Socket socket: this._sockets) {
+            try {
+                socket.close();
+            }
+            catch(IOException e) {
+                // The connection's thread finishes either way
+            }
+        }
+
+        this._connections.shutdownNow();
+    }
+
+    /**
+     * Accepts connections until the server is closed, starting a virtual thread for each.
+     */
+    private void _accept() {
+        try {
+            while(true) {
+                Socket socket = this._serverSocket.accept();
+                this._sockets.add(socket);
+                this._connections.execute(() -> this._serve(socket));
+            }
+        }
+        catch(SocketException e) {
+            // Closed
+        }
+        catch(IOException e) {
+            System.err.println("Couldn't accept a connection: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Plays games over a connection until it is closed.
+     * @param socket The connection.
+     */
+    private void _serve(Socket socket) {
+        this._active.incrementAndGet();
+
+        try(socket) {
+            socket.setTcpNoDelay(true);
+
+            BufferedReader input = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            PrintWriter output = new PrintWriter(new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8)));
+            Connection connection = new Connection(output);
+
+            output.println("hello " + EngineProtocol.NAME);
+            connection.newGame(Controller.TIME_BUDGETS[1]);
+            output.flush();
+
+            String line;
+            while((line = input.readLine()) != null) {
+                boolean open = connection.handle(line);
+                output.flush();
+
+                if(!open) {
+                    break;
+                }
+            }
+        }
+        catch(IOException e) {
+            // The client went away
+        }
+        catch(InterruptedException e) {
+            // The server was closed
+        }
+        finally {
+            this._sockets.remove(socket);
+            this._active.decrementAndGet();
+        }
+    }
+
+    /**
+     * A connection's game. It is only used by the connection's thread.
+     */
+    private class Connection {
+        private final PrintWriter _output;
+        private GameSession _session;
+        private long _timeBudget;
+
+        Connection(PrintWriter output) {
+            this._output = output;
+        }
+
+        /**
+         * Carries out a single command.
+         * @param line The command.
+         * @return False if the command was quit, otherwise true.
+         * @throws InterruptedException If the thread is interrupted while the engine is searching.
+         */
+        boolean handle(String line) throws InterruptedException {
+            String[] tokens = line.trim().split("\\s+");
+
+            try {
+                switch(tokens[0]) {
+                    case "":
+                        break;
+                    case "new":
+                        this.newGame(tokens.length > 1 ? GameServer._parseTimeBudget(tokens[1]) : Controller.TIME_BUDGETS[1]);
+                        break;
+                    case "move":
+                        if(tokens.length != 2) {
+                            throw new IllegalArgumentException("Expected move <move>");
+                        }
+                        this._move(tokens[1]);
+                        break;
+                    case "position":
+                        this._sendPosition();
+                        break;
+                    case "moves":
+                        this._sendMoves();
+                        break;
+                    case "stats":
+                        this._output.println(GameServer.this.getStatistics());
+                        break;
+                    case "quit":
+                        return false;
+                    default:
+                        throw new IllegalArgumentException("Unknown command: " + tokens[0]);
+                }
+            }
+            catch(IllegalArgumentException | IllegalStateException e) {
+                this._output.println("error " + e.getMessage());
+            }
+
+            return true;
+        }
+
+        /**
+         * Starts a new game from the initial state, and sends its position.
+         * @param timeBudget The time the engine has for each move, in milliseconds.
+         */
+        void newGame(long timeBudget) {
+            this._session = new GameSession(null);
+            this._session.setOpeningBook(GameServer.this._openingBook, GameServer.this._random);
+            this._timeBudget = timeBudget;
+            GameServer.this._games.incrementAndGet();
+
+            this._sendPosition();
+        }
+
+        /**
+         * Makes the client's move and the engine's reply.
+         * @param text The client's move.
+         */
+        private void _move(String text) throws InterruptedException {
+            long start = System.nanoTime();
+
+            if(this._session.isGameOver()) {
+                throw new IllegalStateException("The game is over");
+            }
+            if(!this._session.getState().getTurn()) {
+                throw new IllegalStateException("It isn't black's turn");
+            }
+
+            this._session.submitMove(EngineProtocol.parseMove(this._session.getState(), text));
+
+            if(!this._session.isGameOver()) {
+                Move reply;
+                try {
+                    reply = this._findReply();
+                }
+                catch(IllegalStateException e) {
+                    // Take the client's move back, so it can be made again once the engines can reply
+                    this._session.undo();
+                    throw e;
+                }
+
+                this._session.submitMove(reply);
+
+                GameServer.this._moves.incrementAndGet();
+                this._output.println("reply " + EngineProtocol.formatMove(reply));
+            }
+
+            if(this._session.isGameOver()) {
+                this._output.println("gameover " + (this._session.getWinner() ? "black" : "red"));
+            }
+
+            this._sendPosition();
+            GameServer.this._latency.record(System.nanoTime() - start);
+        }
+
+        /**
+         * @return The engine's move, from the book if possible, otherwise from a search on the pool.
+         */
+        private Move _findReply() throws InterruptedException {
+            Move move = this._session.findUnsearchedMove();
+            if(move != null) {
+                return move;
+            }
+
+            try {
+                return GameServer.this._pool.search(this._session.getState(), this._timeBudget).get();
+            }
+            catch(ExecutionException e) {
+                throw new IllegalStateException("The search failed: " + e.getCause().getMessage(), e.getCause());
+            }
+        }
+
+        private void _sendPosition() {
+            this._output.println("position " + Perft.formatPosition(this._session.getState()));
+        }
+
+        private void _sendMoves() {
+            StringBuilder text = new StringBuilder("moves");
+            ArrayList<Move> moves = this._session.getLegalMoves();
+
+            for(Move move: moves) {
+                text.append(' ').append(EngineProtocol.formatMove(move));
+            }
+
+            this._output.println(text);
+        }
+    }
+
+    private static long _parseTimeBudget(String text) {
+        try {
+            long timeBudget = Long.parseLong(text);
+            if(timeBudget <= 0 || timeBudget > MAXIMUM_TIME_BUDGET) {
+                throw new IllegalArgumentException("The time budget must be from 1 to " + MAXIMUM_TIME_BUDGET + "ms");
+            }
+
+            return timeBudget;
+        }
+        catch(NumberFormatException e) {
+            throw new IllegalArgumentException("Expected a number: " + text);
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = DEFAULT_PORT;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int hash = DEFAULT_TABLE_SIZE;
+        int queue = DEFAULT_QUEUE_CAPACITY;
+        File tablebaseFile = new File(Tablebase.DEFAULT_FILE);
+        File bookFile = new File(OpeningBook.DEFAULT_FILE);
+
+        for(int i = 0; i < args.length; i++) {
+            switch(args[i]) {
+                case "--port":
+                    port = Integer.parseInt(args[++i]);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "--hash":
+                    hash = Integer.parseInt(args[++i]);
+                    break;
+                case "--queue":
+                    queue = Integer.parseInt(args[++i]);
+                    break;
+                case "--tablebase":
+                    tablebaseFile = new File(args[++i]);
+                    break;
+                case "--book":
+                    bookFile = new File(args[++i]);
+                    break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(2);
+            }
+        }
+
+        Tablebase tablebase = tablebaseFile.exists() ? Tablebase.load(tablebaseFile) : null;
+        EnginePool pool = new EnginePool(threads, hash, queue, tablebase);
+        GameServer server = new GameServer(pool, port);
+
+        if(bookFile.exists()) {
+            server.setOpeningBook(OpeningBook.load(bookFile));
+        }
+
+        server.start();
+        System.out.println("Listening on " + InetAddress.getLoopbackAddress().getHostAddress() + ":" + server.getPort()
+                + " with " + threads + " engines");
+
+        while(true) {
+            Thread.sleep(STATISTICS_INTERVAL);
+            System.out.println(server.getStatistics());
+        }
+    }
+}
@@ -0,0 +1,209 @@
+import org.jspecify.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * A game of checkers without a view, eg. for a server or a script. Unlike {@link Controller}, nothing happens in the
+ * background: moves are made when they are submitted, and the engine searches on the calling thread when it is asked
+ * for a move. Either player can be the human or the engine.
+ *
+ * A session is not thread-safe, and its engine must not be searching for anything else while the session uses it. A
+ * session without an engine only keeps track of the game, eg. for a server that searches on a pool of its own.
+ */
+public class GameSession {
+    private final @Nullable Engine _engine;
+    private final ArrayList<State> _history = new ArrayList<State>();
+    private State _state;
+    private ArrayList<Move> _legalMoves;
+
+    private OpeningBook _openingBook;
+    private Random _random = new Random();
+    private boolean _bookMove;
+
+    /**
+     * Starts a game from the initial state.
+     * @param engine The engine to choose engine moves with, or null if they are found elsewhere.
+     */
+    public GameSession(@Nullable Engine engine) {
+        this(engine, StateManager.createInitialState());
+    }
+
+    /**
+     * @param engine The engine to choose engine moves with, or null if they are found elsewhere.
+     * @param state The state to start from.
+     */
+    public GameSession(@Nullable Engine engine, State state) {
+        this._engine = engine;
+        this._setState(state);
+    }
+
+    public @Nullable Engine getEngine() {
+        return this._engine;
+    }
+
+    public State getState() {
+        return this._state;
+    }
+
+    /**
+     * @return The states before the current one, from the start of the game.
+     */
+    public ArrayList<State> getHistory() {
+        return this._history;
+    }
+
+    /**
+     * @return The moves that can be made from the current state, which must not be changed.
+     */
+    public ArrayList<Move> getLegalMoves() {
+        return this._legalMoves;
+    }
+
+    /**
+     * @return Whether the game is over, as the player whose turn it is has no moves.
+     */
+    public boolean isGameOver() {
+        return this._legalMoves.isEmpty();
+    }
+
+    /**
+     * @return The player that won, true for black.
+     * @throws IllegalStateException If the game isn't over.
+     */
+    public boolean getWinner() {
+        if(!this.isGameOver()) {
+            throw new IllegalStateException("The game isn't over");
+        }
+
+        return !this._state.getTurn();
+    }
+
+    /**
+     * @param openingBook The book to take engine moves from before searching, or null for none.
+     * @param random The source of randomness for picking book moves.
+     */
+    public void setOpeningBook(@Nullable OpeningBook openingBook, Random random) {
+        this._openingBook = openingBook;
+        this._random = random;
+    }
+
+    /**
+     * @return Whether the last move found by {@link #findEngineMove(long, long, int)} or {@link #findUnsearchedMove()}
+     *         came from the opening book.
+     */
+    public boolean isBookMove() {
+        return this._bookMove;
+    }
+
+    /**
+     * Makes a move, which may be a chain of jumps.
+     * @param move The move, see {@link CompactMove}.
+     * @return The move as a {@link Move} chain from {@link State#getSuccessors()}.
+     * @throws IllegalArgumentException If the move can't be made from the current state.
+     */
+    public Move submitMove(long move) {
+        for(Move legalMove: this._legalMoves) {
+            if(CompactMove.fromMove(legalMove) == move) {
+                this._history.add(this._state);
+                this._setState(legalMove.getNext());
+
+                return legalMove;
+            }
+        }
+
+        throw new IllegalArgumentException("Illegal move: " + CompactMove.toString(move));
+    }
+
+    /**
+     * Makes a move, which may be a chain of jumps.
+     * @param move The last step of the move, made from the current state.
+     * @return The move as a {@link Move} chain from {@link State#getSuccessors()}.
+     * @throws IllegalArgumentException If the move can't be made from the current state.
+     */
+    public Move submitMove(Move move) {
+        if(!move.getFirstMove().getCurrent().equals(this._state)) {
+            throw new IllegalArgumentException("The move isn't made from the current state");
+        }
+
+        return this.submitMove(CompactMove.fromMove(move));
+    }
+
+    /**
+     * Chooses a move for the player whose turn it is, without making it. The opening book is used if it has the
+     * state, and a state with only one move isn't searched.
+     * @param timeBudget The time to search for, in milliseconds.
+     * @param nodeBudget The most evaluations to use, or 0 for no limit beyond the time budget.
+     * @param depthLimit The deepest iteration to search.
+     * @return The move.
+     * @throws IllegalStateException If the game is over, or the state needs searching and the session has no engine.
+     */
+    public Move findEngineMove(long timeBudget, long nodeBudget, int depthLimit) {
+        Move move = this.findUnsearchedMove();
+        if(move != null) {
+            return move;
+        }
+
+        if(this._engine == null) {
+            throw new IllegalStateException("The session has no engine to search with");
+        }
+
+        return this._engine.search(this._state, timeBudget, nodeBudget, depthLimit);
+    }
+
+    /**
+     * Chooses a move for the player whose turn it is without searching, if the state has only one move or the opening
+     * book has it.
+     * @return The move, or null if the state needs searching.
+     * @throws IllegalStateException If the game is over.
+     */
+    public @Nullable Move findUnsearchedMove() {
+        if(this.isGameOver()) {
+            throw new IllegalStateException("The game is over");
+        }
+
+        this._bookMove = false;
+
+        if(this._legalMoves.size() == 1) {
+            return this._legalMoves.get(0);
+        }
+
+        if(this._openingBook != null) {
+            Move move = this._openingBook.findMove(this._state, this._random);
+
+            if(move != null) {
+                this._bookMove = true;
+                return move;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Chooses a move for the player whose turn it is, and makes it.
+     * @see #findEngineMove(long, long, int)
+     */
+    public Move playEngineMove(long timeBudget, long nodeBudget, int depthLimit) {
+        return this.submitMove(this.findEngineMove(timeBudget, nodeBudget, depthLimit));
+    }
+
+    /**
+     * Takes back the last move.
+     * @return Whether there was a move to take back.
+     */
+    public boolean undo() {
+        if(this._history.isEmpty()) {
+            return false;
+        }
+
+        this._setState(this._history.remove(this._history.size() - 1));
+
+        return true;
+    }
+
+    private void _setState(State state) {
+        this._state = state;
+        this._legalMoves = state.getSuccessors();
+    }
+}
@@ -0,0 +1,74 @@
+import java.util.ArrayList;
+
+/**
+ * What the {@link Controller} shows the game on, eg. the JavaFX {@link GUI}. The controller only talks to its view
+ * through this interface, so it can run without JavaFX, eg. with a view that records what happens in a test.
+ *
+ * The controller calls these methods on the thread that made the change, except for those it passes to
+ * {@link #runLater(Runnable)} from the AI's thread.
+ */
+public interface GameView {
+    /**
+     * Shows a new game.
+     * @param state The initial state.
+     * @param reset Whether this is a reset ("New game") rather than the first game.
+     * @param controller The controller.
+     */
+    void setup(State state, boolean reset, Controller controller);
+
+    /**
+     * Shows a state and the moves the human player can make from it.
+     * @param state The state to show.
+     * @param successors The moves to offer, which is empty while the AI is choosing its move.
+     * @param controller The controller.
+     */
+    void render(State state, ArrayList<Move> successors, Controller controller);
+
+    /**
+     * Shows that a turn has ended.
+     * @param newState The state after the turn.
+     * @param previousState The state before the last step of the turn.
+     * @param controller The controller.
+     */
+    void endOfTurn(State newState, State previousState, Controller controller);
+
+    /**
+     * Shows that the game is over. The player whose turn it is in {@code winningState} has lost.
+     * @param winningState The final state.
+     * @param previousState The state before it.
+     * @param controller The controller.
+     */
+    void gameOver(State winningState, State previousState, Controller controller);
+
+    /**
+     * Shows the progress of the AI's running search.
+     * @param depth The depth of the last completed iteration.
+     * @param evaluations The number of evaluations made so far.
+     */
+    void setSearchProgress(int depth, long evaluations);
+
+    /**
+     * Shows how the engine's last search went.
+     * @param engine The engine.
+     */
+    void setSearchStatistics(Engine engine);
+
+    /**
+     * Shows that the AI's last move was taken from the opening book, without searching.
+     */
+    void setBookMove();
+
+    /**
+     * Shows how well pondering has gone, after the search statistics.
+     * @param hits The number of times the human player made the expected move.
+     * @param ponders The number of AI moves that followed a ponder search.
+     * @param savedMillis The time saved by ponder hits, in milliseconds.
+     */
+    void setPonderStatistics(int hits, int ponders, long savedMillis);
+
+    /**
+     * Runs {@code runnable} on the thread that the view must be changed from, eg. the JavaFX thread.
+     * @param runnable The code to run.
+     */
+    void runLater(Runnable runnable);
+}
@@ -0,0 +1,89 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts latencies in buckets of microseconds, so that percentiles can be read while other threads are still
+ * recording without keeping every sample or locking. Latencies under 32µs have a bucket each, and above that each power
+ * of two is split into 32 buckets, so a percentile is within about 3% of the true value.
+ */
+public class LatencyHistogram {
+    // The number of buckets each power of two is split into, which must be a power of two
+    private static final int SUB_BUCKETS = 32;
+    private static final int SUB_BUCKET_BITS = Integer.numberOfTrailingZeros(SUB_BUCKETS);
+
+    private final AtomicLongArray _counts = new AtomicLongArray((Long.SIZE - SUB_BUCKET_BITS + 1) * SUB_BUCKETS);
+
+    /**
+     * @param nanos A latency, in nanoseconds.
+     */
+    public void record(long nanos) {
+        this._counts.incrementAndGet(LatencyHistogram._getBucket(Math.max(0, nanos / 1000)));
+    }
+
+    /**
+     * @return The number of latencies recorded.
+     */
+    public long getCount() {
+        long count = 0;
+        for(int i = 0; i < this._counts.length(); i++) {
+            count += this._counts.get(i);
+        }
+
+        return count;
+    }
+
+    /**
+     * @param percentile The percentile, from 0 to 100, eg. 50 for the median.
+     * @return The latency that the percentile of recorded latencies are at or under, in milliseconds, or 0 if none
+     *         have been recorded.
+     */
+    public double getPercentile(double percentile) {
+        long count = this.getCount();
+        if(count == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+
+        for(int i = 0; i < this._counts.length(); i++) {
+            seen += this._counts.get(i);
+
+            // The middle of the bucket
+            if(seen >= rank) {
+                return (LatencyHistogram._getLowerBound(i) + LatencyHistogram._getLowerBound(i + 1) - 1) / 2.0 / 1000;
+            }
+        }
+
+        // Latencies recorded since the count was taken
+        return LatencyHistogram._getLowerBound(this._counts.length()) / 1000.0;
+    }
+
+    /**
+     * Forgets every recorded latency, eg. after warming up. Latencies recorded at the same time may or may not be kept.
+     */
+    public void clear() {
+        for(int i = 0; i < this._counts.length(); i++) {
+            this._counts.set(i, 0);
+        }
+    }
+
+    private static int _getBucket(long micros) {
+        if(micros < SUB_BUCKETS) {
+            return (int) micros;
+        }
+
+        // The top SUB_BUCKET_BITS + 1 bits give the bucket: the highest picks the power of two, and the rest the bucket
+        // within it
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(micros);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + (int) ((micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1));
+    }
+
+    private static long _getLowerBound(int bucket) {
+        if(bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        return (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << (exponent - SUB_BUCKET_BITS);
+    }
+}
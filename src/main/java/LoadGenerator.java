@@ -0,0 +1,255 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Plays many games against a {@link GameServer} at once to measure how long the server takes to reply to a move.
+ * Each client is a virtual thread with a connection of its own, that makes random moves and starts a new game whenever
+ * one ends. At the end, the clients' latencies are printed along with the server's own statistics.
+ *
+ * Usage: LoadGenerator [options]
+ *   -c, --clients N      The number of games to play at once (default 64)
+ *   -d, --duration S     How long to play for, in seconds (default 30)
+ *   -t, --time MS        The engine's time for each move (default 100)
+ *   --think MS           How long each client waits before each move (default 0)
+ *   --host HOST          The server's host (default the loopback address)
+ *   --port N             The server's port, or none to start a server in this process with an engine per processor
+ */
+public class LoadGenerator {
+    private final String _host;
+    private final int _port;
+    private final long _timeBudget;
+    private final long _thinkTime;
+
+    private final LatencyHistogram _latency = new LatencyHistogram();
+    private final AtomicLong _games = new AtomicLong();
+    private final AtomicLong _moves = new AtomicLong();
+    private final AtomicLong _errors = new AtomicLong();
+    private volatile boolean _stopped;
+
+    /**
+     * @param host The server's host.
+     * @param port The server's port.
+     * @param timeBudget The engine's time for each move, in milliseconds.
+     * @param thinkTime How long each client waits before each move, in milliseconds.
+     */
+    public LoadGenerator(String host, int port, long timeBudget, long thinkTime) {
+        this._host = host;
+        this._port = port;
+        this._timeBudget = timeBudget;
+        this._thinkTime = thinkTime;
+    }
+
+    /**
+     * Plays games until the duration is up, then waits for each client to finish its move.
+     * @param clients The number of games to play at once.
+     * @param duration How long to play for, in milliseconds.
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    public void run(int clients, long duration) throws InterruptedException {
+        ArrayList<Thread> threads = new ArrayList<Thread>();
+        for(int i = 0; i < clients; i++) {
+            threads.add(Thread.ofVirtual().name("client-" + i).start(this::_play));
+        }
+
+        Thread.sleep(duration);
+        this._stopped = true;
+
+        for(Thread thread: threads) {
+            thread.join();
+        }
+    }
+
+    /**
+     * @return The time from sending a move to receiving the position after the reply, as measured by the clients.
+     */
+    public LatencyHistogram getLatency() {
+        return this._latency;
+    }
+
+    public long getGames() {
+        return this._games.get();
+    }
+
+    public long getMoves() {
+        return this._moves.get();
+    }
+
+    /**
+     * @return The number of clients that stopped early, as the connection failed or the server sent an error.
+     */
+    public long getErrors() {
+        return this._errors.get();
+    }
+
+    /**
+     * Asks the server for its statistics on a connection of its own.
+     * @return The statistics, as described in {@link GameServer}.
+     * @throws IOException If the server can't be reached.
+     */
+    public String getServerStatistics() throws IOException {
+        try(Socket socket = new Socket(this._host, this._port)) {
+            BufferedReader input = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            PrintWriter output = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.UTF_8);
+
+            output.println("stats");
+            output.println("quit");
+
+            String line;
+            while((line = input.readLine()) != null) {
+                if(line.startsWith("stats ")) {
+                    return line;
+                }
+            }
+
+            throw new IOException("The server closed the connection");
+        }
+    }
+
+    /**
+     * Plays random moves on one connection until the duration is up.
+     */
+    private void _play() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        try(Socket socket = new Socket(this._host, this._port)) {
+            socket.setTcpNoDelay(true);
+
+            BufferedReader input = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            PrintWriter output = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.UTF_8);
+
+            // The server starts a game with its own time budget, so this one is started again with ours
+            LoadGenerator._readPosition(input);
+            output.println("new " + this._timeBudget);
+            State state = LoadGenerator._readPosition(input);
+            this._games.incrementAndGet();
+
+            while(!this._stopped) {
+                ArrayList<Move> moves = state.getSuccessors();
+
+                if(moves.isEmpty()) {
+                    output.println("new " + this._timeBudget);
+                    state = LoadGenerator._readPosition(input);
+                    this._games.incrementAndGet();
+                    continue;
+                }
+
+                if(this._thinkTime > 0) {
+                    Thread.sleep(this._thinkTime);
+                }
+
+                long start = System.nanoTime();
+                output.println("move " + EngineProtocol.formatMove(moves.get(random.nextInt(moves.size()))));
+                state = LoadGenerator._readPosition(input);
+
+                this._latency.record(System.nanoTime() - start);
+                this._moves.incrementAndGet();
+            }
+
+            output.println("quit");
+        }
+        catch(IOException | IllegalStateException e) {
+            if(!this._stopped) {
+                System.err.println(Thread.currentThread().getName() + ": " + e.getMessage());
+            }
+            this._errors.incrementAndGet();
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Reads lines until the server sends a position, skipping its replies and game overs.
+     * @param input The connection's input.
+     * @return The position.
+     * @throws IOException If the connection is closed first.
+     * @throws IllegalStateException If the server sends an error.
+     */
+    private static State _readPosition(BufferedReader input) throws IOException {
+        String line;
+        while((line = input.readLine()) != null) {
+            if(line.startsWith("position ")) {
+                return Perft.parsePosition(line.substring("position ".length()));
+            }
+            if(line.startsWith("error ")) {
+                throw new IllegalStateException("The server sent " + line);
+            }
+        }
+
+        throw new IOException("The server closed the connection");
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int clients = 64;
+        long duration = 30;
+        long timeBudget = 100;
+        long thinkTime = 0;
+        String host = InetAddress.getLoopbackAddress().getHostAddress();
+        int port = -1;
+
+        for(int i = 0; i < args.length; i++) {
+            switch(args[i]) {
+                case "-c":
+                case "--clients":
+                    clients = Integer.parseInt(args[++i]);
+                    break;
+                case "-d":
+                case "--duration":
+                    duration = Long.parseLong(args[++i]);
+                    break;
+                case "-t":
+                case "--time":
+                    timeBudget = Long.parseLong(args[++i]);
+                    break;
+                case "--think":
+                    thinkTime = Long.parseLong(args[++i]);
+                    break;
+                case "--host":
+                    host = args[++i];
+                    break;
+                case "--port":
+                    port = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(2);
+            }
+        }
+
+        EnginePool pool = null;
+        GameServer server = null;
+
+        if(port < 0) {
+            int threads = Runtime.getRuntime().availableProcessors();
+            pool = new EnginePool(threads, GameServer.DEFAULT_TABLE_SIZE, GameServer.DEFAULT_QUEUE_CAPACITY, null);
+            server = new GameServer(pool, 0);
+            server.start();
+            port = server.getPort();
+            System.out.println("Started a server on port " + port + " with " + threads + " engines");
+        }
+
+        System.out.printf("%d clients for %ds, %dms per move%n", clients, duration, timeBudget);
+
+        LoadGenerator generator = new LoadGenerator(host, port, timeBudget, thinkTime);
+        generator.run(clients, duration * 1000);
+
+        System.out.printf("Client: %d games, %d moves (%.1f moves/s), %d errors%n", generator.getGames(),
+                generator.getMoves(), generator.getMoves() / (double) duration, generator.getErrors());
+        System.out.printf("Client latency: p50 %.1fms, p99 %.1fms%n", generator.getLatency().getPercentile(50),
+                generator.getLatency().getPercentile(99));
+        System.out.println("Server: " + generator.getServerStatistics());
+
+        if(server != null) {
+            server.close();
+            pool.close();
+        }
+    }
+}
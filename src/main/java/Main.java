@@ -4,6 +4,9 @@ import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
 
+import java.io.File;
+import java.io.IOException;
+
 public class Main extends Application {
     @Override
     public void start(Stage primaryStage) throws Exception {
@@ -19,6 +22,29 @@ public class Main extends Application {
 
         StateManager stateManager = new StateManager();
         Controller controller = new Controller(gui, stateManager);
+
+        // Endgames are looked up in the tablebase, if one has been made with TablebaseGenerator
+        File tablebaseFile = new File(Tablebase.DEFAULT_FILE);
+        if(tablebaseFile.exists()) {
+            try {
+                controller.setTablebase(Tablebase.load(tablebaseFile));
+            }
+            catch(IOException e) {
+                System.err.println("The tablebase couldn't be loaded: " + e.getMessage());
+            }
+        }
+
+        // Opening moves are looked up in the book, if one has been made with OpeningBookBuilder
+        File bookFile = new File(OpeningBook.DEFAULT_FILE);
+        if(bookFile.exists()) {
+            try {
+                controller.setOpeningBook(OpeningBook.load(bookFile));
+            }
+            catch(IOException e) {
+                System.err.println("The opening book couldn't be loaded: " + e.getMessage());
+            }
+        }
+
         controller.setup(false);
     }
 
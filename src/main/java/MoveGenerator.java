@@ -0,0 +1,261 @@
+import java.util.ArrayList;
+
+/**
+ * Generates the moves for a state using the masks and tables in {@link BitBoard}. Jumps are found first, and as they
+ * are forced, regular moves are only generated when there are none.
+ */
+public class MoveGenerator {
+    /**
+     * Returns the list of Moves for {@code state}, in the same form as {@link State#getSuccessors()}. Each move
+     * contains a current and next state, multi-step jumps are linked through their previous moves.
+     * @param state The state to generate moves for.
+     * @return A list of Moves.
+     */
+    public static ArrayList<Move> getSuccessors(State state) {
+        ArrayList<Move> moves = new ArrayList<Move>();
+        boolean turn = state.getTurn();
+        int own = turn ? state.getBlack() : state.getRed();
+        int enemy = turn ? state.getRed() : state.getBlack();
+
+        int jumpers = BitBoard.getJumpers(own, enemy, state.getKings(), turn);
+
+        if(jumpers != 0) {
+            while(jumpers != 0) {
+                int square = Integer.numberOfTrailingZeros(jumpers);
+                jumpers &= jumpers - 1;
+
+                MoveGenerator._addJumps(state, square, (state.getKings() & (1 << square)) != 0, turn, null, moves);
+            }
+        }
+        else {
+            int movers = BitBoard.getMovers(own, enemy, state.getKings(), turn);
+
+            while(movers != 0) {
+                int square = Integer.numberOfTrailingZeros(movers);
+                movers &= movers - 1;
+
+                MoveGenerator._addMoves(state, square, turn, moves);
+            }
+        }
+
+        return moves;
+    }
+
+    /**
+     * Adds the regular moves of the piece on {@code square}.
+     * @param state The state representation.
+     * @param square The square of the piece to move.
+     * @param turn The turn of the state.
+     * @param moves The list to add the moves to.
+     */
+    private static void _addMoves(State state, int square, boolean turn, ArrayList<Move> moves) {
+        int empty = ~(state.getRed() | state.getBlack());
+        boolean isKing = (state.getKings() & (1 << square)) != 0;
+
+        for(int direction = 0; direction < 4; direction++) {
+            int to = BitBoard.NEIGHBOURS[direction][square];
+
+            if(to < 0 || (empty & (1 << to)) == 0 || !(isKing || BitBoard.isUpwards(direction) == turn)) {
+                continue;
+            }
+
+            boolean becomesKing = isKing || (BitBoard.getKingRow(turn) & (1 << to)) != 0;
+            State next = MoveGenerator._createNextState(state, square, to, 0, becomesKing, turn, !turn);
+
+            Move move = new Move(state, next, null);
+            move.setIsEndMove(true);
+            moves.add(move);
+        }
+    }
+
+    /**
+     * Adds every jump path that the piece on {@code square} can take. Only the final step of each path is added to
+     * {@code moves}, earlier steps are reachable through {@link Move#getPreviousMove()}.
+     * @param state The state representation.
+     * @param square The square of the jumping piece.
+     * @param isKing Whether the jumping piece is a king.
+     * @param turn The turn of the original state.
+     * @param previousMove Optional previous move to connect multi-step jumps.
+     * @param moves The list to add the moves to.
+     */
+    private static void _addJumps(State state, int square, boolean isKing, boolean turn, Move previousMove, ArrayList<Move> moves) {
+        int enemy = turn ? state.getRed() : state.getBlack();
+        int empty = ~(state.getRed() | state.getBlack());
+
+        for(int direction = 0; direction < 4; direction++) {
+            int over = BitBoard.NEIGHBOURS[direction][square];
+            int to = BitBoard.JUMPS[direction][square];
+
+            if(to < 0 || (enemy & (1 << over)) == 0 || (empty & (1 << to)) == 0
+                    || !(isKing || BitBoard.isUpwards(direction) == turn)) {
+                continue;
+            }
+
+            // A piece that is made king part way through a jump carries on jumping as a king
+            boolean becomesKing = isKing || (BitBoard.getKingRow(turn) & (1 << to)) != 0;
+            State next = MoveGenerator._createNextState(state, square, to, 1 << over, becomesKing, turn, turn);
+
+            Move move = new Move(state, next, previousMove);
+            int count = moves.size();
+            MoveGenerator._addJumps(next, to, becomesKing, turn, move, moves);
+
+            // If there were no following jumps, then this is a complete move and ends the turn
+            if(moves.size() == count) {
+                next.setTurn(!turn);
+                move.setIsEndMove(true);
+                moves.add(move);
+            }
+        }
+    }
+
+    /**
+     * Adds the moves for the given board to {@code moves} without creating any states, in the same order as
+     * {@link #getSuccessors(State)}. This is what the search uses.
+     * @param red Mask of the red pieces.
+     * @param black Mask of the black pieces.
+     * @param kings Mask of the king pieces.
+     * @param turn The turn, true for black.
+     * @param moves The list to fill, it is cleared first.
+     */
+    public static void generate(int red, int black, int kings, boolean turn, MoveList moves) {
+        moves.clear();
+        MoveGenerator.generateCaptures(red, black, kings, turn, moves);
+
+        if(moves.size() == 0) {
+            MoveGenerator.generateQuietMoves(red, black, kings, turn, moves);
+        }
+    }
+
+    /**
+     * Adds every complete jump for the given board to {@code moves}.
+     * @param red Mask of the red pieces.
+     * @param black Mask of the black pieces.
+     * @param kings Mask of the king pieces.
+     * @param turn The turn, true for black.
+     * @param moves The list to add to.
+     */
+    public static void generateCaptures(int red, int black, int kings, boolean turn, MoveList moves) {
+        int own = turn ? black : red;
+        int enemy = turn ? red : black;
+        int jumpers = BitBoard.getJumpers(own, enemy, kings, turn);
+
+        while(jumpers != 0) {
+            int square = Integer.numberOfTrailingZeros(jumpers);
+            jumpers &= jumpers - 1;
+
+            MoveGenerator._addJumps(square, square, red | black, enemy, (kings & (1 << square)) != 0, turn, 0, false, moves);
+        }
+    }
+
+    /**
+     * Adds every move that isn't a jump for the given board to {@code moves}. These are only legal when there are no
+     * jumps.
+     * @param red Mask of the red pieces.
+     * @param black Mask of the black pieces.
+     * @param kings Mask of the king pieces.
+     * @param turn The turn, true for black.
+     * @param moves The list to add to.
+     */
+    public static void generateQuietMoves(int red, int black, int kings, boolean turn, MoveList moves) {
+        int own = turn ? black : red;
+        int enemy = turn ? red : black;
+        int empty = ~(red | black);
+        int movers = BitBoard.getMovers(own, enemy, kings, turn);
+
+        while(movers != 0) {
+            int square = Integer.numberOfTrailingZeros(movers);
+            movers &= movers - 1;
+            boolean isKing = (kings & (1 << square)) != 0;
+
+            for(int direction = 0; direction < 4; direction++) {
+                int to = BitBoard.NEIGHBOURS[direction][square];
+
+                if(to >= 0 && (empty & (1 << to)) != 0 && (isKing || BitBoard.isUpwards(direction) == turn)) {
+                    moves.add(square, to, 0, !isKing && (BitBoard.getKingRow(turn) & (1 << to)) != 0);
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds every complete jump path that continues from {@code square}, tracking the board as the piece moves rather
+     * than creating a state for each step.
+     * @param start The square the piece started the move on.
+     * @param square The square the piece is currently on.
+     * @param occupied Mask of all pieces, with the jumping piece on {@code square}.
+     * @param enemy Mask of the opponent's pieces that haven't yet been captured.
+     * @param isKing Whether the jumping piece is currently a king.
+     * @param turn The turn, true for black.
+     * @param captured Mask of the pieces captured so far.
+     * @param promotion Whether the piece has been made a king so far.
+     * @param moves The list to add the moves to.
+     */
+    private static void _addJumps(int start, int square, int occupied, int enemy, boolean isKing, boolean turn, int captured, boolean promotion, MoveList moves) {
+        for(int direction = 0; direction < 4; direction++) {
+            int over = BitBoard.NEIGHBOURS[direction][square];
+            int to = BitBoard.JUMPS[direction][square];
+
+            if(to < 0 || (enemy & (1 << over)) == 0 || (occupied & (1 << to)) != 0
+                    || !(isKing || BitBoard.isUpwards(direction) == turn)) {
+                continue;
+            }
+
+            boolean becomesKing = !isKing && (BitBoard.getKingRow(turn) & (1 << to)) != 0;
+            int count = moves.size();
+
+            MoveGenerator._addJumps(start, to, (occupied & ~((1 << square) | (1 << over))) | (1 << to), enemy & ~(1 << over),
+                    isKing || becomesKing, turn, captured | (1 << over), promotion || becomesKing, moves);
+
+            // If there were no following jumps, then this is a complete move
+            if(moves.size() == count) {
+                moves.add(start, to, captured | (1 << over), promotion || becomesKing);
+            }
+        }
+    }
+
+    /**
+     * Creates the state after a single step, where the piece on {@code from} moves to {@code to} and any pieces in
+     * {@code captured} are removed.
+     * @param state The state before the step.
+     * @param from The square the piece moves from.
+     * @param to The square the piece moves to.
+     * @param captured Mask of the captured pieces.
+     * @param isKing Whether the piece is a king after the step.
+     * @param turn The turn of the player who is moving.
+     * @param nextTurn The turn of the new state.
+     * @return The new state.
+     */
+    private static State _createNextState(State state, int from, int to, int captured, boolean isKing, boolean turn, boolean nextTurn) {
+        int fromMask = 1 << from;
+        int toMask = 1 << to;
+
+        int red = state.getRed();
+        int black = state.getBlack();
+
+        if(turn) {
+            black = (black & ~fromMask) | toMask;
+            red &= ~captured;
+        }
+        else {
+            red = (red & ~fromMask) | toMask;
+            black &= ~captured;
+        }
+
+        int kings = state.getKings() & ~(fromMask | captured);
+        if(isKing) {
+            kings |= toMask;
+        }
+
+        // Update the hash for only the squares that changed
+        long hash = state.getHash()
+                ^ Zobrist.getPieceKey(!turn, (state.getKings() & fromMask) != 0, from)
+                ^ Zobrist.getPieceKey(!turn, isKing, to)
+                ^ Zobrist.getPiecesKey(captured, turn, state.getKings());
+
+        if(nextTurn != state.getTurn()) {
+            hash ^= Zobrist.TURN;
+        }
+
+        return new State(state, from, to, captured, red, black, kings, nextTurn, hash);
+    }
+}
@@ -0,0 +1,59 @@
+/**
+ * A reusable buffer of moves for one ply of the search, each encoded as a long by {@link CompactMove}.
+ */
+public class MoveList {
+    // More than enough for any reachable position
+    public static final int CAPACITY = 256;
+
+    private final long[] _moves = new long[CAPACITY];
+    private final int[] _scores = new int[CAPACITY];
+    private int _size;
+
+    public void clear() {
+        this._size = 0;
+    }
+
+    public void add(int from, int to, int captured, boolean promotion) {
+        this._moves[this._size++] = CompactMove.encode(from, to, captured, promotion);
+    }
+
+    public int size() {
+        return this._size;
+    }
+
+    public long get(int index) {
+        return this._moves[index];
+    }
+
+    public int getScore(int index) {
+        return this._scores[index];
+    }
+
+    public void setScore(int index, int score) {
+        this._scores[index] = score;
+    }
+
+    /**
+     * Moves the highest scoring move from {@code index} onwards into {@code index}. Picking moves one at a time is
+     * cheaper than sorting the whole list when the search only visits the first few before a cutoff.
+     * @param index The position to fill.
+     * @return The move now at {@code index}.
+     */
+    public long pickBest(int index) {
+        int best = index;
+        for(int i = index + 1; i < this._size; i++) {
+            if(this._scores[i] > this._scores[best]) {
+                best = i;
+            }
+        }
+
+        long move = this._moves[best];
+        int score = this._scores[best];
+        this._moves[best] = this._moves[index];
+        this._scores[best] = this._scores[index];
+        this._moves[index] = move;
+        this._scores[index] = score;
+
+        return move;
+    }
+}
@@ -0,0 +1,109 @@
+import java.util.Arrays;
+
+/**
+ * Scores moves so that the search visits the ones most likely to cause a cutoff first. In order these are: the best
+ * move stored for the state, captures (longer chains first), promotions, the two killer moves for the ply (quiet
+ * moves that recently caused a cutoff at the same depth in a sibling) and then the remaining quiet moves by their
+ * history score (how often and how deep they have caused cutoffs anywhere in the tree).
+ *
+ * Each search thread has its own ordering, as killers and history are updated on every cutoff.
+ */
+public class MoveOrdering {
+    private static final int BEST_MOVE_SCORE = 1 << 30;
+    private static final int CAPTURE_SCORE = 1 << 28;
+    private static final int PROMOTION_SCORE = 1 << 27;
+    private static final int KILLER_SCORE = 1 << 26;
+
+    // History scores are halved when one reaches this, so that they stay below the killer score and recent cutoffs
+    // count for more than old ones
+    private static final int MAX_HISTORY = 1 << 24;
+
+    private final long[][] _killers = new long[SearchBoard.MAX_PLY][2];
+    private final int[][] _history = new int[BitBoard.SQUARES][BitBoard.SQUARES];
+
+    public MoveOrdering() {
+        this.clear();
+    }
+
+    /**
+     * Forgets all killer moves and history.
+     */
+    public void clear() {
+        for(long[] killers: this._killers) {
+            killers[0] = CompactMove.NONE;
+            killers[1] = CompactMove.NONE;
+        }
+
+        for(int[] history: this._history) {
+            Arrays.fill(history, 0);
+        }
+    }
+
+    /**
+     * Scores every move in {@code moves}, ready for {@link MoveList#pickBest(int)}.
+     * @param moves The moves to score.
+     * @param ply The ply the moves are made at.
+     * @param bestMove The key of the best move stored for the state (see {@link CompactMove#getKey(long)}), or -1.
+     */
+    public void score(MoveList moves, int ply, int bestMove) {
+        long[] killers = this._killers[ply];
+
+        for(int i = 0; i < moves.size(); i++) {
+            long move = moves.get(i);
+            int captured = CompactMove.getCaptured(move);
+            int score;
+
+            if(CompactMove.getKey(move) == bestMove) {
+                score = BEST_MOVE_SCORE;
+            }
+            else if(captured != 0) {
+                score = CAPTURE_SCORE + (Integer.bitCount(captured) << 1) + (CompactMove.isPromotion(move) ? 1 : 0);
+            }
+            else if(CompactMove.isPromotion(move)) {
+                score = PROMOTION_SCORE;
+            }
+            else if(move == killers[0]) {
+                score = KILLER_SCORE + 1;
+            }
+            else if(move == killers[1]) {
+                score = KILLER_SCORE;
+            }
+            else {
+                score = this._history[CompactMove.getFrom(move)][CompactMove.getTo(move)];
+            }
+
+            moves.setScore(i, score);
+        }
+    }
+
+    /**
+     * Records a move that caused a cutoff. Only quiet moves are kept as killers and in the history, as captures are
+     * already ordered first.
+     * @param move The move.
+     * @param ply The ply the move was made at.
+     * @param depth The remaining depth of the search at that ply.
+     */
+    public void update(long move, int ply, int depth) {
+        if(CompactMove.getCaptured(move) != 0) {
+            return;
+        }
+
+        long[] killers = this._killers[ply];
+        if(killers[0] != move) {
+            killers[1] = killers[0];
+            killers[0] = move;
+        }
+
+        int[] history = this._history[CompactMove.getFrom(move)];
+        int to = CompactMove.getTo(move);
+        history[to] += depth * depth;
+
+        if(history[to] >= MAX_HISTORY) {
+            for(int[] row: this._history) {
+                for(int i = 0; i < row.length; i++) {
+                    row[i] >>= 1;
+                }
+            }
+        }
+    }
+}
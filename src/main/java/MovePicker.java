@@ -0,0 +1,91 @@
+/**
+ * Hands out the moves of one ply of the search one at a time, generating them in stages so that no work is spent on
+ * moves the search never visits. The stored best move is tried first without generating anything, then the captures
+ * are generated and visited (longest first), and only if there are none are the quiet moves generated. Each ply of
+ * the search keeps its own picker, as a picker is reused for every state visited at its ply.
+ */
+public class MovePicker {
+    private static final int BEST_MOVE = 0;
+    private static final int CAPTURES = 1;
+    private static final int QUIET_MOVES = 2;
+    private static final int PICK = 3;
+
+    private final MoveList _moves = new MoveList();
+    private final MoveOrdering _ordering;
+
+    private SearchBoard _board;
+    private int _ply;
+    private int _bestMoveKey;
+    private long _bestMove;
+    private int _stage;
+    private int _index;
+
+    /**
+     * @param ordering The ordering to score generated moves with.
+     */
+    public MovePicker(MoveOrdering ordering) {
+        this._ordering = ordering;
+    }
+
+    /**
+     * Starts picking moves for the current state of {@code board}.
+     * @param board The board.
+     * @param bestMoveKey The key of the best move stored for the state (see {@link CompactMove#getKey(long)}), or -1.
+     */
+    public void reset(SearchBoard board, int bestMoveKey) {
+        this._board = board;
+        this._ply = board.getPly();
+        this._bestMoveKey = bestMoveKey;
+        this._bestMove = CompactMove.NONE;
+        this._stage = BEST_MOVE;
+    }
+
+    /**
+     * @return The next move to visit, or {@link CompactMove#NONE} once every move has been given.
+     */
+    public long next() {
+        while(true) {
+            switch(this._stage) {
+                case BEST_MOVE:
+                    this._stage = CAPTURES;
+
+                    // A quiet move is fully described by its key, so it can be checked and tried straight away. A
+                    // capture also needs the captured pieces, so the ordering puts it first in the next stage instead.
+                    if(this._bestMoveKey >= 0 && (this._bestMoveKey >>> 11) == 0
+                            && this._board.isQuietMoveLegal(this._bestMoveKey)) {
+                        this._bestMove = this._bestMoveKey;
+                        return this._bestMove;
+                    }
+                    break;
+
+                case CAPTURES:
+                    this._moves.clear();
+                    this._index = 0;
+                    this._board.generateCaptures(this._moves);
+
+                    // Captures are forced, so if there are any then there are no quiet moves to generate
+                    this._stage = this._moves.size() == 0 ? QUIET_MOVES : PICK;
+                    this._ordering.score(this._moves, this._ply, this._bestMoveKey);
+                    break;
+
+                case QUIET_MOVES:
+                    this._board.generateQuietMoves(this._moves);
+                    this._ordering.score(this._moves, this._ply, this._bestMoveKey);
+                    this._stage = PICK;
+                    break;
+
+                default:
+                    while(this._index < this._moves.size()) {
+                        long move = this._moves.pickBest(this._index++);
+
+                        // The best move has already been visited
+                        if(move != this._bestMove) {
+                            return move;
+                        }
+                    }
+
+                    return CompactMove.NONE;
+            }
+        }
+    }
+}
@@ -0,0 +1,231 @@
+import org.jspecify.annotations.Nullable;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Random;
+
+/**
+ * Moves for well-known opening positions, worked out ahead of time by {@link OpeningBookBuilder} so that they don't
+ * need to be searched during a game.
+ *
+ * The file is a header followed by fixed-size entries, each holding a state's hash, one of its moves and a weight.
+ * Entries are sorted by hash, so a state's moves are next to each other and are found by a binary search of the file.
+ * The file is memory-mapped rather than read onto the heap, and is only read with absolute gets, so any number of
+ * threads can look up moves at once.
+ */
+public class OpeningBook implements Closeable {
+    // The file to load on start up, if it exists
+    public static final String DEFAULT_FILE = "book.bin";
+
+    private static final int MAGIC = 0x434B4F42;
+    private static final int VERSION = 1;
+
+    // The magic number, version and number of entries
+    private static final int HEADER_BYTES = 4 + 4 + 4;
+    // The state's hash, the encoded move and its weight
+    private static final int ENTRY_BYTES = 8 + 8 + 4;
+
+    private final FileChannel _channel;
+    private final ByteBuffer _entries;
+    private final int _size;
+
+    private OpeningBook(FileChannel channel, ByteBuffer entries, int size) {
+        this._channel = channel;
+        this._entries = entries;
+        this._size = size;
+    }
+
+    /**
+     * @return The number of moves in the book.
+     */
+    public int getSize() {
+        return this._size;
+    }
+
+    /**
+     * Picks one of the book's moves for {@code state} at random, in proportion to their weights, so that the AI
+     * doesn't play the same game every time.
+     * @param state The state to move from.
+     * @param random The source of randomness.
+     * @return The move, or null if the state isn't in the book.
+     */
+    @Nullable
+    public Move findMove(State state, Random random) {
+        ArrayList<Move> successors = state.getSuccessors();
+        int[] weights = new int[successors.size()];
+        int total = this._getWeights(state, successors, weights);
+
+        if(total == 0) {
+            return null;
+        }
+
+        int choice = random.nextInt(total);
+        for(int i = 0; i < weights.length; i++) {
+            choice -= weights[i];
+
+            if(choice < 0) {
+                return successors.get(i);
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * @param state The state to move from.
+     * @return The weight of each of the book's moves for {@code state}, or 0 for moves that aren't in the book, in the
+     *         same order as {@link State#getSuccessors()}.
+     */
+    public int[] getWeights(State state) {
+        ArrayList<Move> successors = state.getSuccessors();
+        int[] weights = new int[successors.size()];
+        this._getWeights(state, successors, weights);
+
+        return weights;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this._channel.close();
+    }
+
+    /**
+     * Finds the weights of the book's moves for a state.
+     * @param state The state to move from.
+     * @param successors The moves of the state.
+     * @param weights Filled with the weight of each move, in the same order as {@code successors}.
+     * @return The total weight of the moves.
+     */
+    private int _getWeights(State state, ArrayList<Move> successors, int[] weights) {
+        long hash = state.getHash();
+        int total = 0;
+
+        long[] moves = new long[successors.size()];
+        for(int i = 0; i < moves.length; i++) {
+            moves[i] = CompactMove.fromMove(successors.get(i));
+        }
+
+        for(int entry = this._findFirst(hash); entry < this._size && this._getHash(entry) == hash; entry++) {
+            int position = HEADER_BYTES + entry * ENTRY_BYTES;
+            long move = this._entries.getLong(position + 8);
+            int weight = this._entries.getInt(position + 16);
+
+            // The hash could belong to a different state, so only moves that can be made from this one are used
+            for(int i = 0; i < moves.length; i++) {
+                if(moves[i] == move && weight > 0) {
+                    weights[i] = weight;
+                    total += weight;
+                }
+            }
+        }
+
+        return total;
+    }
+
+    /**
+     * @param hash The hash of a state.
+     * @return The index of the first entry with a hash that isn't less than {@code hash}.
+     */
+    private int _findFirst(long hash) {
+        int low = 0;
+        int high = this._size;
+
+        while(low < high) {
+            int middle = (low + high) >>> 1;
+
+            if(this._getHash(middle) < hash) {
+                low = middle + 1;
+            }
+            else {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+    private long _getHash(int index) {
+        return this._entries.getLong(HEADER_BYTES + index * ENTRY_BYTES);
+    }
+
+    /**
+     * Maps a book written by {@link #save(File, ArrayList)}.
+     * @param file The file.
+     * @return The book.
+     * @throws IOException If the file can't be read or isn't an opening book.
+     */
+    public static OpeningBook load(File file) throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+
+        try {
+            ByteBuffer entries = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            if(entries.limit() < HEADER_BYTES || entries.getInt(0) != MAGIC || entries.getInt(4) != VERSION) {
+                throw new IOException(file + " is not an opening book");
+            }
+
+            int size = entries.getInt(8);
+            if(entries.limit() != HEADER_BYTES + (long) size * ENTRY_BYTES) {
+                throw new IOException(file + " is truncated");
+            }
+
+            return new OpeningBook(channel, entries, size);
+        }
+        catch(IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Writes a book, sorting its entries by hash.
+     * @param file The file.
+     * @param entries The entries.
+     * @throws IOException If the file can't be written.
+     */
+    public static void save(File file, ArrayList<Entry> entries) throws IOException {
+        ArrayList<Entry> sorted = new ArrayList<Entry>(entries);
+        sorted.sort(Comparator.comparingLong((Entry entry) -> entry.hash).thenComparing(entry -> -entry.weight));
+
+        try(DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeInt(sorted.size());
+
+            for(Entry entry: sorted) {
+                output.writeLong(entry.hash);
+                output.writeLong(entry.move);
+                output.writeInt(entry.weight);
+            }
+        }
+    }
+
+    /**
+     * A move of the book, see {@link CompactMove}.
+     */
+    public static class Entry {
+        final long hash;
+        final long move;
+        final int weight;
+
+        /**
+         * @param state The state the move is made from.
+         * @param move The move.
+         * @param weight How often the move is played, relative to the state's other moves.
+         */
+        Entry(State state, Move move, int weight) {
+            this.hash = state.getHash();
+            this.move = CompactMove.fromMove(move);
+            this.weight = weight;
+        }
+    }
+}
@@ -0,0 +1,210 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+
+/**
+ * Builds an {@link OpeningBook} by searching the opening positions much longer than the AI could during a game.
+ *
+ * Starting from the initial state, every move of a position is scored by searching the state it leads to. The moves
+ * that score close to the best are put in the book, weighted by how close they are, and the positions they lead to are
+ * searched in turn until the book is deep enough. Both players' positions are expanded, so that the book still has an
+ * answer after the human player makes any of the good moves.
+ *
+ * Usage: OpeningBookBuilder [options]
+ *   -p, --plies N        How many plies from the initial state the book covers (default 10)
+ *   -w, --width N        The most moves kept for each position (default 2)
+ *   -m, --margin N       How far below the best score a move may be and still be kept (default 20)
+ *   -t, --time MS        The time to search each move for, in milliseconds (default 1000)
+ *   -d, --depth N        The deepest iteration to search each move to (default {@link Engine#MAX_DEPTH})
+ *   -o, --output FILE    The file to write (default {@link OpeningBook#DEFAULT_FILE})
+ *   --threads N          The number of threads to search with (default all processors)
+ */
+public class OpeningBookBuilder {
+    // The size of the transposition table, in megabytes. It is kept between searches, as the positions overlap.
+    private static final int TABLE_SIZE = 256;
+
+    private final Engine _engine;
+    private final int _plies;
+    private final int _width;
+    private final int _margin;
+    private final long _timeBudget;
+    private final int _depthLimit;
+
+    private boolean _verbose;
+    private int _positions;
+
+    /**
+     * @param engine The engine to search with.
+     * @param plies How many plies from the initial state the book covers.
+     * @param width The most moves kept for each position.
+     * @param margin How far below the best score a move may be and still be kept.
+     * @param timeBudget The time to search each move for, in milliseconds.
+     * @param depthLimit The deepest iteration to search each move to.
+     */
+    public OpeningBookBuilder(Engine engine, int plies, int width, int margin, long timeBudget, int depthLimit) {
+        this._engine = engine;
+        this._plies = plies;
+        this._width = Math.max(1, width);
+        this._margin = Math.max(0, margin);
+        this._timeBudget = timeBudget;
+        this._depthLimit = depthLimit;
+    }
+
+    public void setVerbose(boolean verbose) {
+        this._verbose = verbose;
+    }
+
+    /**
+     * @return The number of positions in the book built by the last call to {@link #build(State)}.
+     */
+    public int getPositions() {
+        return this._positions;
+    }
+
+    /**
+     * Builds the book's entries, visiting positions in order of their distance from {@code initial}. A position
+     * reached by more than one order of moves is only searched once.
+     * @param initial The state to start from, usually {@link StateManager#createInitialState()}.
+     * @return The entries.
+     */
+    public ArrayList<OpeningBook.Entry> build(State initial) {
+        ArrayList<OpeningBook.Entry> entries = new ArrayList<OpeningBook.Entry>();
+        HashSet<Long> visited = new HashSet<Long>();
+        ArrayDeque<State> states = new ArrayDeque<State>();
+        ArrayDeque<Integer> plies = new ArrayDeque<Integer>();
+
+        states.add(initial);
+        plies.add(0);
+        this._positions = 0;
+
+        while(!states.isEmpty()) {
+            State state = states.poll();
+            int ply = plies.poll();
+
+            if(ply >= this._plies || !visited.add(state.getHash())) {
+                continue;
+            }
+
+            // The game is over, eg. after a winning move was chosen, so there is nothing to add
+            ArrayList<Move> successors = state.getSuccessors();
+            if(successors.isEmpty()) {
+                continue;
+            }
+
+            int[] scores = new int[successors.size()];
+            for(int i = 0; i < scores.length; i++) {
+                scores[i] = this._score(successors.get(i).getNext(), state.getTurn());
+            }
+
+            ArrayList<Integer> chosen = this._choose(scores);
+            int best = scores[chosen.get(0)];
+
+            for(int i: chosen) {
+                Move move = successors.get(i);
+                entries.add(new OpeningBook.Entry(state, move, this._margin + 1 - (best - scores[i])));
+                states.add(move.getNext());
+                plies.add(ply + 1);
+            }
+
+            this._positions++;
+            if(this._verbose) {
+                System.out.printf("%,d positions, %,d moves, ply %d%n", this._positions, entries.size(), ply);
+            }
+        }
+
+        return entries;
+    }
+
+    /**
+     * @param scores The score of each move.
+     * @return The indexes of the moves to keep, best first: those within the margin of the best, up to the width.
+     */
+    private ArrayList<Integer> _choose(int[] scores) {
+        ArrayList<Integer> chosen = new ArrayList<Integer>();
+        for(int i = 0; i < scores.length; i++) {
+            chosen.add(i);
+        }
+
+        chosen.sort((a, b) -> Integer.compare(scores[b], scores[a]));
+
+        int best = scores[chosen.get(0)];
+        chosen.removeIf(i -> scores[i] < best - this._margin);
+
+        return new ArrayList<Integer>(chosen.subList(0, Math.min(this._width, chosen.size())));
+    }
+
+    /**
+     * @param state The state after a move.
+     * @param turn The player that made the move, true for black.
+     * @return The score of the move for the player that made it.
+     */
+    private int _score(State state, boolean turn) {
+        int score;
+
+        // A state with no moves has lost, and searching it would find no move to stop at
+        if(state.getSuccessors().isEmpty()) {
+            score = Evaluator.getLossScore(0, state.getTurn());
+        }
+        else {
+            this._engine.search(state, this._timeBudget, 0, this._depthLimit);
+            score = this._engine.getScore();
+        }
+
+        return turn ? score : -score;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int plies = 10;
+        int width = 2;
+        int margin = 20;
+        long time = 1000;
+        int depth = Engine.MAX_DEPTH;
+        File output = new File(OpeningBook.DEFAULT_FILE);
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        for(int i = 0; i < args.length; i++) {
+            switch(args[i]) {
+                case "-p":
+                case "--plies":
+                    plies = Integer.parseInt(args[++i]);
+                    break;
+                case "-w":
+                case "--width":
+                    width = Integer.parseInt(args[++i]);
+                    break;
+                case "-m":
+                case "--margin":
+                    margin = Integer.parseInt(args[++i]);
+                    break;
+                case "-t":
+                case "--time":
+                    time = Long.parseLong(args[++i]);
+                    break;
+                case "-d":
+                case "--depth":
+                    depth = Integer.parseInt(args[++i]);
+                    break;
+                case "-o":
+                case "--output":
+                    output = new File(args[++i]);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(2);
+            }
+        }
+
+        long start = System.nanoTime();
+        OpeningBookBuilder builder = new OpeningBookBuilder(new Engine(TABLE_SIZE, threads), plies, width, margin, time, depth);
+        builder.setVerbose(true);
+        ArrayList<OpeningBook.Entry> entries = builder.build(StateManager.createInitialState());
+        OpeningBook.save(output, entries);
+
+        System.out.printf("Wrote %s (%,d positions, %,d bytes) in %.1fs%n", output, builder.getPositions(), output.length(), (System.nanoTime() - start) / 1e9);
+    }
+}
@@ -0,0 +1,367 @@
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Counts the states reachable in exactly N moves (perft), to check the move generator and measure its speed. Counting
+ * can be done with {@link State#getSuccessors()}, which is what the GUI uses, or with {@link SearchBoard}, which is what
+ * the search uses and supports bulk counting, a hash-backed cache and counting on a {@link ForkJoinPool}.
+ *
+ * Usage: Perft [options]
+ *   -d, --depth N        Depth to count to (default 8)
+ *   -p, --position P     Position to count from, see {@link #parsePosition(String)} (default the initial position)
+ *   --divide             Show the count below each move from the position
+ *   --parallel           Count on all processors
+ *   --cache MB           Cache counts in a table of this size
+ *   --states             Count with State#getSuccessors rather than SearchBoard
+ *   --check              Compare the counts from the initial position at every depth with the reference counts
+ */
+public class Perft {
+    // Counts from the initial position at each depth, from 0. These match the published English draughts counts up
+    // to depth 8, after which they differ as a man that is crowned part way through a jump carries on jumping here.
+    public static final long[] REFERENCE_COUNTS = {
+            1L, 7L, 49L, 302L, 1469L, 7361L, 36768L, 179740L, 845931L, 3963629L, 18391602L, 85153971L
+    };
+
+    // Below this depth, a parallel count carries on in the same task rather than forking more
+    private static final int FORK_DEPTH = 5;
+
+    private final Cache _cache;
+
+    /**
+     * @param cacheSize The size of the cache in megabytes, or 0 for no cache.
+     */
+    public Perft(int cacheSize) {
+        this._cache = cacheSize > 0 ? new Cache(cacheSize) : null;
+    }
+
+    /**
+     * Counts with {@link State#getSuccessors()}. This is slow, but it is the generator the GUI uses.
+     * @param state The state to count from.
+     * @param depth The number of moves to make.
+     * @return The number of states reached.
+     */
+    public static long countStates(State state, int depth) {
+        if(depth == 0) {
+            return 1;
+        }
+
+        long count = 0;
+        for(Move move: state.getSuccessors()) {
+            count += Perft.countStates(move.getNext(), depth - 1);
+        }
+
+        return count;
+    }
+
+    /**
+     * Counts with a {@link SearchBoard}.
+     * @param state The state to count from.
+     * @param depth The number of moves to make.
+     * @return The number of states reached.
+     */
+    public long count(State state, int depth) {
+        return this._count(new SearchBoard(state), depth, Perft._createMoveLists(depth));
+    }
+
+    /**
+     * Counts with a {@link SearchBoard} per task, on a {@link ForkJoinPool} with a thread per processor.
+     * @param state The state to count from.
+     * @param depth The number of moves to make.
+     * @return The number of states reached.
+     */
+    public long countParallel(State state, int depth) {
+        return ForkJoinPool.commonPool().invoke(new Task(new SearchBoard(state), depth));
+    }
+
+    private long _count(SearchBoard board, int depth, MoveList[] moveLists) {
+        if(depth == 0) {
+            return 1;
+        }
+
+        MoveList moves = moveLists[depth];
+        board.generateMoves(moves);
+
+        // The moves at the last ply don't need to be made to be counted
+        if(depth == 1) {
+            return moves.size();
+        }
+
+        long hash = board.getHash();
+        if(this._cache != null) {
+            long cached = this._cache.probe(hash, depth);
+            if(cached >= 0) {
+                return cached;
+            }
+        }
+
+        long count = 0;
+        for(int i = 0; i < moves.size(); i++) {
+            board.makeMove(moves.get(i));
+            count += this._count(board, depth - 1, moveLists);
+            board.unmakeMove(moves.get(i));
+        }
+
+        if(this._cache != null) {
+            this._cache.store(hash, depth, count);
+        }
+
+        return count;
+    }
+
+    /**
+     * Parses a position written as the turn, a colon and then the 32 playable squares from the top left, where r and b
+     * are red and black men, R and B are kings and . is empty. For example, the initial position is
+     * {@code b:rrrrrrrrrrrr........bbbbbbbbbbbb}, where the turn is b for black (the human player) or r for red.
+     * @param position The position.
+     * @return The state.
+     */
+    public static State parsePosition(String position) {
+        String[] parts = position.trim().split(":");
+        if(parts.length != 2 || parts[1].length() != BitBoard.SQUARES || !(parts[0].equals("r") || parts[0].equals("b"))) {
+            throw new IllegalArgumentException("Invalid position: " + position);
+        }
+
+        int red = 0;
+        int black = 0;
+        int kings = 0;
+
+        for(int square = 0; square < BitBoard.SQUARES; square++) {
+            char c = parts[1].charAt(square);
+
+            if(c == 'r' || c == 'R') {
+                red |= 1 << square;
+            }
+            else if(c == 'b' || c == 'B') {
+                black |= 1 << square;
+            }
+            else if(c != '.') {
+                throw new IllegalArgumentException("Invalid square '" + c + "' in position: " + position);
+            }
+
+            if(c == 'R' || c == 'B') {
+                kings |= 1 << square;
+            }
+        }
+
+        return new State(red, black, kings, parts[0].equals("b"));
+    }
+
+    /**
+     * @param state The state.
+     * @return The state written as described in {@link #parsePosition(String)}.
+     */
+    public static String formatPosition(State state) {
+        StringBuilder position = new StringBuilder(state.getTurn() ? "b:" : "r:");
+
+        for(int square = 0; square < BitBoard.SQUARES; square++) {
+            boolean isKing = (state.getKings() & (1 << square)) != 0;
+
+            if((state.getRed() & (1 << square)) != 0) {
+                position.append(isKing ? 'R' : 'r');
+            }
+            else if((state.getBlack() & (1 << square)) != 0) {
+                position.append(isKing ? 'B' : 'b');
+            }
+            else {
+                position.append('.');
+            }
+        }
+
+        return position.toString();
+    }
+
+    public static void main(String[] args) {
+        int depth = 8;
+        State state = StateManager.createInitialState();
+        boolean divide = false;
+        boolean parallel = false;
+        boolean states = false;
+        boolean check = false;
+        int cacheSize = 0;
+
+        for(int i = 0; i < args.length; i++) {
+            switch(args[i]) {
+                case "-d":
+                case "--depth":
+                    depth = Integer.parseInt(args[++i]);
+                    break;
+                case "-p":
+                case "--position":
+                    state = Perft.parsePosition(args[++i]);
+                    break;
+                case "--divide":
+                    divide = true;
+                    break;
+                case "--parallel":
+                    parallel = true;
+                    break;
+                case "--cache":
+                    cacheSize = Integer.parseInt(args[++i]);
+                    break;
+                case "--states":
+                    states = true;
+                    break;
+                case "--check":
+                    check = true;
+                    break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(2);
+            }
+        }
+
+        Perft perft = new Perft(cacheSize);
+
+        if(check) {
+            System.exit(perft._check(Math.min(depth, REFERENCE_COUNTS.length - 1), parallel, states) ? 0 : 1);
+        }
+
+        System.out.println("Position: " + Perft.formatPosition(state));
+        long start = System.nanoTime();
+        long total = 0;
+
+        if(divide) {
+            for(Move move: state.getSuccessors()) {
+                long count = perft._count(move.getNext(), depth - 1, parallel, states);
+                total += count;
+                System.out.println(PieceState.changesToString(state.getPieces(), move.getNext().getPieces()) + ": " + count);
+            }
+        }
+        else {
+            total = perft._count(state, depth, parallel, states);
+        }
+
+        Perft._report(depth, total, System.nanoTime() - start);
+    }
+
+    private long _count(State state, int depth, boolean parallel, boolean states) {
+        if(depth <= 0) {
+            return 1;
+        }
+        else if(states) {
+            return Perft.countStates(state, depth);
+        }
+
+        return parallel ? this.countParallel(state, depth) : this.count(state, depth);
+    }
+
+    /**
+     * Counts from the initial position at every depth up to {@code depth}, and compares with the reference counts.
+     * @return Whether every count matched.
+     */
+    private boolean _check(int depth, boolean parallel, boolean states) {
+        boolean passed = true;
+
+        for(int d = 1; d <= depth; d++) {
+            long start = System.nanoTime();
+            long count = this._count(StateManager.createInitialState(), d, parallel, states);
+            boolean matches = count == REFERENCE_COUNTS[d];
+            passed &= matches;
+
+            System.out.print((matches ? "OK    " : "FAIL  ") + (matches ? "" : "(expected " + REFERENCE_COUNTS[d] + ") "));
+            Perft._report(d, count, System.nanoTime() - start);
+        }
+
+        return passed;
+    }
+
+    private static void _report(int depth, long count, long nanos) {
+        System.out.printf("Depth %d: %d nodes in %.3fs (%.0f nodes/s)%n", depth, count, nanos / 1e9,
+                count / Math.max(nanos / 1e9, 1e-9));
+    }
+
+    private static MoveList[] _createMoveLists(int depth) {
+        MoveList[] moveLists = new MoveList[depth + 1];
+        for(int i = 0; i < moveLists.length; i++) {
+            moveLists[i] = new MoveList();
+        }
+
+        return moveLists;
+    }
+
+    /**
+     * Counts one subtree, forking a task per move until the remaining depth is small enough to count in one go.
+     *
+     * The task holds a board rather than a {@link State}: since Java 19, {@link java.util.concurrent.Future.State} is
+     * inherited from {@link RecursiveTask}, and hides the top level class inside this one. Tasks are never serialized,
+     * so the board doesn't need to be serializable.
+     */
+    @SuppressWarnings("serial")
+    private class Task extends RecursiveTask<Long> {
+        private final SearchBoard _board;
+        private final int _depth;
+
+        Task(SearchBoard board, int depth) {
+            this._board = board;
+            this._depth = depth;
+        }
+
+        @Override
+        protected Long compute() {
+            if(this._depth <= FORK_DEPTH) {
+                return Perft.this._count(this._board, this._depth, Perft._createMoveLists(this._depth));
+            }
+
+            SearchBoard board = this._board;
+            MoveList moves = new MoveList();
+            board.generateMoves(moves);
+
+            ArrayList<Task> tasks = new ArrayList<Task>();
+            for(int i = 0; i < moves.size(); i++) {
+                board.makeMove(moves.get(i));
+                tasks.add(new Task(new SearchBoard(board.toState()), this._depth - 1));
+                board.unmakeMove(moves.get(i));
+            }
+
+            invokeAll(tasks);
+
+            long count = 0;
+            for(Task task: tasks) {
+                count += task.join();
+            }
+
+            return count;
+        }
+    }
+
+    /**
+     * A table of counts keyed by hash and depth, shared between threads without locking in the same way as
+     * {@link TranspositionTable}: the key is stored XORed with the count, so a half written entry is never matched.
+     */
+    private static class Cache {
+        private final long[] _keys;
+        private final long[] _counts;
+        private final int _mask;
+
+        Cache(int sizeInMegabytes) {
+            int size = Integer.highestOneBit((int) Math.min(((long) sizeInMegabytes << 20) / 16, 1 << 28));
+            this._keys = new long[size];
+            this._counts = new long[size];
+            this._mask = size - 1;
+        }
+
+        /**
+         * @return The count, or -1 if it isn't cached.
+         */
+        long probe(long hash, int depth) {
+            long key = Cache._getKey(hash, depth);
+            int index = (int) (key ^ (key >>> 32)) & this._mask;
+            long count = this._counts[index];
+
+            return (this._keys[index] ^ count) == key && count != 0 ? count : -1;
+        }
+
+        void store(long hash, int depth, long count) {
+            long key = Cache._getKey(hash, depth);
+            int index = (int) (key ^ (key >>> 32)) & this._mask;
+
+            this._counts[index] = count;
+            this._keys[index] = key ^ count;
+        }
+
+        private static long _getKey(long hash, int depth) {
+            return hash + depth * 0x9E3779B97F4A7C15L;
+        }
+    }
+}
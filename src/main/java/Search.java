@@ -0,0 +1,614 @@
+/**
+ * A single search thread. It runs minimax with alpha-beta pruning one level deeper at a time (iterative deepening),
+ * sharing the transposition table and stopping condition of its {@link Engine} with any other threads. The tree is
+ * walked by making and unmaking moves on a single {@link SearchBoard}, with a {@link MovePicker} per ply generating
+ * moves as they are visited, in the order given by a {@link MoveOrdering}.
+ */
+public class Search {
+    // The half-width of the first aspiration window, it is widened by this factor each time the search falls outside
+    private static final int ASPIRATION_WINDOW = 25;
+    private static final int ASPIRATION_GROWTH = 4;
+
+    // Quiet moves from this far down the ordering are searched less deeply, by a second level from the very late index
+    private static final int LATE_MOVE_INDEX = 3;
+    private static final int VERY_LATE_MOVE_INDEX = 6;
+    private static final int LATE_MOVE_DEPTH = 3;
+
+    // ProbCut predicts the result of a search from one this many levels shallower, and trusts the prediction if it
+    // clears the window by the margin
+    private static final int PROB_CUT_DEPTH = 5;
+    private static final int PROB_CUT_REDUCTION = 4;
+    private static final int PROB_CUT_MARGIN = 80;
+    private static final int NO_PREDICTION = Integer.MIN_VALUE;
+
+    // The least depth left at which a tablebase probe may decompress a block
+    private static final int TABLEBASE_DECODE_DEPTH = 4;
+
+    private Engine _engine;
+    private TranspositionTable _transpositionTable;
+    private Tablebase _tablebase;
+    private SearchBoard _board;
+    private MoveOrdering _ordering = new MoveOrdering();
+    private Evaluator _evaluator = new Evaluator();
+    private MovePicker[] _pickers;
+
+    // How many levels deeper than the main thread this thread starts, helper threads use this to spread out
+    private int _depthOffset;
+
+    private int _evaluations;
+    private int _reportedEvaluations;
+    private int _visits;
+    private int _tableHits;
+    private int _tableCutoffs;
+    private int _cutoffs;
+    private int _firstMoveCutoffs;
+    private int _quiescenceNodes;
+    private int _researches;
+    private int _reductions;
+    private int _reductionResearches;
+    private int _probCutTries;
+    private int _probCuts;
+    private int _tablebaseHits;
+
+    private volatile int _completedDepth;
+    private int _score;
+    private long _rootMove;
+    private Move _optimalMove;
+
+    /**
+     * @param engine The engine this thread searches for.
+     * @param depthOffset How many levels deeper than the main thread to start.
+     */
+    public Search(Engine engine, int depthOffset) {
+        this._engine = engine;
+        this._transpositionTable = engine.getTranspositionTable();
+        this._depthOffset = depthOffset;
+
+        this._pickers = new MovePicker[SearchBoard.MAX_PLY];
+        for(int i = 0; i < this._pickers.length; i++) {
+            this._pickers[i] = new MovePicker(this._ordering);
+        }
+    }
+
+    /**
+     * Searches {@code state} one level deeper at a time until the engine says to stop. The move from the last
+     * search that completed is stored, see {@link #getOptimalMove()}.
+     * @param state The state to search.
+     */
+    public void run(State state) {
+        this._board = new SearchBoard(state);
+        this._tablebase = this._engine.getTablebase();
+
+        this._evaluations = 0;
+        this._reportedEvaluations = 0;
+        this._tableHits = 0;
+        this._tableCutoffs = 0;
+        this._cutoffs = 0;
+        this._firstMoveCutoffs = 0;
+        this._quiescenceNodes = 0;
+        this._researches = 0;
+        this._reductions = 0;
+        this._reductionResearches = 0;
+        this._probCutTries = 0;
+        this._probCuts = 0;
+        this._tablebaseHits = 0;
+        this._ordering.clear();
+        this._completedDepth = 0;
+        this._score = 0;
+        this._rootMove = CompactMove.NONE;
+        this._optimalMove = null;
+
+        boolean principalVariation = this._engine.getSearchMode() == Engine.SearchMode.PRINCIPAL_VARIATION;
+        int score = 0;
+
+        for(int depth = 1 + this._depthOffset; depth <= this._engine.getDepthLimit() && (this._optimalMove == null || !this._engine.isStopped()); depth++) {
+            if(principalVariation && this._optimalMove != null && Math.abs(score) < Evaluator.WIN_THRESHOLD) {
+                score = this._aspirate(depth, score);
+            }
+            else {
+                score = this._minimax(depth, Integer.MIN_VALUE, Integer.MAX_VALUE, true);
+            }
+
+            // A search that was stopped part way through may not have considered the best move, so its result is
+            // thrown away
+            if(this._optimalMove != null && this._engine.isStopped()) {
+                break;
+            }
+
+            this._optimalMove = CompactMove.toMove(state, this._rootMove);
+            this._completedDepth = depth;
+            this._score = score;
+
+            this._engine.addEvaluations(this._evaluations - this._reportedEvaluations);
+            this._reportedEvaluations = this._evaluations;
+            this._engine.reportIteration(this, depth, score);
+        }
+
+        this._engine.addEvaluations(this._evaluations - this._reportedEvaluations);
+        this._reportedEvaluations = this._evaluations;
+    }
+
+    /**
+     * Searches the root with a narrow window around the previous iteration's score, as the score usually changes
+     * little between iterations and a narrow window prunes far more. If the score falls outside the window then the
+     * window is widened on that side and the root searched again.
+     * @param depth How many search levels to consider.
+     * @param previousScore The score of the previous iteration.
+     * @return The score of the root.
+     */
+    private int _aspirate(int depth, int previousScore) {
+        int delta = ASPIRATION_WINDOW;
+        int alpha = previousScore - delta;
+        int beta = previousScore + delta;
+
+        while(true) {
+            int score = this._minimax(depth, alpha, beta, true);
+
+            if(this._engine.isStopped()) {
+                return score;
+            }
+
+            if(score <= alpha) {
+                delta *= ASPIRATION_GROWTH;
+                alpha = delta > Evaluator.WIN ? Integer.MIN_VALUE : score - delta;
+            }
+            else if(score >= beta) {
+                delta *= ASPIRATION_GROWTH;
+                beta = delta > Evaluator.WIN ? Integer.MAX_VALUE : score + delta;
+            }
+            else {
+                return score;
+            }
+
+            this._researches++;
+        }
+    }
+
+    /**
+     * @return The optimal move found by the last completed search.
+     */
+    public Move getOptimalMove() {
+        return this._optimalMove;
+    }
+
+    public int getCompletedDepth() {
+        return this._completedDepth;
+    }
+
+    /**
+     * @return The score of the root from the last completed search, where positive scores favour black.
+     */
+    public int getScore() {
+        return this._score;
+    }
+
+    public int getEvaluations() {
+        return this._evaluations;
+    }
+
+    public int getTableHits() {
+        return this._tableHits;
+    }
+
+    public int getTableCutoffs() {
+        return this._tableCutoffs;
+    }
+
+    /**
+     * @return The number of states visited by the capture-only search past the depth limit.
+     */
+    public int getQuiescenceNodes() {
+        return this._quiescenceNodes;
+    }
+
+    /**
+     * @return The number of times a move or the root had to be searched again with a wider window.
+     */
+    public int getResearches() {
+        return this._researches;
+    }
+
+    /**
+     * @return The number of moves that were searched with a late move reduction.
+     */
+    public int getReductions() {
+        return this._reductions;
+    }
+
+    /**
+     * @return The number of reduced moves that had to be searched again at full depth.
+     */
+    public int getReductionResearches() {
+        return this._reductionResearches;
+    }
+
+    /**
+     * @return The number of states where a ProbCut prediction was tried.
+     */
+    public int getProbCutTries() {
+        return this._probCutTries;
+    }
+
+    /**
+     * @return The number of states that were cut off by a ProbCut prediction.
+     */
+    public int getProbCuts() {
+        return this._probCuts;
+    }
+
+    /**
+     * @return The number of states whose exact result was found in the tablebase.
+     */
+    public int getTablebaseHits() {
+        return this._tablebaseHits;
+    }
+
+    /**
+     * @return The number of times that a move caused a beta cutoff.
+     */
+    public int getCutoffs() {
+        return this._cutoffs;
+    }
+
+    /**
+     * @return The number of beta cutoffs that were caused by the first move visited.
+     */
+    public int getFirstMoveCutoffs() {
+        return this._firstMoveCutoffs;
+    }
+
+    /**
+     * Creates a search tree to identify the optimal move. Results are stored in the transposition table, so that a
+     * state reached again through a different order of moves (or by another thread) doesn't need to be searched
+     * again.
+     * @param depth How many more search levels to consider.
+     * @param alpha The best value that the maximising player can guarantee
+     * @param beta The best value that the minimising player guarantee
+     * @param isRoot Whether this is the initial call, which stores the optimal move.
+     * @return An integer representing the value of the board.
+     */
+    private int _minimax(int depth, int alpha, int beta, boolean isRoot) {
+        if(this._isStopped()) {
+            return 0;
+        }
+
+        SearchBoard board = this._board;
+        boolean turn = board.getTurn();
+        int originalAlpha = alpha;
+        int originalBeta = beta;
+
+        // Check whether this state has been searched before. The stored result can only be used if it was searched
+        // at least as deeply, and never for the initial call as that needs to find a move.
+        int tableMove = -1;
+        long entry = this._transpositionTable.probe(board.getHash());
+        if(entry != 0) {
+            this._tableHits++;
+            tableMove = TranspositionTable.getMove(entry);
+
+            if(!isRoot && TranspositionTable.getDepth(entry) >= depth) {
+                int score = Search._fromTableScore(TranspositionTable.getScore(entry), board.getPly());
+                int bound = TranspositionTable.getBound(entry);
+
+                if(bound == TranspositionTable.LOWER) {
+                    alpha = Math.max(alpha, score);
+                }
+                else if(bound == TranspositionTable.UPPER) {
+                    beta = Math.min(beta, score);
+                }
+
+                if(bound == TranspositionTable.EXACT || alpha >= beta) {
+                    this._tableCutoffs++;
+                    return score;
+                }
+            }
+        }
+
+        // Endgames with few enough pieces have already been solved, so there is no need to search them. Near the
+        // leaves, searching is cheaper than decompressing part of the tablebase, so only what is cached is used.
+        if(!isRoot && this._tablebase != null && Integer.bitCount(board.getRed() | board.getBlack()) <= this._tablebase.getMaxPieces()) {
+            int result = this._tablebase.probe(board.getRed(), board.getBlack(), board.getKings(), turn, depth >= TABLEBASE_DECODE_DEPTH);
+
+            if(result != Tablebase.UNKNOWN) {
+                this._tablebaseHits++;
+                return Tablebase.getScore(result, board.getPly(), turn);
+            }
+        }
+
+        // If we have reached our depth limit then carry on with any captures, so that the state isn't valued in the
+        // middle of an exchange
+        if(depth < 1) {
+            return this._quiesce(alpha, beta);
+        }
+
+        // If a shallower search says that the state is far outside the window, then a full search very likely would
+        // too, so skip it
+        if(!isRoot && depth >= PROB_CUT_DEPTH && this._engine.getProbCut()) {
+            int prediction = this._probCut(depth, alpha, beta);
+
+            if(prediction != NO_PREDICTION) {
+                return prediction;
+            }
+        }
+
+        // The best move of the previous iteration is considered first at the root, elsewhere the stored best move is
+        // the one most likely to cause a cutoff so it is considered first
+        if(isRoot && this._rootMove != CompactMove.NONE) {
+            tableMove = CompactMove.getKey(this._rootMove);
+        }
+
+        MovePicker picker = this._pickers[board.getPly()];
+        picker.reset(board, tableMove);
+
+        // Initialise the best value to be worst case scenario for the player: -inf for human player and +inf for AI
+        int bestValue = turn ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+        long bestMove = CompactMove.NONE;
+
+        // Visit the moves from most to least likely to cause a cutoff, only generating them as they are needed
+        int n = 0;
+        for(long move = picker.next(); move != CompactMove.NONE; move = picker.next(), n++) {
+            // Evaluate score for this successor, passing down alpha & beta values
+            board.makeMove(move);
+            int eval = this._searchMove(depth, alpha, beta, n, move, isRoot);
+            board.unmakeMove(move);
+
+            // The value of an interrupted search can't be trusted, so it is neither used nor stored
+            if(this._optimalMove != null && this._engine.isStopped()) {
+                return 0;
+            }
+
+            this._evaluations++;
+
+            // If state is for the human player and the evaluated score is greater than our best OR if state is for the
+            // AI and the evaluated score is less than our best, then update best value
+            if((turn && eval > bestValue) || (!turn && eval < bestValue)) {
+                bestValue = eval;
+                bestMove = move;
+            }
+
+            if(turn) {
+                alpha = Math.max(alpha, bestValue);
+            }
+            else {
+                beta = Math.min(beta, bestValue);
+            }
+
+            // If alpha is greater or equal to beta, then we can stop considering moves at this level, we can
+            // guarantee these branches will never be evaluated anyway
+            if(alpha >= beta) {
+                this._cutoffs++;
+                if(n == 0) {
+                    this._firstMoveCutoffs++;
+                }
+
+                this._ordering.update(move, board.getPly(), depth);
+                break;
+            }
+        }
+
+        // If there are no successors then the player whose turn it is has lost
+        if(bestMove == CompactMove.NONE) {
+            this._evaluations++;
+            return Evaluator.getLossScore(board.getPly(), turn);
+        }
+
+        // A value outside of the original window is only a bound on the real value
+        int bound = TranspositionTable.EXACT;
+        if(bestValue <= originalAlpha) {
+            bound = TranspositionTable.UPPER;
+        }
+        else if(bestValue >= originalBeta) {
+            bound = TranspositionTable.LOWER;
+        }
+
+        this._transpositionTable.store(board.getHash(), depth, bound, Search._toTableScore(bestValue, board.getPly()),
+                CompactMove.getKey(bestMove));
+
+        if(isRoot) {
+            this._rootMove = bestMove;
+        }
+
+        return bestValue;
+    }
+
+    /**
+     * Searches the move that has just been made. In principal variation search, only the first move is searched with
+     * the full window. The rest are expected to be worse, so they are searched with a zero-width window that only
+     * proves whether they are, and are searched again with the full window if it turns out they aren't.
+     *
+     * With late move reductions, quiet moves far down the ordering are first searched less deeply, and only searched
+     * to the full depth if that suggests they are better than the best move so far.
+     * @param depth The depth of the state the move was made from.
+     * @param alpha The best value that the maximising player can guarantee
+     * @param beta The best value that the minimising player guarantee
+     * @param index How many moves were searched from the state before this one.
+     * @param move The move.
+     * @param isRoot Whether the move was made from the root.
+     * @return An integer representing the value of the board.
+     */
+    private int _searchMove(int depth, int alpha, int beta, int index, long move, boolean isRoot) {
+        // The move was made by the player before the one whose turn it now is
+        boolean maximising = !this._board.getTurn();
+
+        if(!isRoot && index >= LATE_MOVE_INDEX && depth >= LATE_MOVE_DEPTH && this._engine.getLateMoveReductions()
+                && CompactMove.getCaptured(move) == 0 && !CompactMove.isPromotion(move)) {
+            int reduced = depth - 1 - (index >= VERY_LATE_MOVE_INDEX ? 2 : 1);
+            this._reductions++;
+
+            int eval = maximising
+                    ? this._minimax(reduced, alpha, alpha + 1, false)
+                    : this._minimax(reduced, beta - 1, beta, false);
+
+            if(maximising ? eval <= alpha : eval >= beta) {
+                return eval;
+            }
+
+            this._reductionResearches++;
+        }
+
+        if(index == 0 || this._engine.getSearchMode() != Engine.SearchMode.PRINCIPAL_VARIATION) {
+            return this._minimax(depth-1, alpha, beta, false);
+        }
+
+        int eval = maximising
+                ? this._minimax(depth-1, alpha, alpha + 1, false)
+                : this._minimax(depth-1, beta - 1, beta, false);
+
+        if(eval > alpha && eval < beta) {
+            this._researches++;
+            eval = this._minimax(depth-1, alpha, beta, false);
+        }
+
+        return eval;
+    }
+
+    /**
+     * Searches the state to a shallower depth with a zero-width window just past the side of the current window that
+     * the player whose turn it is pushes against: above beta for the maximising player, below alpha for the
+     * minimising player.
+     * @param depth The depth the state is to be searched to.
+     * @param alpha The best value that the maximising player can guarantee
+     * @param beta The best value that the minimising player guarantee
+     * @return The shallow search's score if it clears the window by the margin, or {@link #NO_PREDICTION} if the
+     *         state needs a full search.
+     */
+    private int _probCut(int depth, int alpha, int beta) {
+        boolean turn = this._board.getTurn();
+        int edge = turn ? beta : alpha;
+
+        // There is nothing to predict for an open window, and wins need an exact search
+        if(edge <= -Evaluator.WIN_THRESHOLD || edge >= Evaluator.WIN_THRESHOLD) {
+            return NO_PREDICTION;
+        }
+
+        int bound = turn ? edge + PROB_CUT_MARGIN : edge - PROB_CUT_MARGIN;
+
+        this._probCutTries++;
+
+        int score = turn
+                ? this._minimax(depth - PROB_CUT_REDUCTION, bound - 1, bound, false)
+                : this._minimax(depth - PROB_CUT_REDUCTION, bound, bound + 1, false);
+
+        if(turn ? score >= bound : score <= bound) {
+            this._probCuts++;
+            return score;
+        }
+
+        return NO_PREDICTION;
+    }
+
+    /**
+     * Searches captures only, until neither player has one. As captures are forced, a player can only "stand pat"
+     * and take the static value of the state when they have no capture, which is also when this stops.
+     * @param alpha The best value that the maximising player can guarantee
+     * @param beta The best value that the minimising player guarantee
+     * @return An integer representing the value of the board.
+     */
+    private int _quiesce(int alpha, int beta) {
+        if(this._isStopped()) {
+            return 0;
+        }
+
+        this._quiescenceNodes++;
+        SearchBoard board = this._board;
+        boolean turn = board.getTurn();
+
+        if(!board.hasCaptures() || board.getPly() >= SearchBoard.MAX_PLY - 1) {
+            this._evaluations++;
+            return this._evaluate();
+        }
+
+        MovePicker picker = this._pickers[board.getPly()];
+        picker.reset(board, -1);
+
+        int bestValue = turn ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+
+        for(long move = picker.next(); move != CompactMove.NONE; move = picker.next()) {
+            board.makeMove(move);
+            int eval = this._quiesce(alpha, beta);
+            board.unmakeMove(move);
+
+            if(this._optimalMove != null && this._engine.isStopped()) {
+                return 0;
+            }
+
+            if((turn && eval > bestValue) || (!turn && eval < bestValue)) {
+                bestValue = eval;
+            }
+
+            if(turn) {
+                alpha = Math.max(alpha, bestValue);
+            }
+            else {
+                beta = Math.min(beta, bestValue);
+            }
+
+            if(alpha >= beta) {
+                break;
+            }
+        }
+
+        return bestValue;
+    }
+
+    /**
+     * Checks the budget every 1024 visits, as doing so is relatively slow. The search is only interrupted once it has a
+     * move from a completed iteration to fall back on.
+     * @return Whether the search has been stopped.
+     */
+    private boolean _isStopped() {
+        if((++this._visits & 1023) == 0) {
+            this._engine.addEvaluations(this._evaluations - this._reportedEvaluations);
+            this._reportedEvaluations = this._evaluations;
+            this._engine.checkBudget();
+        }
+
+        return this._optimalMove != null && this._engine.isStopped();
+    }
+
+    /**
+     * Values the board with the {@link Evaluator}, or as a loss if the player whose turn it is can't move.
+     * @return An integer representing the board value, positive when the human player is ahead.
+     */
+    private int _evaluate() {
+        if(!this._board.hasMoves()) {
+            return Evaluator.getLossScore(this._board.getPly(), this._board.getTurn());
+        }
+
+        return this._evaluator.evaluate(this._board);
+    }
+
+    /**
+     * Win scores depend on how far into the search the win was found, but a table entry can be used at any ply. They
+     * are stored relative to the state instead, ie. as the number of plies from the state to the win.
+     * @param score The score relative to the root.
+     * @param ply The ply of the state.
+     * @return The score to store.
+     */
+    private static int _toTableScore(int score, int ply) {
+        if(score > Evaluator.WIN_THRESHOLD) {
+            return score + ply;
+        }
+        else if(score < -Evaluator.WIN_THRESHOLD) {
+            return score - ply;
+        }
+
+        return score;
+    }
+
+    /**
+     * Reverses {@link #_toTableScore(int, int)}.
+     * @param score The stored score.
+     * @param ply The ply of the state.
+     * @return The score relative to the root.
+     */
+    private static int _fromTableScore(int score, int ply) {
+        if(score > Evaluator.WIN_THRESHOLD) {
+            return score - ply;
+        }
+        else if(score < -Evaluator.WIN_THRESHOLD) {
+            return score + ply;
+        }
+
+        return score;
+    }
+}
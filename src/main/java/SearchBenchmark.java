@@ -0,0 +1,95 @@
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Compares the search modes and selective search techniques of {@link Engine} by the number of evaluations each needs
+ * to search a fixed set of positions to the same depth. The positions come from seeded random games, so every run
+ * searches the same ones.
+ *
+ * Usage: SearchBenchmark [depth] [positions]
+ */
+public class SearchBenchmark {
+    private static final int DEFAULT_DEPTH = 10;
+    private static final int DEFAULT_POSITIONS = 24;
+    private static final long SEED = 2024;
+
+    // The configurations to compare, the first is the baseline
+    private static final String[] NAMES = {"Alpha-beta", "PVS", "PVS + LMR", "PVS + LMR + ProbCut"};
+    private static final Engine.SearchMode[] MODES = {
+            Engine.SearchMode.ALPHA_BETA,
+            Engine.SearchMode.PRINCIPAL_VARIATION,
+            Engine.SearchMode.PRINCIPAL_VARIATION,
+            Engine.SearchMode.PRINCIPAL_VARIATION
+    };
+    private static final boolean[] LATE_MOVE_REDUCTIONS = {false, false, true, true};
+    private static final boolean[] PROB_CUT = {false, false, false, true};
+
+    public static void main(String[] args) {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_DEPTH;
+        int count = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_POSITIONS;
+        ArrayList<State> positions = SearchBenchmark.createPositions(count, SEED);
+
+        // A single thread keeps the node counts repeatable
+        Engine engine = new Engine(Controller.DEFAULT_TABLE_SIZE, 1);
+        long[] totals = new long[NAMES.length];
+
+        System.out.printf("%-8s", "Position");
+        for(String name: NAMES) {
+            System.out.printf("%22s", name);
+        }
+        System.out.println();
+
+        for(int i = 0; i < positions.size(); i++) {
+            System.out.printf("%-8d", i);
+
+            for(int c = 0; c < NAMES.length; c++) {
+                engine.setSearchMode(MODES[c]);
+                engine.setLateMoveReductions(LATE_MOVE_REDUCTIONS[c]);
+                engine.setProbCut(PROB_CUT[c]);
+                engine.clear();
+                engine.search(positions.get(i), Integer.MAX_VALUE, 0, depth);
+
+                totals[c] += engine.getEvaluations();
+                System.out.printf("%22d", engine.getEvaluations());
+            }
+            System.out.println();
+        }
+
+        System.out.printf("%-8s", "Total");
+        for(long total: totals) {
+            System.out.printf("%22d", total);
+        }
+        System.out.println();
+
+        for(int c = 1; c < NAMES.length; c++) {
+            System.out.printf("%s: %.1f%% fewer evaluations than %s%n", NAMES[c], 100.0 * (totals[0] - totals[c]) / totals[0], NAMES[0]);
+        }
+    }
+
+    /**
+     * Creates positions by playing random moves from the initial state, skipping any where the game is over.
+     * @param count The number of positions.
+     * @param seed The seed for the random moves.
+     * @return The positions.
+     */
+    public static ArrayList<State> createPositions(int count, long seed) {
+        Random random = new Random(seed);
+        ArrayList<State> positions = new ArrayList<State>();
+
+        while(positions.size() < count) {
+            State state = StateManager.createInitialState();
+            int plies = 4 + random.nextInt(30);
+
+            for(int ply = 0; ply < plies && !state.getSuccessors().isEmpty(); ply++) {
+                ArrayList<Move> moves = state.getSuccessors();
+                state = moves.get(random.nextInt(moves.size())).getNext();
+            }
+
+            if(!state.getSuccessors().isEmpty()) {
+                positions.add(state);
+            }
+        }
+
+        return positions;
+    }
+}
@@ -0,0 +1,229 @@
+/**
+ * A mutable board for the search to walk the tree with. Rather than creating a new {@link State} for every successor,
+ * a move is applied in place with {@link #makeMove} and reverted with {@link #unmakeMove}, so no objects are created
+ * per node.
+ */
+public class SearchBoard {
+    // Deeper than any search will go, as each ply of the search makes exactly one move
+    public static final int MAX_PLY = 128;
+
+    private int _red;
+    private int _black;
+    private int _kings;
+    private boolean _turn;
+    private long _hash;
+
+    // The sum of every piece's score, see Evaluator#getPieceScore
+    private int _pieceScore;
+
+    // What can't be worked out from the move alone when reverting it
+    private final int[] _previousKings = new int[MAX_PLY];
+    private final long[] _previousHashes = new long[MAX_PLY];
+    private final int[] _previousPieceScores = new int[MAX_PLY];
+    private int _ply;
+
+    public SearchBoard(State state) {
+        this.setState(state);
+    }
+
+    /**
+     * Resets the board to {@code state}.
+     * @param state The state to copy.
+     */
+    public void setState(State state) {
+        this._red = state.getRed();
+        this._black = state.getBlack();
+        this._kings = state.getKings();
+        this._turn = state.getTurn();
+        this._hash = state.getHash();
+        this._pieceScore = Evaluator.computePieceScore(this._red, this._black, this._kings);
+        this._ply = 0;
+    }
+
+    public int getRed() {
+        return this._red;
+    }
+
+    public int getBlack() {
+        return this._black;
+    }
+
+    public int getKings() {
+        return this._kings;
+    }
+
+    public boolean getTurn() {
+        return this._turn;
+    }
+
+    public long getHash() {
+        return this._hash;
+    }
+
+    /**
+     * @return The part of the evaluation that only depends on where each piece is, kept up to date by each move.
+     */
+    public int getPieceScore() {
+        return this._pieceScore;
+    }
+
+    /**
+     * @return The number of moves that have been made and not yet reverted.
+     */
+    public int getPly() {
+        return this._ply;
+    }
+
+    /**
+     * Adds the moves for the player whose turn it is to {@code moves}, in the same order as
+     * {@link State#getSuccessors()}.
+     * @param moves The list to fill.
+     */
+    public void generateMoves(MoveList moves) {
+        MoveGenerator.generate(this._red, this._black, this._kings, this._turn, moves);
+    }
+
+    /**
+     * Adds the jumps for the player whose turn it is to {@code moves}.
+     * @param moves The list to add to.
+     */
+    public void generateCaptures(MoveList moves) {
+        MoveGenerator.generateCaptures(this._red, this._black, this._kings, this._turn, moves);
+    }
+
+    /**
+     * Adds the moves that aren't jumps for the player whose turn it is to {@code moves}. These are only legal if
+     * {@link #hasCaptures()} is false.
+     * @param moves The list to add to.
+     */
+    public void generateQuietMoves(MoveList moves) {
+        MoveGenerator.generateQuietMoves(this._red, this._black, this._kings, this._turn, moves);
+    }
+
+    /**
+     * @return Whether the player whose turn it is has a jump, in which case they must take one.
+     */
+    public boolean hasCaptures() {
+        int own = this._turn ? this._black : this._red;
+        int enemy = this._turn ? this._red : this._black;
+
+        return BitBoard.getJumpers(own, enemy, this._kings, this._turn) != 0;
+    }
+
+    /**
+     * Checks whether a move that isn't a jump can be made on this board, without generating the moves. This is used
+     * to try a move from the transposition table, which may be for a different state with the same hash.
+     * @param move The move, encoded by {@link CompactMove}.
+     * @return Whether the move is legal.
+     */
+    public boolean isQuietMoveLegal(long move) {
+        int from = CompactMove.getFrom(move);
+        int to = CompactMove.getTo(move);
+        int own = this._turn ? this._black : this._red;
+
+        if(CompactMove.getCaptured(move) != 0 || (own & (1 << from)) == 0 || ((this._red | this._black) & (1 << to)) != 0
+                || this.hasCaptures()) {
+            return false;
+        }
+
+        boolean isKing = (this._kings & (1 << from)) != 0;
+
+        for(int direction = 0; direction < 4; direction++) {
+            if(BitBoard.NEIGHBOURS[direction][from] == to && (isKing || BitBoard.isUpwards(direction) == this._turn)) {
+                return CompactMove.isPromotion(move) == (!isKing && (BitBoard.getKingRow(this._turn) & (1 << to)) != 0);
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * @return Whether the player whose turn it is has any move.
+     */
+    public boolean hasMoves() {
+        int own = this._turn ? this._black : this._red;
+        int enemy = this._turn ? this._red : this._black;
+
+        return BitBoard.getMovers(own, enemy, this._kings, this._turn) != 0
+                || BitBoard.getJumpers(own, enemy, this._kings, this._turn) != 0;
+    }
+
+    /**
+     * Applies a complete move (including every step of a multi-step jump) and ends the turn.
+     * @param move The move, encoded by {@link CompactMove}.
+     */
+    public void makeMove(long move) {
+        int from = CompactMove.getFrom(move);
+        int to = CompactMove.getTo(move);
+        int captured = CompactMove.getCaptured(move);
+        boolean promotion = CompactMove.isPromotion(move);
+
+        this._previousKings[this._ply] = this._kings;
+        this._previousHashes[this._ply] = this._hash;
+        this._previousPieceScores[this._ply] = this._pieceScore;
+        this._ply++;
+
+        int fromMask = 1 << from;
+        int toMask = 1 << to;
+        boolean wasKing = (this._kings & fromMask) != 0;
+
+        // Take the captured pieces out of the hash and score before the masks change
+        this._hash ^= Zobrist.getPiecesKey(captured, this._turn, this._kings)
+                ^ Zobrist.getPieceKey(!this._turn, wasKing, from)
+                ^ Zobrist.getPieceKey(!this._turn, wasKing || promotion, to)
+                ^ Zobrist.TURN;
+
+        this._pieceScore += Evaluator.getPieceScore(!this._turn, wasKing || promotion, to)
+                - Evaluator.getPieceScore(!this._turn, wasKing, from)
+                - Evaluator.getPiecesScore(captured, this._turn, this._kings);
+
+        if(this._turn) {
+            this._black = (this._black & ~fromMask) | toMask;
+            this._red &= ~captured;
+        }
+        else {
+            this._red = (this._red & ~fromMask) | toMask;
+            this._black &= ~captured;
+        }
+
+        this._kings &= ~(fromMask | captured);
+        if(wasKing || promotion) {
+            this._kings |= toMask;
+        }
+
+        this._turn = !this._turn;
+    }
+
+    /**
+     * Reverts the last move made, which must be the move given.
+     * @param move The move, encoded by {@link CompactMove}.
+     */
+    public void unmakeMove(long move) {
+        this._ply--;
+        this._turn = !this._turn;
+
+        int fromMask = 1 << CompactMove.getFrom(move);
+        int toMask = 1 << CompactMove.getTo(move);
+        int captured = CompactMove.getCaptured(move);
+
+        if(this._turn) {
+            this._black = (this._black & ~toMask) | fromMask;
+            this._red |= captured;
+        }
+        else {
+            this._red = (this._red & ~toMask) | fromMask;
+            this._black |= captured;
+        }
+
+        this._kings = this._previousKings[this._ply];
+        this._hash = this._previousHashes[this._ply];
+        this._pieceScore = this._previousPieceScores[this._ply];
+    }
+
+    /**
+     * @return A new state with the same board, eg. to hand back to the GUI.
+     */
+    public State toState() {
+        return new State(null, this._red, this._black, this._kings, this._turn, this._hash);
+    }
+}
@@ -1,19 +1,144 @@
-import com.sun.istack.internal.Nullable;
+import org.jspecify.annotations.Nullable;
 
 import java.util.ArrayList;
-import java.util.HashSet;
 
 public class State {
-    private ArrayList<PieceState> _pieces;
+    // The board is stored as three masks over the 32 playable tiles, see BitBoard
+    private final int _red;
+    private final int _black;
+    private final int _kings;
     private boolean _turn;
 
+    // Zobrist hash of the masks and turn, see Zobrist
+    private long _hash;
+
+    // List view of the board, only derived from the masks when it is asked for (eg. by the GUI)
+    private ArrayList<PieceState> _pieces;
+
+    // For states created by move generation, the state and single step this one came from. The list view is derived
+    // from the parent's so that unmoved pieces keep their PieceState objects, which the GUI relies on.
+    private State _parent;
+    private int _from;
+    private int _to;
+    private int _captured;
+
     public State(ArrayList<PieceState> pieces, boolean turn) {
+        int red = 0;
+        int black = 0;
+        int kings = 0;
+
+        for(int i = 0; i < pieces.size(); i++) {
+            PieceState p = pieces.get(i);
+
+            if(p.isActive()) {
+                int mask = BitBoard.toMask(p.getX(), p.getY());
+
+                if(i < 12) {
+                    red |= mask;
+                }
+                else {
+                    black |= mask;
+                }
+
+                if(p.isKing()) {
+                    kings |= mask;
+                }
+            }
+        }
+
+        this._red = red;
+        this._black = black;
+        this._kings = kings;
         this._pieces = pieces;
         this._turn = turn;
+        this._hash = Zobrist.computeHash(red, black, kings, turn);
     }
 
+    public State(int red, int black, int kings, boolean turn) {
+        this(null, red, black, kings, turn);
+    }
+
+    /**
+     * Creates a state whose masks and hash are already known, optionally along with a matching list view.
+     * @param pieces Optional list view, this will be derived from the masks if null.
+     * @param red Mask of the red pieces.
+     * @param black Mask of the black pieces.
+     * @param kings Mask of the king pieces (of either colour).
+     * @param turn The turn.
+     * @param hash The Zobrist hash of the masks and turn.
+     */
+    State(@Nullable ArrayList<PieceState> pieces, int red, int black, int kings, boolean turn, long hash) {
+        this._red = red;
+        this._black = black;
+        this._kings = kings;
+        this._pieces = pieces;
+        this._turn = turn;
+        this._hash = hash;
+    }
+
+    /**
+     * Creates a state whose masks are already known, optionally along with a matching list view.
+     * @param pieces Optional list view, this will be derived from the masks if null.
+     * @param red Mask of the red pieces.
+     * @param black Mask of the black pieces.
+     * @param kings Mask of the king pieces (of either colour).
+     * @param turn The turn.
+     */
+    State(@Nullable ArrayList<PieceState> pieces, int red, int black, int kings, boolean turn) {
+        this(pieces, red, black, kings, turn, Zobrist.computeHash(red, black, kings, turn));
+    }
+
+    /**
+     * Creates the state reached by a single step (a regular move or one part of a jump) from {@code parent}.
+     * @param parent The state before the step.
+     * @param from The square the piece moved from.
+     * @param to The square the piece moved to.
+     * @param captured Mask of the pieces captured by the step.
+     * @param red Mask of the red pieces.
+     * @param black Mask of the black pieces.
+     * @param kings Mask of the king pieces.
+     * @param turn The turn.
+     * @param hash The Zobrist hash, updated from the parent's by the step.
+     */
+    State(State parent, int from, int to, int captured, int red, int black, int kings, boolean turn, long hash) {
+        this(null, red, black, kings, turn, hash);
+        this._parent = parent;
+        this._from = from;
+        this._to = to;
+        this._captured = captured;
+    }
+
+    /**
+     * Returns the pieces as a list, where the first 12 are red and the last 12 are black. Inactive pieces are given
+     * coordinates of (-1, -1). The list is derived from the masks the first time it is asked for.
+     * @return The list of pieces.
+     */
     public ArrayList<PieceState> getPieces() {
-        return _pieces;
+        if(this._pieces == null) {
+            if(this._parent != null) {
+                this._pieces = this._derivePiecesFromParent();
+
+                // The parent is no longer needed, so let it be collected
+                this._parent = null;
+            }
+            else {
+                this._pieces = State._derivePieces(this._red, this._black, this._kings);
+            }
+        }
+
+        return this._pieces;
+    }
+
+    public int getRed() {
+        return this._red;
+    }
+
+    public int getBlack() {
+        return this._black;
+    }
+
+    public int getKings() {
+        return this._kings;
     }
 
     public boolean getTurn() {
@@ -21,46 +146,57 @@ public class State {
     }
 
     public void setTurn(boolean turn) {
+        if(turn != this._turn) {
+            this._hash ^= Zobrist.TURN;
+        }
+
         this._turn = turn;
     }
 
     /**
-     * This method returns a list of Moves. Each move contains a current and next state, as well as a potential
-     * following move (for jumps).
-     * @return A list of Moves.
+     * @return The 64-bit Zobrist hash of the state, which is what caches of states should be keyed by.
      */
-    public ArrayList<Move> getSuccessors() {
-        // Convert state rep into a 2d grid
-        int[][] grid = StateManager.create2DGrid(this.getPieces());
-
-        // For each piece in our turn (half of the rep) create Move's if there is an adjacent tile that is empty
-        // or jump-able, and has a direction that is possible (king/not-king). For jumps we must explore the further
-        // jump possibilities.
-
-        ArrayList<Move> moves = new ArrayList<Move>();
-        ArrayList<Move> jumps = new ArrayList<Move>();
-        int index = 0;
-        for(PieceState p: this.getPieces()) {
-            if(index < 12 != this.getTurn() && p.isActive()) {
-                moves.addAll(this._detectMoves(this, p, grid));
-                jumps.addAll(this._detectJumps(this, p, null, this.getTurn(), null));
-            }
+    public long getHash() {
+        return this._hash;
+    }
 
-            index++;
+    /**
+     * States are equal if they have the same pieces on the same squares and the same turn. Which PieceState objects
+     * they use doesn't matter.
+     * @param o The object to compare.
+     * @return Whether the states are equal.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if(this == o) {
+            return true;
         }
 
-        // TODO: It would be more efficient to detect jumps first and only detect moves if there are no jumps
-        // If there are any jumps, in accordance with the rules they should be the only options to the user
-        if(jumps.size() > 0) {
-            moves = jumps;
+        if(!(o instanceof State)) {
+            return false;
         }
 
-        for(Move m: moves) {
-            m.setIsEndMove(true);
-            m.getNext().setTurn(!this.getTurn());
-        }
+        State compare = (State) o;
+
+        return this._hash == compare._hash
+                && this._red == compare._red
+                && this._black == compare._black
+                && this._kings == compare._kings
+                && this._turn == compare._turn;
+    }
 
-        return moves;
+    @Override
+    public int hashCode() {
+        return (int) (this._hash ^ (this._hash >>> 32));
+    }
+
+    /**
+     * This method returns a list of Moves. Each move contains a current and next state, as well as a potential
+     * following move (for jumps).
+     * @return A list of Moves.
+     */
+    public ArrayList<Move> getSuccessors() {
+        return MoveGenerator.getSuccessors(this);
     }
 
     /**
@@ -71,16 +207,7 @@ public class State {
      */
     public boolean isGoalState(boolean turn, ArrayList<Move> successors) {
         // The opponent has no active pieces
-        boolean opponentHasActivePieces = false;
-        int index = 0;
-        for(PieceState p: this.getPieces()) {
-            if(index < 12 == turn && p.isActive()) {
-                opponentHasActivePieces = true;
-                break;
-            }
-
-            index++;
-        }
+        boolean opponentHasActivePieces = (turn ? this._red : this._black) != 0;
 
         // Or, the opponent has no moves they can make
         int numberOfSuccessorStates = successors.size();
@@ -98,6 +225,11 @@ public class State {
     public PieceState getPieceByLocation(int x, int y) {
         PieceState found = null;
 
+        // Only scan the list if the masks say there is something to find
+        if(!BitBoard.isSet(this._red | this._black, x, y)) {
+            return null;
+        }
+
         for(PieceState p: this.getPieces()) {
             if(p.getX() == x && p.getY() == y) {
                 found = p;
@@ -109,167 +241,67 @@ public class State {
     }
 
     /**
-     * Finds any potential jump moves for the given piece and the given state.
-     * @param state The state representation.
-     * @param piece The piece to detect jumps for.
-     * @param previousMove Optional previous move to connect multi-step jumps.
-     * @param overrideTurn The turn of the original state.
-     * @param grid Optional 2d grid of the board, this will be generated if null
-     * @return An array of potential jump moves.
+     * Builds a list view by applying this state's step to a shallow copy of the parent's list, in the same way as
+     * {@link StateManager#createNewState(State, PieceState, PieceState, boolean)}.
+     * @return The list of pieces.
      */
-    private ArrayList<Move> _detectJumps(State state, PieceState piece, @Nullable Move previousMove, boolean overrideTurn, @Nullable int[][] grid) {
-        ArrayList<Move> moves = new ArrayList<Move>();
+    private ArrayList<PieceState> _derivePiecesFromParent() {
+        ArrayList<PieceState> parentPieces = this._parent.getPieces();
+        ArrayList<PieceState> pieces = new ArrayList<PieceState>(parentPieces);
 
-        // If there is no grid (eg. this is the initial call) then create it
-        if(grid == null) {
-            grid = StateManager.create2DGrid(state.getPieces());
-        }
-
-        // Top left
-        moves.addAll(this._detectJumpInDirection(-2, -2, state, piece, previousMove, overrideTurn, grid));
-
-        // Top right
-        moves.addAll(this._detectJumpInDirection(-2, 2, state, piece, previousMove, overrideTurn, grid));
-
-        // Bottom left
-        moves.addAll(this._detectJumpInDirection(2, -2, state, piece, previousMove, overrideTurn, grid));
+        for(int i = 0; i < parentPieces.size(); i++) {
+            PieceState p = parentPieces.get(i);
 
-        // Bottom right
-        moves.addAll(this._detectJumpInDirection(2, 2, state, piece, previousMove, overrideTurn, grid));
+            if(p.isActive()) {
+                int mask = BitBoard.toMask(p.getX(), p.getY());
 
-        return moves;
-    }
-
-    /**
-     * Finds any potential jumps for the given piece and given state in a given direction (decided by xChange and yChange).
-     * @param xChange The change in the x direction.
-     * @param yChange The change in the y direction.
-     * @param state The state representation.
-     * @param piece The piece to detect jumps for.
-     * @param previousMove Optional previous move to connect multi-step jumps.
-     * @param overrideTurn The turn of the original state.
-     * @param grid 2d grid of the board, this will be generated if null
-     * @return An array of potential jump moves.
-     */
-    private ArrayList<Move> _detectJumpInDirection(int xChange, int yChange, State state, PieceState piece, @Nullable Move previousMove, boolean overrideTurn, int[][] grid) {
-        ArrayList<Move> moves = new ArrayList<Move>();
-        HashSet<Integer> enemies = new HashSet<Integer>();
-
-        if(overrideTurn) {
-            enemies.add(1);
-            enemies.add(2);
-        }
-        else {
-            enemies.add(3);
-            enemies.add(4);
-        }
-
-        // Determine if the player is allowed to move up and/or down
-        boolean canMoveTop = overrideTurn || piece.isKing();
-        boolean canMoveBottom = !overrideTurn || piece.isKing();
-        int xDirection = (int) Math.signum(xChange);
-
-        // If player has permission to move in that direction and the space is valid
-        if((xDirection == -1 && canMoveTop || xDirection == 1 && canMoveBottom)
-                && Math.min(0, piece.getX() + xChange) == 0
-                && Math.max(7, piece.getX() + xChange) == 7
-                && Math.min(0, piece.getY() + yChange) == 0
-                && Math.max(7, piece.getY() + yChange) == 7) {
-            // Compute x & y changes (relative to piece) of the tile to be jumped over
-            int inbetweenXChange = State._computeInBetweenChange(xChange);
-            int inbetweenYChange = State._computeInBetweenChange(yChange);
-
-            // If there is an empty space 2 tiles away and in between is an enemy (aka. a potential jump)
-            if(grid[piece.getX() + xChange][piece.getY() + yChange] == 0
-                    && enemies.contains(grid[piece.getX() + inbetweenXChange][piece.getY() + inbetweenYChange])) {
-                // Create state in which the piece has jumped
-                PieceState newPiece = new PieceState(piece.getX() + xChange, piece.getY() + yChange, piece.isKing());
-                newPiece.makeKingIfAtBoardEnd(overrideTurn);
-                State nextState1 = StateManager.createNewState(state, piece, newPiece, false);
-
-                // Create based on the previous one in which the jumped over piece becomes in active
-                PieceState jumpedOver = this.getPieceByLocation(piece.getX() + inbetweenXChange, piece.getY() + inbetweenYChange);
-                State nextState = StateManager.createNewState(nextState1, jumpedOver, new PieceState(-1, -1, jumpedOver.isKing()), false);
-
-                Move newMove = new Move(state, nextState, previousMove);
-                ArrayList<Move> followingMoves = this._detectJumps(nextState, newPiece, newMove, overrideTurn, null);
-
-                // If there were no following moves, then newMove is a completeMove and should be returned
-                if(followingMoves.size() < 1) {
-                    moves.add(newMove);
+                if(mask == 1 << this._from) {
+                    pieces.set(i, new PieceState(BitBoard.getX(this._to), BitBoard.getY(this._to), (this._kings & (1 << this._to)) != 0));
                 }
-                // If there were following moves, then newMove is just a semiMove and shouldn't be returned
-                else {
-                    moves.addAll(followingMoves);
+                else if((mask & this._captured) != 0) {
+                    pieces.set(i, new PieceState(-1, -1, p.isKing()));
                 }
             }
         }
 
-        return moves;
+        return pieces;
     }
 
     /**
-     * Finds any potential regular moves for the given piece and the given state.
-     * @param state The state representation.
-     * @param piece The piece to detect jumps for.
-     * @param grid 2d grid of the board
-     * @return An array of potential jump moves.
+     * Builds a list view from the masks. Pieces are placed in square order, red in the first 12 slots and black in
+     * the last 12, with any unused slots filled by inactive pieces.
+     * @param red Mask of the red pieces.
+     * @param black Mask of the black pieces.
+     * @param kings Mask of the king pieces.
+     * @return The list of pieces.
      */
-    private ArrayList<Move> _detectMoves(State state, PieceState piece, int[][] grid) {
-        ArrayList<Move> moves = new ArrayList<Move>();
+    private static ArrayList<PieceState> _derivePieces(int red, int black, int kings) {
+        ArrayList<PieceState> pieces = new ArrayList<PieceState>(24);
+        State._addPieces(pieces, red, kings);
+        State._addPieces(pieces, black, kings);
 
-        // Top left
-        moves.addAll(this._detectMoveInDirection(-1, -1, state, piece, grid));
-
-        // Top right
-        moves.addAll(this._detectMoveInDirection(-1, 1, state, piece, grid));
-
-        // Bottom left
-        moves.addAll(this._detectMoveInDirection(1, -1, state, piece, grid));
-
-        // Bottom right
-        moves.addAll(this._detectMoveInDirection(1, 1, state, piece, grid));
-
-        return moves;
+        return pieces;
     }
 
     /**
-     * Finds any potential regular moves for the given piece and given state in a given direction (decided by xChange and yChange).
-     * @param xChange The change in the x direction.
-     * @param yChange The change in the y direction.
-     * @param state The state representation.
-     * @param piece The piece to detect jumps for.e.
-     * @param grid 2d grid of the board
-     * @return An array of potential jump moves, however the size will only ever be 0 or 1. The reason for using an array is to avoid null checking.
+     * Appends 12 pieces to {@code pieces}, one for each set square in {@code mask} followed by inactive pieces.
+     * @param pieces The list to append to.
+     * @param mask Mask of the pieces of one colour.
+     * @param kings Mask of the king pieces.
      */
-    private ArrayList<Move> _detectMoveInDirection(int xChange, int yChange, State state, PieceState piece, int[][] grid) {
-        ArrayList<Move> moves = new ArrayList<Move>();
-
-        // The piece can move if has permission to move in that direction, the tile is valid and the destination tile is empty
-        boolean hasPermission = piece.isKing() || (xChange == -1 && state.getTurn()) || (xChange == 1 && !state.getTurn());
-        boolean hasPermissionAndTileIsValid = hasPermission
-                && Math.min(0, piece.getX() + xChange) == 0
-                && Math.max(7, piece.getX() + xChange) == 7
-                && Math.min(0, piece.getY() + yChange) == 0
-                && Math.max(7, piece.getY() + yChange) == 7;
-        boolean hasPermissionAndTileIsValidAndTileIsEmpty = hasPermissionAndTileIsValid
-                && grid[piece.getX() + xChange][piece.getY() + yChange] == 0;
-
-        if (hasPermissionAndTileIsValidAndTileIsEmpty) {
-            PieceState newPiece = new PieceState(piece.getX() + xChange, piece.getY() + yChange, piece.isKing());
-            newPiece.makeKingIfAtBoardEnd(state.getTurn());
-            moves.add(new Move(state, StateManager.createNewState(state, piece, newPiece, true), null));
-        }
+    private static void _addPieces(ArrayList<PieceState> pieces, int mask, int kings) {
+        int count = 0;
 
-        return moves;
-    }
+        while(mask != 0 && count < 12) {
+            int square = Integer.numberOfTrailingZeros(mask);
+            mask &= mask - 1;
 
-    /**
-     * Returns the intermediate direction change. Eg. when x is 2, this returns 1. When x is -2, this returns -1.
-     * @param x
-     * @return The intermediate direction change.
-     */
-    private static int _computeInBetweenChange(int x) {
-        return x + (-1 * (int) Math.signum(x));
+            pieces.add(new PieceState(BitBoard.getX(square), BitBoard.getY(square), (kings & (1 << square)) != 0));
+            count++;
+        }
+
+        for(; count < 12; count++) {
+            pieces.add(new PieceState(-1, -1, false));
+        }
     }
 }
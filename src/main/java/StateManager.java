@@ -60,6 +60,32 @@ public class StateManager {
         return grid;
     }
 
+    /**
+     * Creates the same 2D integer array as {@link #create2DGrid(ArrayList)}, but reads the board straight from the
+     * masks of {@code state} rather than its list of pieces.
+     * @param state
+     * @return 2D integer array
+     */
+    public static int[][] create2DGrid(State state) {
+        int[][] grid = new int[8][8];
+        int occupied = state.getRed() | state.getBlack();
+
+        while(occupied != 0) {
+            int square = Integer.numberOfTrailingZeros(occupied);
+            int mask = 1 << square;
+            occupied &= occupied - 1;
+
+            int value = (state.getRed() & mask) != 0 ? 1 : 3;
+            if((state.getKings() & mask) != 0) {
+                value++;
+            }
+
+            grid[BitBoard.getX(square)][BitBoard.getY(square)] = value;
+        }
+
+        return grid;
+    }
+
     /**
      * Returns the first state to be used in a game, all pieces are in there initial positions.
      * @return The initial game state
@@ -147,13 +173,46 @@ public class StateManager {
         ArrayList<PieceState> tempPieces = (ArrayList<PieceState>) state.getPieces().clone();
         int index = state.getPieces().indexOf(find);
 
+        int red = state.getRed();
+        int black = state.getBlack();
+        int kings = state.getKings();
+        long hash = state.getHash();
+
         if(index >= 0) {
             tempPieces.set(index, replace);
+
+            // Apply the same change to the masks, rather than rebuilding them from the list
+            int findMask = find.isActive() ? BitBoard.toMask(find.getX(), find.getY()) : 0;
+            int replaceMask = replace.isActive() ? BitBoard.toMask(replace.getX(), replace.getY()) : 0;
+
+            if(index < 12) {
+                red = (red & ~findMask) | replaceMask;
+            }
+            else {
+                black = (black & ~findMask) | replaceMask;
+            }
+
+            kings &= ~findMask;
+            if(replace.isKing()) {
+                kings |= replaceMask;
+            }
+
+            // Likewise the hash is updated by swapping out the key of the found piece for the key of its replacement
+            if(findMask != 0) {
+                hash ^= Zobrist.getPieceKey(index < 12, find.isKing(), Integer.numberOfTrailingZeros(findMask));
+            }
+
+            if(replaceMask != 0) {
+                hash ^= Zobrist.getPieceKey(index < 12, replace.isKing(), Integer.numberOfTrailingZeros(replaceMask));
+            }
         }
 
         boolean turn = endTurn ? !state.getTurn() : state.getTurn();
+        if(endTurn) {
+            hash ^= Zobrist.TURN;
+        }
 
-        return new State(tempPieces, turn);
+        return new State(tempPieces, red, black, kings, turn, hash);
     }
 
     /**
@@ -0,0 +1,570 @@
+import org.jspecify.annotations.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+
+/**
+ * An endgame tablebase: the exact result of every position with up to a few pieces, along with how many plies the
+ * game lasts with perfect play. It is built by {@link TablebaseGenerator}.
+ *
+ * Positions are grouped into slices by how many men and kings each side has. Within a slice, each position has an
+ * index made by ranking where the red men, black men, red kings and black kings are, in that order, then the turn.
+ * Men are ranked among the 28 squares they can stand on and kings among the squares left free, so the index is
+ * perfect apart from red and black men sharing a square, which leaves a small number of unused entries.
+ *
+ * Each position is stored as a byte. 0 is a draw (neither player can force a win), otherwise the byte is the number of
+ * plies until the game ends plus one. An odd number of plies is a win for the player whose turn it is and an even
+ * number (including 0, having no moves) is a loss.
+ *
+ * A saved tablebase is compressed in blocks, see {@link CompressedBlockFile}. Loading it maps the file into memory
+ * rather than reading it onto the heap, so a tablebase of several gigabytes can be probed by the search.
+ */
+public class Tablebase implements Closeable {
+    // The most pieces that a slice can hold, as larger slices have more positions than an int can index
+    public static final int MAX_PIECES = 6;
+
+    // The longest win that can be stored, in plies
+    public static final int MAX_DISTANCE = 254;
+
+    public static final int UNKNOWN = -1;
+    public static final int DRAW = 0;
+
+    // The file to load on start up, if it exists
+    public static final String DEFAULT_FILE = "tablebase.bin";
+
+    private static final int MAGIC = 0x434B5442;
+    private static final int VERSION = 2;
+
+    // The number of positions in each compressed block of the file
+    private static final int BLOCK_BITS = 12;
+    private static final int BLOCK_SIZE = 1 << BLOCK_BITS;
+
+    // The squares that men can stand on, as they are crowned on reaching the far row
+    private static final int MAN_SQUARES = 28;
+
+    // Binomial coefficients, BINOMIALS[n][k] = n choose k
+    private static final int[][] BINOMIALS = new int[BitBoard.SQUARES + 1][MAX_PIECES + 1];
+
+    static {
+        for(int n = 0; n <= BitBoard.SQUARES; n++) {
+            BINOMIALS[n][0] = 1;
+
+            for(int k = 1; k <= MAX_PIECES; k++) {
+                BINOMIALS[n][k] = n == 0 ? 0 : BINOMIALS[n - 1][k - 1] + BINOMIALS[n - 1][k];
+            }
+        }
+    }
+
+    private final int _maxPieces;
+
+    // Indexed by material, see getMaterial
+    private final Slice[] _slices = new Slice[1 << 16];
+
+    // The file that a loaded tablebase reads its values from
+    private CompressedBlockFile _file;
+
+    /**
+     * @param maxPieces The most pieces in any position of the tablebase.
+     */
+    Tablebase(int maxPieces) {
+        if(maxPieces < 2 || maxPieces > MAX_PIECES) {
+            throw new IllegalArgumentException("A tablebase holds between 2 and " + MAX_PIECES + " pieces");
+        }
+
+        this._maxPieces = maxPieces;
+    }
+
+    public int getMaxPieces() {
+        return this._maxPieces;
+    }
+
+    /**
+     * Looks up the result of a position.
+     * @param red Mask of the red pieces.
+     * @param black Mask of the black pieces.
+     * @param kings Mask of the king pieces.
+     * @param turn The turn, true for black.
+     * @return {@link #UNKNOWN} if the position isn't in the tablebase, {@link #DRAW}, or a win or loss for the player
+     *         whose turn it is. See {@link #isWin(int)} and {@link #getDistance(int)}.
+     */
+    public int probe(int red, int black, int kings, boolean turn) {
+        return this.probe(red, black, kings, turn, true);
+    }
+
+    /**
+     * Looks up the result of a position, optionally only if it can be found without decompressing a block of a
+     * loaded tablebase. A search uses this to avoid spending longer on a probe than the search would take.
+     * @param red Mask of the red pieces.
+     * @param black Mask of the black pieces.
+     * @param kings Mask of the king pieces.
+     * @param turn The turn, true for black.
+     * @param decode Whether to decompress the block holding the position if the probing thread hasn't cached it.
+     * @return The result, see {@link #probe(int, int, int, boolean)}. This is {@link #UNKNOWN} if the block isn't
+     *         cached and {@code decode} is false.
+     */
+    public int probe(int red, int black, int kings, boolean turn, boolean decode) {
+        int own = turn ? black : red;
+        int enemy = turn ? red : black;
+
+        // A player with no pieces has lost, and can't be indexed
+        if(own == 0) {
+            return 1;
+        }
+        else if(enemy == 0 || Integer.bitCount(red | black) > this._maxPieces) {
+            return UNKNOWN;
+        }
+
+        Slice slice = this._slices[Tablebase.getMaterial(red, black, kings)];
+        if(slice == null) {
+            return UNKNOWN;
+        }
+
+        int index = slice.getIndex(red, black, kings, turn);
+
+        // A generated tablebase holds its values, a loaded one reads them from the file
+        return slice.values != null ? slice.values[index] & 0xFF
+                : this._file.get(slice.firstBlock + (index >>> BLOCK_BITS), index & (BLOCK_SIZE - 1), decode);
+    }
+
+    /**
+     * @param state The state to look up.
+     * @return The result of the state, see {@link #probe(int, int, int, boolean)}.
+     */
+    public int probe(State state) {
+        return this.probe(state.getRed(), state.getBlack(), state.getKings(), state.getTurn());
+    }
+
+    /**
+     * Picks the move with the best result from the tablebase: the quickest win, otherwise a draw, otherwise the
+     * slowest loss.
+     * @param state The state to move from.
+     * @return The move, or null if the state isn't in the tablebase or there are no moves.
+     */
+    @Nullable
+    public Move findMove(State state) {
+        if(this.probe(state) == UNKNOWN) {
+            return null;
+        }
+
+        Move bestMove = null;
+        int bestRank = Integer.MIN_VALUE;
+
+        for(Move move: state.getSuccessors()) {
+            int result = this.probe(move.getNext());
+            if(result == UNKNOWN) {
+                return null;
+            }
+
+            // The result is for the opponent, so their loss is our win
+            int rank;
+            if(result == DRAW) {
+                rank = 0;
+            }
+            else if(Tablebase.isWin(result)) {
+                rank = Tablebase.getDistance(result) - 2 * MAX_DISTANCE;
+            }
+            else {
+                rank = 2 * MAX_DISTANCE - Tablebase.getDistance(result);
+            }
+
+            if(rank > bestRank) {
+                bestRank = rank;
+                bestMove = move;
+            }
+        }
+
+        return bestMove;
+    }
+
+    /**
+     * @param result A result from {@link #probe(int, int, int, boolean)}, other than {@link #UNKNOWN}.
+     * @return Whether the player whose turn it is wins.
+     */
+    public static boolean isWin(int result) {
+        return result != DRAW && (Tablebase.getDistance(result) & 1) == 1;
+    }
+
+    /**
+     * @param result A result from {@link #probe(int, int, int, boolean)}, other than {@link #UNKNOWN}.
+     * @return Whether the player whose turn it is loses.
+     */
+    public static boolean isLoss(int result) {
+        return result != DRAW && (Tablebase.getDistance(result) & 1) == 0;
+    }
+
+    /**
+     * @param result A win or loss from {@link #probe(int, int, int, boolean)}.
+     * @return The number of plies until the game ends.
+     */
+    public static int getDistance(int result) {
+        return result - 1;
+    }
+
+    /**
+     * Converts a result to a search score, where positive scores favour black.
+     * @param result A result from {@link #probe(int, int, int, boolean)}, other than {@link #UNKNOWN}.
+     * @param ply The ply of the position in the search.
+     * @param turn The turn of the position, true for black.
+     * @return The score.
+     */
+    public static int getScore(int result, int ply, boolean turn) {
+        if(result == DRAW) {
+            return 0;
+        }
+
+        // The game ends when the losing player has no moves
+        boolean loser = Tablebase.isWin(result) ? !turn : turn;
+
+        return Evaluator.getLossScore(ply + Tablebase.getDistance(result), loser);
+    }
+
+    /**
+     * @param red Mask of the red pieces.
+     * @param black Mask of the black pieces.
+     * @param kings Mask of the king pieces.
+     * @return A key for the number of men and kings each player has.
+     */
+    public static int getMaterial(int red, int black, int kings) {
+        return Tablebase.getMaterial(Integer.bitCount(red & ~kings), Integer.bitCount(red & kings),
+                Integer.bitCount(black & ~kings), Integer.bitCount(black & kings));
+    }
+
+    static int getMaterial(int redMen, int redKings, int blackMen, int blackKings) {
+        return redMen | redKings << 4 | blackMen << 8 | blackKings << 12;
+    }
+
+    /**
+     * @return The slices in the order they are stored, which is the order they are generated in.
+     */
+    ArrayList<Slice> getSlices() {
+        ArrayList<Slice> slices = new ArrayList<Slice>();
+
+        for(Slice slice: Tablebase.getSliceOrder(this._maxPieces)) {
+            if(this._slices[slice.getMaterial()] != null) {
+                slices.add(this._slices[slice.getMaterial()]);
+            }
+        }
+
+        return slices;
+    }
+
+    /**
+     * Lists every slice where both players have a piece, ordered so that each slice comes after the slices its moves
+     * can lead to. A jump always leads to a slice with fewer pieces and crowning a man to a slice with the same number
+     * of pieces but fewer men, so the slices are ordered by pieces and then by men.
+     * @param maxPieces The most pieces in a slice.
+     * @return The slices, without values.
+     */
+    static ArrayList<Slice> getSliceOrder(int maxPieces) {
+        ArrayList<Slice> slices = new ArrayList<Slice>();
+
+        for(int pieces = 2; pieces <= maxPieces; pieces++) {
+            for(int men = 0; men <= pieces; men++) {
+                for(int redMen = 0; redMen <= men; redMen++) {
+                    for(int redKings = 0; redKings <= pieces - men; redKings++) {
+                        int blackMen = men - redMen;
+                        int blackKings = pieces - men - redKings;
+
+                        if(redMen + redKings > 0 && blackMen + blackKings > 0) {
+                            slices.add(new Slice(redMen, redKings, blackMen, blackKings));
+                        }
+                    }
+                }
+            }
+        }
+
+        return slices;
+    }
+
+    @Nullable
+    Slice getSlice(int material) {
+        return this._slices[material];
+    }
+
+    void addSlice(Slice slice) {
+        this._slices[slice.getMaterial()] = slice;
+    }
+
+    /**
+     * Opens a tablebase written by {@link #save(File)}. The values are memory-mapped rather than read in, and each
+     * thread decompresses blocks of them as they are probed.
+     * @param file The file.
+     * @param cacheBlocks The number of decompressed blocks that each thread keeps.
+     * @return The tablebase, which should be closed once it is no longer used.
+     * @throws IOException If the file can't be read or isn't a tablebase.
+     */
+    public static Tablebase load(File file, int cacheBlocks) throws IOException {
+        Tablebase tablebase;
+        ArrayList<Slice> slices = new ArrayList<Slice>();
+
+        try(DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if(input.readInt() != MAGIC || input.readInt() != VERSION) {
+                throw new IOException(file + " is not a tablebase");
+            }
+
+            tablebase = new Tablebase(input.readInt());
+            int count = input.readInt();
+
+            for(int i = 0; i < count; i++) {
+                slices.add(new Slice(input.readByte(), input.readByte(), input.readByte(), input.readByte()));
+            }
+        }
+
+        tablebase._file = new CompressedBlockFile(FileChannel.open(file.toPath(), StandardOpenOption.READ), cacheBlocks);
+        if(tablebase._file.getBlockSize() != BLOCK_SIZE) {
+            tablebase.close();
+            throw new IOException(file + " has blocks of " + tablebase._file.getBlockSize() + " positions");
+        }
+
+        // Each slice starts on a new block
+        int block = 0;
+        for(Slice slice: slices) {
+            slice.firstBlock = block;
+            block += (slice.size + BLOCK_SIZE - 1) / BLOCK_SIZE;
+            tablebase.addSlice(slice);
+        }
+
+        return tablebase;
+    }
+
+    /**
+     * @see #load(File, int)
+     */
+    public static Tablebase load(File file) throws IOException {
+        return Tablebase.load(file, CompressedBlockFile.DEFAULT_CACHE_BLOCKS);
+    }
+
+    /**
+     * Writes the tablebase to a file: a header listing the material of each slice, then the values of each slice in
+     * compressed blocks. Only a generated tablebase can be saved, not one that was loaded.
+     * @param file The file.
+     * @throws IOException If the file can't be written.
+     */
+    public void save(File file) throws IOException {
+        ArrayList<Slice> slices = this.getSlices();
+
+        try(DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeInt(this._maxPieces);
+            output.writeInt(slices.size());
+
+            for(Slice slice: slices) {
+                output.writeByte(slice.redMen);
+                output.writeByte(slice.redKings);
+                output.writeByte(slice.blackMen);
+                output.writeByte(slice.blackKings);
+            }
+
+            CompressedBlockFile.Writer writer = new CompressedBlockFile.Writer(output, output.size(), BLOCK_SIZE);
+            for(Slice slice: slices) {
+                if(slice.values == null) {
+                    throw new IllegalStateException("Only a generated tablebase can be saved");
+                }
+
+                writer.write(slice.values);
+            }
+
+            writer.finish();
+        }
+    }
+
+    /**
+     * Unmaps the file of a loaded tablebase.
+     * @throws IOException If the file can't be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        if(this._file != null) {
+            this._file.close();
+        }
+    }
+
+    /**
+     * @return The number of probes of a loaded tablebase whose block was already decompressed by the probing thread.
+     */
+    public long getCacheHits() {
+        return this._file == null ? 0 : this._file.getHits();
+    }
+
+    /**
+     * @return The number of probes of a loaded tablebase that had to decompress a block.
+     */
+    public long getCacheMisses() {
+        return this._file == null ? 0 : this._file.getMisses();
+    }
+
+    /**
+     * @return The time spent decompressing blocks, in nanoseconds.
+     */
+    public long getDecodeTime() {
+        return this._file == null ? 0 : this._file.getDecodeTime();
+    }
+
+    /**
+     * The positions with a given number of men and kings for each player.
+     */
+    static class Slice {
+        final int redMen;
+        final int redKings;
+        final int blackMen;
+        final int blackKings;
+        final int size;
+
+        // The values of a generated slice, or the first block of the values of a loaded slice
+        byte[] values;
+        int firstBlock;
+
+        // The number of ways to place each group of pieces, once the groups before it are placed
+        private final int _redMenWays;
+        private final int _blackMenWays;
+        private final int _redKingsWays;
+        private final int _blackKingsWays;
+
+        Slice(int redMen, int redKings, int blackMen, int blackKings) {
+            this.redMen = redMen;
+            this.redKings = redKings;
+            this.blackMen = blackMen;
+            this.blackKings = blackKings;
+
+            int men = redMen + blackMen;
+            this._redMenWays = BINOMIALS[MAN_SQUARES][redMen];
+            this._blackMenWays = BINOMIALS[MAN_SQUARES][blackMen];
+            this._redKingsWays = BINOMIALS[BitBoard.SQUARES - men][redKings];
+            this._blackKingsWays = BINOMIALS[BitBoard.SQUARES - men - redKings][blackKings];
+            this.size = this._redMenWays * this._blackMenWays * this._redKingsWays * this._blackKingsWays * 2;
+        }
+
+        int getMaterial() {
+            return Tablebase.getMaterial(this.redMen, this.redKings, this.blackMen, this.blackKings);
+        }
+
+        int getPieces() {
+            return this.redMen + this.redKings + this.blackMen + this.blackKings;
+        }
+
+        /**
+         * @return The slice with the colours swapped.
+         */
+        Slice mirror() {
+            return new Slice(this.blackMen, this.blackKings, this.redMen, this.redKings);
+        }
+
+        /**
+         * @param red Mask of the red pieces.
+         * @param black Mask of the black pieces.
+         * @param kings Mask of the king pieces.
+         * @param turn The turn, true for black.
+         * @return The index of the position, which must have this slice's material.
+         */
+        int getIndex(int red, int black, int kings, boolean turn) {
+            int redMen = red & ~kings;
+            int blackMen = black & ~kings;
+            int free = ~(redMen | blackMen);
+
+            // Red men never stand on red's king row, squares 28-31, and black men never stand on black's, squares 0-3,
+            // so each is ranked among the other 28 squares
+            int index = Slice._rank(redMen, -1);
+            index = index * this._blackMenWays + Slice._rank(blackMen >>> 4, -1);
+            index = index * this._redKingsWays + Slice._rank(red & kings, free);
+            index = index * this._blackKingsWays + Slice._rank(black & kings, free & ~red);
+
+            return index * 2 + (turn ? 1 : 0);
+        }
+
+        /**
+         * Finds the position with an index. Unused indexes, where a red man and a black man share a square, give a
+         * position where the two masks overlap.
+         * @param index The index of the position.
+         * @param position Filled with the red mask, black mask, kings mask and turn (1 for black).
+         */
+        void getPosition(int index, int[] position) {
+            position[3] = index & 1;
+            index >>>= 1;
+
+            int blackKingsRank = index % this._blackKingsWays;
+            index /= this._blackKingsWays;
+            int redKingsRank = index % this._redKingsWays;
+            index /= this._redKingsWays;
+            int blackMenRank = index % this._blackMenWays;
+            int redMenRank = index / this._blackMenWays;
+
+            int redMen = Slice._unrank(redMenRank, this.redMen, -1);
+            int blackMen = Slice._unrank(blackMenRank, this.blackMen, -1) << 4;
+            int free = ~(redMen | blackMen);
+            int redKings = Slice._unrank(redKingsRank, this.redKings, free);
+            int blackKings = Slice._unrank(blackKingsRank, this.blackKings, free & ~redKings);
+
+            position[0] = redMen | redKings;
+            position[1] = blackMen | blackKings;
+            position[2] = redKings | blackKings;
+        }
+
+        /**
+         * Ranks a set of squares among all sets of the same size (the combinatorial number system).
+         * @param squares The squares to rank.
+         * @param available The squares that could have been used, counted from the bottom.
+         * @return The rank.
+         */
+        private static int _rank(int squares, int available) {
+            int rank = 0;
+
+            for(int i = 1; squares != 0; i++) {
+                int square = Integer.numberOfTrailingZeros(squares);
+                squares &= squares - 1;
+
+                // The square's position among the available squares
+                int position = Integer.bitCount(available & ((1 << square) - 1));
+                rank += BINOMIALS[position][i];
+            }
+
+            return rank;
+        }
+
+        /**
+         * The reverse of {@link #_rank(int, int)}.
+         * @param rank The rank.
+         * @param count The number of squares in the set.
+         * @param available The squares that could have been used.
+         * @return The squares.
+         */
+        private static int _unrank(int rank, int count, int available) {
+            int squares = 0;
+            int position = BitBoard.SQUARES;
+
+            for(int i = count; i > 0; i--) {
+                // Find the highest position whose binomial fits in what is left of the rank
+                do {
+                    position--;
+                }
+                while(BINOMIALS[position][i] > rank);
+
+                rank -= BINOMIALS[position][i];
+                squares |= Slice._selectSquare(available, position);
+            }
+
+            return squares;
+        }
+
+        /**
+         * @return A mask of the n-th set square (from 0) in {@code available}.
+         */
+        private static int _selectSquare(int available, int n) {
+            for(int i = 0; i < n; i++) {
+                available &= available - 1;
+            }
+
+            return available & -available;
+        }
+    }
+}
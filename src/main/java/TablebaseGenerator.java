@@ -0,0 +1,383 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Builds a {@link Tablebase} by retrograde analysis. Slices are solved in the order given by
+ * {@link Tablebase#getSliceOrder(int)}, so every jump or crowning leads to a slice that is already solved, and the only
+ * moves left to work out are the quiet moves within the slice.
+ *
+ * Each slice is solved in two steps. First every position's moves are generated (in parallel), which finds the
+ * positions with no moves, the results of moves that leave the slice, and the number of moves that stay in it. Then
+ * results are spread backwards one ply at a time: a position one move away from a loss is a win, and a position
+ * whose every move leads to a win for the opponent is a loss. Whatever is left over is a draw.
+ *
+ * Slices with the same number of pieces and men don't depend on each other, so they are solved in parallel. A slice
+ * and its mirror image, with the colours swapped and the board turned around, have the same results, so only one of
+ * each pair is solved.
+ *
+ * Usage: TablebaseGenerator [options]
+ *   -n, --pieces N       The most pieces in a position, up to {@link Tablebase#MAX_PIECES} (default 6)
+ *   -o, --output FILE    The file to write (default {@link Tablebase#DEFAULT_FILE})
+ *   -t, --threads N      The number of threads to use (default all processors)
+ */
+public class TablebaseGenerator {
+    // The number of positions that each parallel task generates moves for
+    private static final int CHUNK_SIZE = 1 << 14;
+
+    // Marks a position that can't be a loss, as it has a move that leaves the slice and doesn't lose
+    private static final int NOT_LOSS = 0xFF;
+
+    private final Tablebase _tablebase;
+    private final ForkJoinPool _pool;
+
+    /**
+     * @param maxPieces The most pieces in a position.
+     * @param threads The number of threads to use.
+     */
+    public TablebaseGenerator(int maxPieces, int threads) {
+        this._tablebase = new Tablebase(maxPieces);
+        this._pool = new ForkJoinPool(threads);
+    }
+
+    /**
+     * Solves every slice.
+     * @param progress Whether to print each slice as it is solved.
+     * @return The tablebase.
+     */
+    public Tablebase generate(boolean progress) {
+        ArrayList<Tablebase.Slice> order = Tablebase.getSliceOrder(this._tablebase.getMaxPieces());
+
+        try {
+            for(int i = 0; i < order.size(); ) {
+                // Gather the slices with the same number of pieces and men, keeping one of each mirror image pair
+                Tablebase.Slice first = order.get(i);
+                ArrayList<Tablebase.Slice> group = new ArrayList<Tablebase.Slice>();
+
+                for(; i < order.size() && order.get(i).getPieces() == first.getPieces()
+                        && order.get(i).redMen + order.get(i).blackMen == first.redMen + first.blackMen; i++) {
+                    Tablebase.Slice slice = order.get(i);
+
+                    if(slice.getMaterial() <= slice.mirror().getMaterial()) {
+                        group.add(slice);
+                    }
+                }
+
+                this._pool.submit(() -> group.parallelStream().forEach(slice -> {
+                    long start = System.nanoTime();
+                    this._solve(slice);
+
+                    if(progress) {
+                        System.out.printf("%d+%dk v %d+%dk: %,d positions in %.1fs%n", slice.redMen, slice.redKings,
+                                slice.blackMen, slice.blackKings, slice.size, (System.nanoTime() - start) / 1e9);
+                    }
+                })).get();
+
+                // The mirror images have to be added after the whole group, as the solved slices are read in parallel
+                for(Tablebase.Slice slice: group) {
+                    this._tablebase.addSlice(slice);
+
+                    if(slice.getMaterial() != slice.mirror().getMaterial()) {
+                        this._tablebase.addSlice(this._mirror(slice));
+                    }
+                }
+            }
+        }
+        catch(InterruptedException | ExecutionException e) {
+            throw new RuntimeException(e);
+        }
+        finally {
+            this._pool.shutdown();
+        }
+
+        return this._tablebase;
+    }
+
+    /**
+     * Works out the result of every position in a slice.
+     * @param slice The slice, whose values are filled in.
+     */
+    private void _solve(Tablebase.Slice slice) {
+        byte[] values = new byte[slice.size];
+        // The number of moves to positions in the slice that aren't known to be wins for the opponent yet
+        byte[] counts = new byte[slice.size];
+        // The longest loss through the moves that leave the slice, or NOT_LOSS
+        byte[] floors = new byte[slice.size];
+        // The quickest win through the moves that leave the slice, or 0
+        byte[] exits = new byte[slice.size];
+
+        int chunks = (slice.size + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        int last = IntStream.range(0, chunks).parallel().map(chunk -> {
+            int end = Math.min(slice.size, (chunk + 1) * CHUNK_SIZE);
+            return this._generate(slice, chunk * CHUNK_SIZE, end, values, counts, floors, exits);
+        }).max().orElse(0);
+
+        // Spread the results backwards one ply at a time. A result found while spreading distance d is always for a
+        // greater distance, so it will be reached by a later pass.
+        int[] position = new int[4];
+        for(int distance = 0; distance <= last; distance++) {
+            int value = distance + 1;
+
+            for(int index = 0; index < slice.size; index++) {
+                // A win through a move that leaves the slice, which nothing in the slice has beaten
+                if(values[index] == 0 && exits[index] != 0 && (exits[index] & 0xFF) == distance) {
+                    values[index] = (byte) value;
+                }
+
+                if((values[index] & 0xFF) == value) {
+                    slice.getPosition(index, position);
+                    last = Math.max(last, this._unmove(slice, position, distance, values, counts, floors));
+                }
+            }
+        }
+
+        slice.values = values;
+    }
+
+    /**
+     * Generates the moves of some positions and records what they lead to.
+     * @return The greatest distance of any result found.
+     */
+    private int _generate(Tablebase.Slice slice, int start, int end, byte[] values, byte[] counts, byte[] floors, byte[] exits) {
+        int[] position = new int[4];
+        MoveList moves = new MoveList();
+        int last = 0;
+
+        for(int index = start; index < end; index++) {
+            slice.getPosition(index, position);
+            int red = position[0];
+            int black = position[1];
+            int kings = position[2];
+            boolean turn = position[3] == 1;
+
+            // Skip the unused indexes where men overlap
+            if((red & black) != 0) {
+                floors[index] = (byte) NOT_LOSS;
+                continue;
+            }
+
+            MoveGenerator.generate(red, black, kings, turn, moves);
+
+            if(moves.size() == 0) {
+                values[index] = 1;
+                continue;
+            }
+
+            int count = 0;
+            int floor = 0;
+            int exit = 0;
+
+            for(int i = 0; i < moves.size(); i++) {
+                long move = moves.get(i);
+
+                if(CompactMove.getCaptured(move) == 0 && !CompactMove.isPromotion(move)) {
+                    count++;
+                    continue;
+                }
+
+                int result = this._probeAfter(red, black, kings, turn, move);
+                if(result != Tablebase.DRAW && Tablebase.getDistance(result) >= Tablebase.MAX_DISTANCE) {
+                    throw new IllegalStateException("A win is longer than " + Tablebase.MAX_DISTANCE + " plies");
+                }
+
+                if(result == Tablebase.DRAW) {
+                    floor = NOT_LOSS;
+                }
+                else if(Tablebase.isLoss(result)) {
+                    int distance = Tablebase.getDistance(result) + 1;
+                    exit = exit == 0 ? distance : Math.min(exit, distance);
+                    floor = NOT_LOSS;
+                }
+                else if(floor != NOT_LOSS) {
+                    floor = Math.max(floor, Tablebase.getDistance(result) + 1);
+                }
+            }
+
+            counts[index] = (byte) count;
+            floors[index] = (byte) floor;
+            exits[index] = (byte) exit;
+
+            // Every move leaves the slice and loses
+            if(count == 0 && floor != NOT_LOSS) {
+                values[index] = (byte) (floor + 1);
+                last = Math.max(last, floor);
+            }
+            else if(exit != 0) {
+                last = Math.max(last, exit);
+            }
+        }
+
+        return last;
+    }
+
+    /**
+     * Finds the positions one quiet move before a solved position, and updates them with its result.
+     * @param position The red mask, black mask, kings mask and turn of the solved position.
+     * @param distance The distance of the solved position's result.
+     * @return The greatest distance of any result found.
+     */
+    private int _unmove(Tablebase.Slice slice, int[] position, int distance, byte[] values, byte[] counts, byte[] floors) {
+        int red = position[0];
+        int black = position[1];
+        int kings = position[2];
+        // The player who made the move
+        boolean turn = position[3] == 0;
+        int own = turn ? black : red;
+        int empty = ~(red | black);
+        boolean isLoss = (distance & 1) == 0;
+        int last = 0;
+
+        if(distance + 1 > Tablebase.MAX_DISTANCE) {
+            throw new IllegalStateException("A win is longer than " + Tablebase.MAX_DISTANCE + " plies");
+        }
+
+        while(own != 0) {
+            int square = Integer.numberOfTrailingZeros(own);
+            own &= own - 1;
+            boolean isKing = (kings & (1 << square)) != 0;
+
+            for(int direction = 0; direction < 4; direction++) {
+                // Men only move forwards, so they came from behind
+                int from = BitBoard.NEIGHBOURS[direction][square];
+                if(from < 0 || (empty & (1 << from)) == 0 || !(isKing || BitBoard.isUpwards(direction) != turn)) {
+                    continue;
+                }
+
+                int moved = (1 << square) | (1 << from);
+                int previousRed = turn ? red : red ^ moved;
+                int previousBlack = turn ? black ^ moved : black;
+                int previousKings = isKing ? kings ^ moved : kings;
+
+                // The move wasn't allowed if there was a jump to take instead
+                int previousOwn = turn ? previousBlack : previousRed;
+                int previousEnemy = turn ? previousRed : previousBlack;
+                if(BitBoard.getJumpers(previousOwn, previousEnemy, previousKings, turn) != 0) {
+                    continue;
+                }
+
+                int previous = slice.getIndex(previousRed, previousBlack, previousKings, turn);
+                if(values[previous] != 0) {
+                    continue;
+                }
+
+                if(isLoss) {
+                    // A move to a loss for the opponent is a win, and this is the quickest one
+                    values[previous] = (byte) (distance + 2);
+                    last = Math.max(last, distance + 1);
+                }
+                else {
+                    // Once every move is known to lose, the position is lost, as slowly as possible
+                    int floor = floors[previous] & 0xFF;
+                    if(floor != NOT_LOSS) {
+                        floors[previous] = (byte) Math.max(floor, distance + 1);
+                    }
+
+                    if(--counts[previous] == 0 && floor != NOT_LOSS) {
+                        int lossDistance = floors[previous] & 0xFF;
+                        values[previous] = (byte) (lossDistance + 1);
+                        last = Math.max(last, lossDistance);
+                    }
+                }
+            }
+        }
+
+        return last;
+    }
+
+    /**
+     * @return The result of the position after a move that leaves the slice, for the player whose turn it is then.
+     */
+    private int _probeAfter(int red, int black, int kings, boolean turn, long move) {
+        int fromMask = 1 << CompactMove.getFrom(move);
+        int toMask = 1 << CompactMove.getTo(move);
+        int captured = CompactMove.getCaptured(move);
+        boolean isKing = (kings & fromMask) != 0 || CompactMove.isPromotion(move);
+
+        if(turn) {
+            black = (black & ~fromMask) | toMask;
+            red &= ~captured;
+        }
+        else {
+            red = (red & ~fromMask) | toMask;
+            black &= ~captured;
+        }
+
+        kings &= ~(fromMask | captured);
+        if(isKing) {
+            kings |= toMask;
+        }
+
+        return this._tablebase.probe(red, black, kings, !turn);
+    }
+
+    /**
+     * Fills in a slice's mirror image, where the colours are swapped and the board is turned around.
+     * @param slice The solved slice.
+     * @return The mirror image.
+     */
+    private Tablebase.Slice _mirror(Tablebase.Slice slice) {
+        Tablebase.Slice mirror = slice.mirror();
+        mirror.values = new byte[mirror.size];
+
+        int chunks = (mirror.size + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        try {
+            this._pool.submit(() -> IntStream.range(0, chunks).parallel().forEach(chunk -> {
+                int[] position = new int[4];
+                int end = Math.min(mirror.size, (chunk + 1) * CHUNK_SIZE);
+
+                for(int index = chunk * CHUNK_SIZE; index < end; index++) {
+                    mirror.getPosition(index, position);
+
+                    if((position[0] & position[1]) == 0) {
+                        // Turning the board around reverses the square numbers
+                        int red = Integer.reverse(position[1]);
+                        int black = Integer.reverse(position[0]);
+                        int kings = Integer.reverse(position[2]);
+
+                        mirror.values[index] = slice.values[slice.getIndex(red, black, kings, position[3] == 0)];
+                    }
+                }
+            })).get();
+        }
+        catch(InterruptedException | ExecutionException e) {
+            throw new RuntimeException(e);
+        }
+
+        return mirror;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int pieces = Tablebase.MAX_PIECES;
+        File output = new File(Tablebase.DEFAULT_FILE);
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        for(int i = 0; i < args.length; i++) {
+            switch(args[i]) {
+                case "-n":
+                case "--pieces":
+                    pieces = Integer.parseInt(args[++i]);
+                    break;
+                case "-o":
+                case "--output":
+                    output = new File(args[++i]);
+                    break;
+                case "-t":
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(2);
+            }
+        }
+
+        long start = System.nanoTime();
+        Tablebase tablebase = new TablebaseGenerator(pieces, threads).generate(true);
+        tablebase.save(output);
+
+        System.out.printf("Wrote %s (%,d bytes) in %.1fs%n", output, output.length(), (System.nanoTime() - start) / 1e9);
+    }
+}
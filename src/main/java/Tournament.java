@@ -0,0 +1,739 @@
+import org.jspecify.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Plays games between two engine configurations without the GUI, to check whether a change to the engine makes it
+ * stronger or weaker.
+ *
+ * Each opening is made of a few random moves from the initial state (or moves from an opening book), and is played
+ * twice with the players swapping colours, so that neither player benefits from a lucky opening. Games are played in
+ * parallel, each worker thread keeping its own pair of single-threaded engines.
+ *
+ * Games end when a player has no moves, and are otherwise adjudicated: by the tablebase if one is loaded, as a win when
+ * both engines' searches agree that one side has a forced win, or as a draw after too many plies, too many plies
+ * without a capture or a man moving, or a position repeating.
+ *
+ * After each game a sequential probability ratio test (SPRT) weighs up whether the first player is at least
+ * {@code elo1} stronger (H1) or at most {@code elo0} stronger (H0), and the tournament stops as soon as either is
+ * accepted, or when the most games have been played.
+ *
+ * Usage: Tournament [options]
+ *   -a SPEC              The first player, eg. "time=100,lmr=false" (see {@link Player#parse(String)})
+ *   -b SPEC              The second player
+ *   -g, --games N        The most games to play (default 1000)
+ *   -c, --concurrency N  The number of games to play at once (default all processors)
+ *   -p, --plies N        The number of random moves in each opening (default 4)
+ *   --book FILE          Take opening moves from a book, then random moves once it runs out
+ *   --tablebase FILE     Adjudicate endgames with a tablebase, which the players may also use
+ *   --elo0 N, --elo1 N   The Elo differences of H0 and H1 (default 0 and 10)
+ *   --alpha N, --beta N  The chances of accepting H1 or H0 wrongly (default 0.05)
+ *   --seed N             The seed for the openings
+ */
+public class Tournament {
+    // Games that go on this long are drawn
+    private static final int MAX_PLIES = 300;
+
+    // Games are drawn after this many plies without a capture or a man moving, as only kings are shuffling around
+    private static final int QUIET_PLIES = 80;
+
+    // Games are drawn when a position comes up this many times
+    private static final int REPETITIONS = 3;
+
+    // The size of each engine's transposition table, in megabytes. There are two engines per worker thread.
+    private static final int TABLE_SIZE = 8;
+
+    // How many games to play between progress reports
+    private static final int REPORT_INTERVAL = 20;
+
+    private final Player _first;
+    private final Player _second;
+    private final int _concurrency;
+
+    private int _maxGames = 1000;
+    private int _openingPlies = 4;
+    private long _seed = System.nanoTime();
+    private double _elo0 = 0;
+    private double _elo1 = 10;
+    private double _alpha = 0.05;
+    private double _beta = 0.05;
+    private Tablebase _tablebase;
+    private OpeningBook _book;
+    private PrintStream _output;
+
+    // Set once the SPRT has finished, so that the workers stop starting games
+    private volatile boolean _stopped;
+
+    /**
+     * @param first The first player, whose strength is measured against the second.
+     * @param second The second player.
+     * @param concurrency The number of games to play at once.
+     */
+    public Tournament(Player first, Player second, int concurrency) {
+        this._first = first;
+        this._second = second;
+        this._concurrency = Math.max(1, concurrency);
+    }
+
+    public void setMaxGames(int maxGames) {
+        this._maxGames = maxGames;
+    }
+
+    public void setOpeningPlies(int openingPlies) {
+        this._openingPlies = openingPlies;
+    }
+
+    public void setSeed(long seed) {
+        this._seed = seed;
+    }
+
+    /**
+     * @param elo0 The Elo difference of H0, that the first player is no stronger than this.
+     * @param elo1 The Elo difference of H1, that the first player is at least this much stronger.
+     * @param alpha The chance of accepting H1 when H0 is true.
+     * @param beta The chance of accepting H0 when H1 is true.
+     */
+    public void setSprt(double elo0, double elo1, double alpha, double beta) {
+        this._elo0 = elo0;
+        this._elo1 = elo1;
+        this._alpha = alpha;
+        this._beta = beta;
+    }
+
+    /**
+     * @param tablebase The tablebase to adjudicate endgames with, which players that use a tablebase also search with,
+     *                  or null for none.
+     */
+    public void setTablebase(@Nullable Tablebase tablebase) {
+        this._tablebase = tablebase;
+    }
+
+    /**
+     * @param book The book to take opening moves from, or null for random moves only.
+     */
+    public void setOpeningBook(@Nullable OpeningBook book) {
+        this._book = book;
+    }
+
+    /**
+     * @param output Where to report progress, or null for nowhere.
+     */
+    public void setOutput(@Nullable PrintStream output) {
+        this._output = output;
+    }
+
+    /**
+     * Plays games until the SPRT finishes or the most games have been played.
+     * @return The first player's score against the second.
+     * @throws InterruptedException If the thread is interrupted while waiting for games.
+     */
+    public Score run() throws InterruptedException {
+        Random random = new Random(this._seed);
+        ArrayList<State> openings = new ArrayList<State>();
+        for(int i = 0; i < (this._maxGames + 1) / 2; i++) {
+            openings.add(this._createOpening(random));
+        }
+
+        // Each worker thread has its own engines, which are reused from game to game
+        ThreadLocal<Engine[]> engines = ThreadLocal.withInitial(() -> new Engine[] {
+                this._first.createEngine(TABLE_SIZE, this._tablebase),
+                this._second.createEngine(TABLE_SIZE, this._tablebase)
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(this._concurrency, runnable -> {
+            Thread thread = new Thread(runnable, "tournament");
+            thread.setDaemon(true);
+            return thread;
+        });
+        CompletionService<Game> games = new ExecutorCompletionService<Game>(executor);
+
+        this._stopped = false;
+        for(int i = 0; i < this._maxGames; i++) {
+            State opening = openings.get(i / 2);
+            // The first player is black in the first game of each pair, and red in the second
+            boolean firstIsBlack = i % 2 == 0;
+
+            games.submit(() -> {
+                if(this._stopped) {
+                    return null;
+                }
+
+                Engine[] pair = engines.get();
+                return firstIsBlack
+                        ? this.playGame(opening, pair[1], this._second, pair[0], this._first, true)
+                        : this.playGame(opening, pair[0], this._first, pair[1], this._second, false);
+            });
+        }
+
+        Score score = new Score();
+        long start = System.currentTimeMillis();
+
+        try {
+            for(int i = 0; i < this._maxGames && !this._stopped; i++) {
+                Game game;
+                try {
+                    game = games.take().get();
+                }
+                catch(ExecutionException e) {
+                    throw new IllegalStateException("A game failed", e.getCause());
+                }
+
+                score.add(game);
+                score.setElapsed(System.currentTimeMillis() - start);
+
+                double llr = score.getLogLikelihoodRatio(this._elo0, this._elo1);
+                if(llr <= Score.getLowerBound(this._beta) || llr >= Score.getUpperBound(this._alpha)) {
+                    this._stopped = true;
+                }
+
+                if(this._output != null && score.getGames() % REPORT_INTERVAL == 0 && !this._stopped) {
+                    this._output.println(this._describe(score));
+                }
+            }
+        }
+        finally {
+            this._stopped = true;
+            executor.shutdownNow();
+        }
+
+        return score;
+    }
+
+    /**
+     * Plays a game to the end or until it is adjudicated.
+     * @param opening The state to start from.
+     * @param redEngine The engine that plays red.
+     * @param red The player that plays red.
+     * @param blackEngine The engine that plays black.
+     * @param black The player that plays black.
+     * @param firstIsBlack Whether the first player of the tournament plays black.
+     * @return The game.
+     */
+    public Game playGame(State opening, Engine redEngine, Player red, Engine blackEngine, Player black, boolean firstIsBlack) {
+        redEngine.clear();
+        blackEngine.clear();
+
+        State state = opening;
+        HashMap<Long, Integer> positions = new HashMap<Long, Integer>();
+        int quietPlies = 0;
+        // The last search score of each player, red then black
+        int[] scores = new int[2];
+
+        for(int ply = 0; ; ply++) {
+            ArrayList<Move> successors = state.getSuccessors();
+            boolean turn = state.getTurn();
+
+            if(successors.isEmpty()) {
+                return new Game(turn ? -1 : 1, "no moves", ply, firstIsBlack);
+            }
+
+            if(this._tablebase != null) {
+                int result = this._tablebase.probe(state);
+
+                if(result != Tablebase.UNKNOWN) {
+                    return new Game(result == Tablebase.DRAW ? 0 : Tablebase.isWin(result) == turn ? 1 : -1, "tablebase", ply, firstIsBlack);
+                }
+            }
+
+            if(Math.abs(scores[0]) >= Evaluator.WIN_THRESHOLD && Math.abs(scores[1]) >= Evaluator.WIN_THRESHOLD
+                    && Integer.signum(scores[0]) == Integer.signum(scores[1])) {
+                return new Game(Integer.signum(scores[0]), "forced win", ply, firstIsBlack);
+            }
+
+            if(ply >= MAX_PLIES) {
+                return new Game(0, "move limit", ply, firstIsBlack);
+            }
+
+            if(quietPlies >= QUIET_PLIES) {
+                return new Game(0, "no progress", ply, firstIsBlack);
+            }
+
+            if(positions.merge(state.getHash(), 1, Integer::sum) >= REPETITIONS) {
+                return new Game(0, "repetition", ply, firstIsBlack);
+            }
+
+            Move move;
+            if(successors.size() == 1) {
+                move = successors.get(0);
+            }
+            else {
+                Engine engine = turn ? blackEngine : redEngine;
+                Player player = turn ? black : red;
+
+                move = engine.search(state, player.timeBudget, player.nodeBudget, player.depthLimit);
+                scores[turn ? 1 : 0] = engine.getScore();
+            }
+
+            State next = move.getNext();
+
+            // Captures and men moving can't be undone, so earlier positions can't come up again
+            int men = (state.getRed() | state.getBlack()) & ~state.getKings();
+            int nextMen = (next.getRed() | next.getBlack()) & ~next.getKings();
+            if(Integer.bitCount(state.getRed() | state.getBlack()) != Integer.bitCount(next.getRed() | next.getBlack()) || men != nextMen) {
+                quietPlies = 0;
+                positions.clear();
+            }
+            else {
+                quietPlies++;
+            }
+
+            state = next;
+        }
+    }
+
+    /**
+     * Makes an opening from the initial state, taking moves from the book while it has them and random moves after
+     * that. Openings where the game is already over are thrown away.
+     * @param random The source of randomness.
+     * @return The opening.
+     */
+    private State _createOpening(Random random) {
+        while(true) {
+            State state = StateManager.createInitialState();
+
+            for(int ply = 0; ply < this._openingPlies && !state.getSuccessors().isEmpty(); ply++) {
+                Move move = this._book == null ? null : this._book.findMove(state, random);
+
+                if(move == null) {
+                    ArrayList<Move> moves = state.getSuccessors();
+                    move = moves.get(random.nextInt(moves.size()));
+                }
+
+                state = move.getNext();
+            }
+
+            if(!state.getSuccessors().isEmpty()) {
+                return state;
+            }
+        }
+    }
+
+    private String _describe(Score score) {
+        return String.format("Games: %d (+%d =%d -%d)    Elo: %.1f +/- %.1f    LLR: %.2f [%.2f, %.2f]    %.1f games/min",
+                score.getGames(), score.getWins(), score.getDraws(), score.getLosses(),
+                score.getElo(), score.getEloError(),
+                score.getLogLikelihoodRatio(this._elo0, this._elo1), Score.getLowerBound(this._beta), Score.getUpperBound(this._alpha),
+                score.getGamesPerMinute());
+    }
+
+    /**
+     * @return Which hypothesis the SPRT accepted, if any.
+     */
+    private String _describeResult(Score score) {
+        double llr = score.getLogLikelihoodRatio(this._elo0, this._elo1);
+
+        if(llr >= Score.getUpperBound(this._alpha)) {
+            return "H1 accepted: the first player is stronger by at least " + this._elo1 + " Elo";
+        }
+        else if(llr <= Score.getLowerBound(this._beta)) {
+            return "H0 accepted: the first player is not stronger by more than " + this._elo0 + " Elo";
+        }
+
+        return "Inconclusive after " + score.getGames() + " games";
+    }
+
+    /**
+     * An engine configuration that takes part in a tournament.
+     */
+    public static class Player {
+        long timeBudget = 100;
+        long nodeBudget = 0;
+        int depthLimit = Engine.MAX_DEPTH;
+        Engine.SearchMode searchMode = Engine.SearchMode.PRINCIPAL_VARIATION;
+        boolean lateMoveReductions = true;
+        boolean probCut = true;
+        boolean tablebase = true;
+
+        /**
+         * Reads a player from a comma-separated list of settings, eg. "time=100,depth=8,probcut=false". Settings that
+         * aren't given keep their defaults.
+         *   time=MS                 The time to search each move for (default 100)
+         *   nodes=N                 The most evaluations for each move, or 0 for no limit (default 0)
+         *   depth=N                 The deepest iteration to search (default {@link Engine#MAX_DEPTH})
+         *   mode=pvs|alphabeta      The search algorithm (default pvs)
+         *   lmr=true|false          Late move reductions (default true)
+         *   probcut=true|false      ProbCut (default true)
+         *   tablebase=true|false    Whether to search with the tournament's tablebase, if it has one (default true)
+         * @param spec The settings.
+         * @return The player.
+         */
+        public static Player parse(String spec) {
+            Player player = new Player();
+
+            for(String setting: spec.split(",")) {
+                if(setting.trim().isEmpty()) {
+                    continue;
+                }
+
+                String[] parts = setting.split("=", 2);
+                if(parts.length != 2) {
+                    throw new IllegalArgumentException("Expected name=value: " + setting);
+                }
+
+                String value = parts[1].trim();
+                switch(parts[0].trim()) {
+                    case "time":
+                        player.timeBudget = Long.parseLong(value);
+                        break;
+                    case "nodes":
+                        player.nodeBudget = Long.parseLong(value);
+                        break;
+                    case "depth":
+                        player.depthLimit = Integer.parseInt(value);
+                        break;
+                    case "mode":
+                        player.searchMode = Player._parseSearchMode(value);
+                        break;
+                    case "lmr":
+                        player.lateMoveReductions = Player._parseBoolean(value);
+                        break;
+                    case "probcut":
+                        player.probCut = Player._parseBoolean(value);
+                        break;
+                    case "tablebase":
+                        player.tablebase = Player._parseBoolean(value);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown setting: " + parts[0]);
+                }
+            }
+
+            return player;
+        }
+
+        /**
+         * @param tableSize The size of the transposition table, in megabytes.
+         * @param tablebase The tournament's tablebase, or null if it has none.
+         * @return A single-threaded engine with this player's settings.
+         */
+        public Engine createEngine(int tableSize, @Nullable Tablebase tablebase) {
+            Engine engine = new Engine(tableSize, 1);
+            engine.setSearchMode(this.searchMode);
+            engine.setLateMoveReductions(this.lateMoveReductions);
+            engine.setProbCut(this.probCut);
+            engine.setTablebase(this.tablebase ? tablebase : null);
+
+            return engine;
+        }
+
+        @Override
+        public String toString() {
+            return "time=" + this.timeBudget + ",nodes=" + this.nodeBudget + ",depth=" + this.depthLimit
+                    + ",mode=" + (this.searchMode == Engine.SearchMode.ALPHA_BETA ? "alphabeta" : "pvs")
+                    + ",lmr=" + this.lateMoveReductions + ",probcut=" + this.probCut + ",tablebase=" + this.tablebase;
+        }
+
+        private static Engine.SearchMode _parseSearchMode(String value) {
+            switch(value) {
+                case "pvs":
+                    return Engine.SearchMode.PRINCIPAL_VARIATION;
+                case "alphabeta":
+                    return Engine.SearchMode.ALPHA_BETA;
+                default:
+                    throw new IllegalArgumentException("Unknown search mode: " + value);
+            }
+        }
+
+        private static boolean _parseBoolean(String value) {
+            if(!value.equals("true") && !value.equals("false")) {
+                throw new IllegalArgumentException("Expected true or false: " + value);
+            }
+
+            return value.equals("true");
+        }
+    }
+
+    /**
+     * The result of a single game.
+     */
+    public static class Game {
+        // 1 if black won, -1 if red won, 0 for a draw
+        final int result;
+        final String reason;
+        final int plies;
+        final boolean firstIsBlack;
+
+        Game(int result, String reason, int plies, boolean firstIsBlack) {
+            this.result = result;
+            this.reason = reason;
+            this.plies = plies;
+            this.firstIsBlack = firstIsBlack;
+        }
+
+        /**
+         * @return 1 if the first player won, -1 if they lost, 0 for a draw.
+         */
+        public int getFirstResult() {
+            return this.firstIsBlack ? this.result : -this.result;
+        }
+
+        public String getReason() {
+            return this.reason;
+        }
+
+        public int getPlies() {
+            return this.plies;
+        }
+    }
+
+    /**
+     * The first player's wins, draws and losses, and what can be worked out from them. The SPRT uses the normal
+     * approximation to the distribution of the score per game, which is accurate once a few dozen games are played.
+     */
+    public static class Score {
+        private int _wins;
+        private int _draws;
+        private int _losses;
+        private long _plies;
+        private long _elapsed;
+        private final TreeMap<String, Integer> _reasons = new TreeMap<String, Integer>();
+
+        public Score() {
+        }
+
+        /**
+         * @param wins The first player's wins.
+         * @param draws The draws.
+         * @param losses The first player's losses.
+         */
+        public Score(int wins, int draws, int losses) {
+            this._wins = wins;
+            this._draws = draws;
+            this._losses = losses;
+        }
+
+        public void add(Game game) {
+            int result = game.getFirstResult();
+
+            if(result > 0) {
+                this._wins++;
+            }
+            else if(result < 0) {
+                this._losses++;
+            }
+            else {
+                this._draws++;
+            }
+
+            this._plies += game.getPlies();
+            this._reasons.merge(game.getReason(), 1, Integer::sum);
+        }
+
+        public int getWins() {
+            return this._wins;
+        }
+
+        public int getDraws() {
+            return this._draws;
+        }
+
+        public int getLosses() {
+            return this._losses;
+        }
+
+        public int getGames() {
+            return this._wins + this._draws + this._losses;
+        }
+
+        /**
+         * @return The number of games that ended for each reason, eg. "repetition".
+         */
+        public TreeMap<String, Integer> getReasons() {
+            return this._reasons;
+        }
+
+        public double getAveragePlies() {
+            return (double) this._plies / Math.max(1, this.getGames());
+        }
+
+        void setElapsed(long elapsed) {
+            this._elapsed = elapsed;
+        }
+
+        public double getGamesPerMinute() {
+            return this.getGames() * 60000.0 / Math.max(1, this._elapsed);
+        }
+
+        /**
+         * @return The first player's average score per game, 1 for a win and 0.5 for a draw.
+         */
+        public double getMean() {
+            return (this._wins + this._draws / 2.0) / Math.max(1, this.getGames());
+        }
+
+        /**
+         * @return The variance of the score per game.
+         */
+        public double getVariance() {
+            double mean = this.getMean();
+            int games = Math.max(1, this.getGames());
+
+            return (this._wins * Math.pow(1 - mean, 2) + this._draws * Math.pow(0.5 - mean, 2) + this._losses * Math.pow(mean, 2)) / games;
+        }
+
+        /**
+         * @return The Elo difference between the first and second players that matches the first player's score.
+         */
+        public double getElo() {
+            return Score.toElo(this.getMean());
+        }
+
+        /**
+         * @return Half the width of the 95% confidence interval of {@link #getElo()}.
+         */
+        public double getEloError() {
+            double error = 1.96 * Math.sqrt(this.getVariance() / Math.max(1, this.getGames()));
+
+            return (Score.toElo(this.getMean() + error) - Score.toElo(this.getMean() - error)) / 2;
+        }
+
+        /**
+         * @param elo0 The Elo difference of H0.
+         * @param elo1 The Elo difference of H1.
+         * @return The log-likelihood ratio of H1 against H0.
+         */
+        public double getLogLikelihoodRatio(double elo0, double elo1) {
+            double variance = this.getVariance();
+            if(variance <= 0) {
+                return 0;
+            }
+
+            double score0 = Score.toScore(elo0);
+            double score1 = Score.toScore(elo1);
+
+            return this.getGames() * (score1 - score0) * (2 * this.getMean() - score0 - score1) / (2 * variance);
+        }
+
+        /**
+         * @param beta The chance of accepting H0 when H1 is true.
+         * @return The log-likelihood ratio below which H0 is accepted.
+         */
+        public static double getLowerBound(double beta) {
+            return Math.log(beta / (1 - beta));
+        }
+
+        /**
+         * @param alpha The chance of accepting H1 when H0 is true.
+         * @return The log-likelihood ratio above which H1 is accepted.
+         */
+        public static double getUpperBound(double alpha) {
+            return Math.log((1 - alpha) / alpha);
+        }
+
+        /**
+         * @param score An average score per game, between 0 and 1.
+         * @return The Elo difference that gives the score.
+         */
+        public static double toElo(double score) {
+            score = Math.min(Math.max(score, 1e-6), 1 - 1e-6);
+
+            return -400 * Math.log10(1 / score - 1);
+        }
+
+        /**
+         * @param elo An Elo difference.
+         * @return The expected score per game.
+         */
+        public static double toScore(double elo) {
+            return 1 / (1 + Math.pow(10, -elo / 400));
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Player first = new Player();
+        Player second = new Player();
+        int games = 1000;
+        int concurrency = Runtime.getRuntime().availableProcessors();
+        int plies = 4;
+        File book = null;
+        File tablebase = null;
+        double elo0 = 0;
+        double elo1 = 10;
+        double alpha = 0.05;
+        double beta = 0.05;
+        Long seed = null;
+
+        for(int i = 0; i < args.length; i++) {
+            switch(args[i]) {
+                case "-a":
+                    first = Player.parse(args[++i]);
+                    break;
+                case "-b":
+                    second = Player.parse(args[++i]);
+                    break;
+                case "-g":
+                case "--games":
+                    games = Integer.parseInt(args[++i]);
+                    break;
+                case "-c":
+                case "--concurrency":
+                    concurrency = Integer.parseInt(args[++i]);
+                    break;
+                case "-p":
+                case "--plies":
+                    plies = Integer.parseInt(args[++i]);
+                    break;
+                case "--book":
+                    book = new File(args[++i]);
+                    break;
+                case "--tablebase":
+                    tablebase = new File(args[++i]);
+                    break;
+                case "--elo0":
+                    elo0 = Double.parseDouble(args[++i]);
+                    break;
+                case "--elo1":
+                    elo1 = Double.parseDouble(args[++i]);
+                    break;
+                case "--alpha":
+                    alpha = Double.parseDouble(args[++i]);
+                    break;
+                case "--beta":
+                    beta = Double.parseDouble(args[++i]);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(args[++i]);
+                    break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(2);
+            }
+        }
+
+        Tournament tournament = new Tournament(first, second, concurrency);
+        tournament.setMaxGames(games);
+        tournament.setOpeningPlies(plies);
+        tournament.setSprt(elo0, elo1, alpha, beta);
+        tournament.setOutput(System.out);
+        if(seed != null) {
+            tournament.setSeed(seed);
+        }
+        if(book != null) {
+            tournament.setOpeningBook(OpeningBook.load(book));
+        }
+        if(tablebase != null) {
+            tournament.setTablebase(Tablebase.load(tablebase));
+        }
+
+        System.out.println("A: " + first);
+        System.out.println("B: " + second);
+        System.out.println("SPRT: elo0=" + elo0 + ", elo1=" + elo1 + ", alpha=" + alpha + ", beta=" + beta);
+
+        Score score = tournament.run();
+
+        System.out.println(tournament._describe(score));
+        System.out.printf("Average length: %.1f plies    Endings: %s%n", score.getAveragePlies(), score.getReasons());
+        System.out.println(tournament._describeResult(score));
+    }
+}
@@ -0,0 +1,144 @@
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A fixed-size table of search results, indexed by state hash. Entries are packed into primitive arrays rather than
+ * stored as objects, and grouped into buckets of two: the first entry of a bucket is only replaced by a search of
+ * equal or greater depth, and the second entry is always replaced.
+ *
+ * The table is shared between search threads without locking. Each entry is a single long of data, and the key is
+ * stored XORed with that data, so an entry that was half written by another thread fails the key check on probing
+ * rather than giving back a mix of two results.
+ */
+public class TranspositionTable {
+    // Bound types, describing how the stored score relates to the real value of the state
+    public static final int EXACT = 0;
+    public static final int LOWER = 1;
+    public static final int UPPER = 2;
+
+    private static final int ENTRY_BYTES = 8 + 8;
+
+    private final long[] _keys;
+    private final long[] _data;
+    private final int _bucketMask;
+
+    private final LongAdder _overwrites = new LongAdder();
+
+    /**
+     * @param sizeInMegabytes The approximate amount of memory to use, the number of buckets is rounded down to a
+     *                        power of two.
+     */
+    public TranspositionTable(int sizeInMegabytes) {
+        long buckets = Math.max(1, ((long) sizeInMegabytes << 20) / (2 * ENTRY_BYTES));
+        int size = Integer.highestOneBit((int) Math.min(buckets, 1 << 28));
+
+        this._keys = new long[size * 2];
+        this._data = new long[size * 2];
+        this._bucketMask = size - 1;
+    }
+
+    /**
+     * Looks for an entry for {@code hash}.
+     * @param hash The hash of the state.
+     * @return The packed entry, or 0 if there isn't one. Use the static getters to read it.
+     */
+    public long probe(long hash) {
+        int index = this._getBucket(hash);
+
+        for(int i = index; i < index + 2; i++) {
+            long data = this._data[i];
+
+            if(data != 0 && (this._keys[i] ^ data) == hash) {
+                return data;
+            }
+        }
+
+        return 0;
+    }
+
+    /**
+     * Stores a search result.
+     * @param hash The hash of the state.
+     * @param depth The depth that the state was searched to.
+     * @param bound The bound type, one of {@link #EXACT}, {@link #LOWER} or {@link #UPPER}.
+     * @param score The score found by the search, which must fit in 16 bits.
+     * @param move The key of the best move found by the search, see {@link CompactMove#getKey(long)}.
+     */
+    public void store(long hash, int depth, int bound, int score, int move) {
+        int index = this._getBucket(hash);
+        long existing = this._data[index];
+        boolean existingMatches = (this._keys[index] ^ existing) == hash;
+
+        // Use the depth-preferred entry if it is empty, for the same state or from a shallower search. Otherwise use
+        // the always-replace entry.
+        if(existing != 0 && !existingMatches && TranspositionTable.getDepth(existing) > depth) {
+            index++;
+            existing = this._data[index];
+            existingMatches = (this._keys[index] ^ existing) == hash;
+        }
+
+        if(existing != 0 && !existingMatches) {
+            this._overwrites.increment();
+        }
+
+        long data = TranspositionTable._pack(depth, bound, score, move);
+        this._data[index] = data;
+        this._keys[index] = hash ^ data;
+    }
+
+    /**
+     * Removes all entries and resets the counters.
+     */
+    public void clear() {
+        Arrays.fill(this._keys, 0);
+        Arrays.fill(this._data, 0);
+        this.resetCounters();
+    }
+
+    public void resetCounters() {
+        this._overwrites.reset();
+    }
+
+    public long getOverwrites() {
+        return this._overwrites.sum();
+    }
+
+    /**
+     * @return The number of entries the table can hold.
+     */
+    public int getCapacity() {
+        return this._keys.length;
+    }
+
+    public static int getScore(long data) {
+        return (short) data;
+    }
+
+    public static int getDepth(long data) {
+        return (int) (data >>> 16) & 0xFF;
+    }
+
+    public static int getBound(long data) {
+        return (int) (data >>> 24) & 3;
+    }
+
+    public static int getMove(long data) {
+        return (short) (data >>> 32);
+    }
+
+    private int _getBucket(long hash) {
+        return ((int) (hash ^ (hash >>> 32)) & this._bucketMask) << 1;
+    }
+
+    /**
+     * Packs an entry into a long, with 16 bits of score, 8 bits of depth, 2 bits of bound type and 16 bits of move.
+     * Bit 48 is always set so that a used entry is never 0.
+     */
+    private static long _pack(int depth, int bound, int score, int move) {
+        return (score & 0xFFFFL)
+                | ((long) (depth & 0xFF) << 16)
+                | ((long) bound << 24)
+                | ((move & 0xFFFFL) << 32)
+                | (1L << 48);
+    }
+}
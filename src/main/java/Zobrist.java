@@ -0,0 +1,68 @@
+import java.util.Random;
+
+/**
+ * Random keys used to give each state a 64-bit hash. A state's hash is the XOR of the key for every piece (by colour,
+ * king flag and square) plus the turn key when it is black's turn, so a move can update the hash by XORing in and out
+ * only the keys that it changes.
+ */
+public class Zobrist {
+    // Indexed by [colour * 2 + king][square], where colour is 0 for red and 1 for black
+    private static final long[][] PIECES = new long[4][BitBoard.SQUARES];
+    public static final long TURN;
+
+    static {
+        // A fixed seed keeps hashes the same between runs, so that they can be stored (eg. in an opening book)
+        Random random = new Random(0x436865636B657273L);
+
+        for(int i = 0; i < PIECES.length; i++) {
+            for(int square = 0; square < BitBoard.SQUARES; square++) {
+                PIECES[i][square] = random.nextLong();
+            }
+        }
+
+        TURN = random.nextLong();
+    }
+
+    /**
+     * @param isRed Whether the piece is red.
+     * @param isKing Whether the piece is a king.
+     * @param square The square of the piece.
+     * @return The key for the piece.
+     */
+    public static long getPieceKey(boolean isRed, boolean isKing, int square) {
+        return PIECES[(isRed ? 0 : 2) + (isKing ? 1 : 0)][square];
+    }
+
+    /**
+     * @param mask Mask of pieces of a single colour.
+     * @param isRed Whether the pieces are red.
+     * @param kings Mask of the king pieces.
+     * @return The XOR of the keys for every piece in {@code mask}.
+     */
+    public static long getPiecesKey(int mask, boolean isRed, int kings) {
+        long hash = 0;
+
+        while(mask != 0) {
+            int square = Integer.numberOfTrailingZeros(mask);
+            mask &= mask - 1;
+
+            hash ^= Zobrist.getPieceKey(isRed, (kings & (1 << square)) != 0, square);
+        }
+
+        return hash;
+    }
+
+    /**
+     * Computes a hash from scratch. This is only needed when a state isn't created from another one.
+     * @param red Mask of the red pieces.
+     * @param black Mask of the black pieces.
+     * @param kings Mask of the king pieces.
+     * @param turn The turn.
+     * @return The hash.
+     */
+    public static long computeHash(int red, int black, int kings, boolean turn) {
+        long hash = Zobrist.getPiecesKey(red, true, kings) ^ Zobrist.getPiecesKey(black, false, kings);
+
+        return turn ? hash ^ TURN : hash;
+    }
+}
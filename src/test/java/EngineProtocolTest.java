@@ -0,0 +1,119 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EngineProtocolTest {
+    @Test
+    public void testMoveNotation() {
+        int jumps = 0;
+
+        for(State state: SearchBenchmark.createPositions(200, 3)) {
+            for(Move move: state.getSuccessors()) {
+                String text = EngineProtocol.formatMove(move);
+                assertEquals(move.getNext(), EngineProtocol.parseMove(state, text).getNext());
+
+                if(text.contains("x")) {
+                    jumps++;
+                }
+            }
+        }
+
+        assertTrue(jumps > 0);
+
+        // Moves that can't be made, or aren't written properly
+        State initial = StateManager.createInitialState();
+        assertThrows(IllegalArgumentException.class, () -> EngineProtocol.parseMove(initial, "1-5"));
+        assertThrows(IllegalArgumentException.class, () -> EngineProtocol.parseMove(initial, "21x14"));
+        assertThrows(IllegalArgumentException.class, () -> EngineProtocol.parseMove(initial, "e3-d4"));
+    }
+
+    @Test
+    public void testProtocolSearchesAndStops() throws IOException, InterruptedException {
+        PipedOutputStream commands = new PipedOutputStream();
+        PipedInputStream input = new PipedInputStream(commands);
+        PipedInputStream replies = new PipedInputStream(1 << 16);
+        PrintStream output = new PrintStream(new PipedOutputStream(replies), true);
+
+        EngineProtocol protocol = new EngineProtocol(new Engine(1, 1), input, output);
+        Thread thread = new Thread(() -> {
+            try {
+                protocol.run();
+            }
+            catch(IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        thread.start();
+
+        PrintStream send = new PrintStream(commands, true);
+        BufferedReader receive = new BufferedReader(new InputStreamReader(replies));
+
+        send.println("uci");
+        assertEquals("id name " + EngineProtocol.NAME, receive.readLine());
+        assertEquals(4, EngineProtocolTest._readUntil(receive, "uciok").size());
+
+        // Each completed iteration is reported, deepest last, then the move
+        State initial = StateManager.createInitialState();
+        String first = EngineProtocol.formatMove(initial.getSuccessors().get(0));
+        State state = initial.getSuccessors().get(0).getNext();
+
+        send.println("position startpos moves " + first);
+        send.println("go depth 4");
+        ArrayList<String> lines = EngineProtocolTest._readUntil(receive, "bestmove");
+        assertEquals(5, lines.size());
+        for(int depth = 1; depth <= 4; depth++) {
+            assertTrue(lines.get(depth - 1).startsWith("info depth " + depth + " score cp "));
+            assertTrue(lines.get(depth - 1).contains(" pv "));
+        }
+        EngineProtocol.parseMove(state, lines.get(4).substring("bestmove ".length()));
+
+        // An infinite search only finishes when it is stopped, and still gives a move
+        send.println("go infinite");
+        assertTrue(receive.readLine().startsWith("info depth 1 "));
+        send.println("isready");
+        send.println("stop");
+        lines = EngineProtocolTest._readUntil(receive, "bestmove");
+        assertTrue(lines.contains("readyok"));
+        EngineProtocol.parseMove(state, lines.get(lines.size() - 1).substring("bestmove ".length()));
+
+        // Even once an infinite search has nothing left to search, its move waits for stop
+        send.println("go infinite depth 2");
+        assertTrue(receive.readLine().startsWith("info depth 1 "));
+        assertTrue(receive.readLine().startsWith("info depth 2 "));
+        send.println("isready");
+        assertEquals("readyok", receive.readLine());
+        send.println("stop");
+        EngineProtocol.parseMove(state, receive.readLine().substring("bestmove ".length()));
+
+        send.println("position startpos moves 1-5");
+        assertTrue(receive.readLine().startsWith("info string Illegal move"));
+
+        send.println("quit");
+        thread.join(10000);
+        assertFalse(thread.isAlive());
+    }
+
+    /**
+     * @return The lines read up to and including the first that starts with {@code prefix}.
+     */
+    private static ArrayList<String> _readUntil(BufferedReader reader, String prefix) throws IOException {
+        ArrayList<String> lines = new ArrayList<String>();
+        String line;
+
+        do {
+            line = reader.readLine();
+            assertNotNull(line);
+            lines.add(line);
+        } while(!line.startsWith(prefix));
+
+        return lines;
+    }
+}
@@ -0,0 +1,88 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EngineTest {
+    @Test
+    public void testSearchModesAgreeOnScores() {
+        // Without reductions or ProbCut both modes are exact, so the null window searches, re-searches and aspiration
+        // windows of PVS must give the same scores as plain alpha-beta
+        ArrayList<State> positions = SearchBenchmark.createPositions(30, 7);
+        Engine engine = new Engine(1, 1);
+        engine.setLateMoveReductions(false);
+        engine.setProbCut(false);
+
+        for(State state: positions) {
+            for(int depth = 3; depth <= 7; depth++) {
+                engine.setSearchMode(Engine.SearchMode.ALPHA_BETA);
+                engine.clear();
+                engine.search(state, Integer.MAX_VALUE, 0, depth);
+                int alphaBeta = engine.getScore();
+
+                engine.setSearchMode(Engine.SearchMode.PRINCIPAL_VARIATION);
+                engine.clear();
+                engine.search(state, Integer.MAX_VALUE, 0, depth);
+
+                assertEquals(alphaBeta, engine.getScore(), Perft.formatPosition(state) + " at depth " + depth);
+            }
+        }
+    }
+
+    @Test
+    public void testSelectiveSearchSwitches() {
+        ArrayList<State> positions = SearchBenchmark.createPositions(6, 11);
+        Engine engine = new Engine(1, 1);
+
+        for(int flags = 0; flags < 4; flags++) {
+            boolean lateMoveReductions = (flags & 1) != 0;
+            boolean probCut = (flags & 2) != 0;
+            engine.setLateMoveReductions(lateMoveReductions);
+            engine.setProbCut(probCut);
+
+            long reductions = 0;
+            long reductionResearches = 0;
+            long probCutTries = 0;
+
+            for(State state: positions) {
+                engine.clear();
+                engine.search(state, Integer.MAX_VALUE, 0, 8);
+
+                // A reduced move is searched again at most once
+                assertTrue(engine.getReductionResearches() <= engine.getReductions());
+                assertTrue(engine.getProbCuts() <= engine.getProbCutTries());
+
+                reductions += engine.getReductions();
+                reductionResearches += engine.getReductionResearches();
+                probCutTries += engine.getProbCutTries();
+            }
+
+            // Each technique only fires when it is switched on
+            assertEquals(lateMoveReductions, reductions > 0, "LMR " + lateMoveReductions);
+            assertEquals(probCut, probCutTries > 0, "ProbCut " + probCut);
+            assertTrue(reductionResearches <= reductions);
+        }
+    }
+
+    @Test
+    public void testQuiescenceResolvesPendingCaptures() {
+        // Black's only move takes a man, but leaves the capturing man to be taken back
+        State state = Perft.parsePosition("b:r...r........r...b...........bb.");
+        ArrayList<Move> moves = state.getSuccessors();
+        assertEquals(1, moves.size());
+
+        State afterCapture = moves.get(0).getNext();
+        State afterRecapture = afterCapture.getSuccessors().get(0).getNext();
+        Evaluator evaluator = new Evaluator();
+        int staticScore = evaluator.evaluate(new SearchBoard(afterCapture));
+        int exchangeScore = evaluator.evaluate(new SearchBoard(afterRecapture));
+        assertTrue(staticScore > exchangeScore);
+
+        // Red can't stand pat with a capture pending, so a depth 1 search scores the end of the exchange
+        Engine engine = new Engine(1, 1);
+        engine.search(state, Integer.MAX_VALUE, 0, 1);
+        assertEquals(exchangeScore, engine.getScore());
+        assertTrue(engine.getQuiescenceNodes() > 0);
+    }
+}
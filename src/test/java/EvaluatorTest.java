@@ -0,0 +1,32 @@
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EvaluatorTest {
+    @Test
+    public void testEvaluatorInitialStateIsEven() {
+        // The starting position is symmetrical, so neither player should be ahead
+        SearchBoard board = new SearchBoard(StateManager.createInitialState());
+        assertEquals(0, board.getPieceScore());
+        assertEquals(0, new Evaluator().evaluate(board));
+    }
+
+    @Test
+    public void testEvaluatorFavoursMaterialAndKings() {
+        Evaluator evaluator = new Evaluator();
+
+        // Black (human) has an extra man, so the score should favour black
+        int red = BitBoard.toMask(0, 1);
+        int black = BitBoard.toMask(7, 0) | BitBoard.toMask(7, 2);
+        assertTrue(evaluator.evaluate(new SearchBoard(new State(red, black, 0, false))) > 0);
+
+        // The same pieces, but with red's piece a king, should be better for red
+        int withoutKing = evaluator.evaluate(new SearchBoard(new State(red, BitBoard.toMask(7, 0), 0, false)));
+        int withKing = evaluator.evaluate(new SearchBoard(new State(red, BitBoard.toMask(7, 0), red, false)));
+        assertTrue(withKing < withoutKing);
+
+        // Wins found sooner should score better
+        assertTrue(Evaluator.getLossScore(1, false) > Evaluator.getLossScore(3, false));
+        assertTrue(Evaluator.getLossScore(1, false) > Evaluator.WIN_THRESHOLD);
+    }
+}
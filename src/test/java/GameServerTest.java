@@ -0,0 +1,103 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameServerTest {
+    @Test
+    public void testServerRepliesToMoves() throws IOException {
+        try(EnginePool pool = new EnginePool(1, 1, 16, null); GameServer server = new GameServer(pool, 0)) {
+            server.start();
+
+            try(Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+                BufferedReader input = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                PrintWriter output = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.UTF_8);
+
+                assertEquals("hello " + EngineProtocol.NAME, input.readLine());
+                assertEquals("position " + Perft.formatPosition(StateManager.createInitialState()), input.readLine());
+
+                output.println("new 20");
+                State state = GameServerTest._parsePosition(input.readLine());
+                Random random = new Random(3);
+
+                // Each move is answered by the engine's move, then the position after it
+                for(int i = 0; i < 4 && !state.getSuccessors().isEmpty(); i++) {
+                    ArrayList<Move> moves = state.getSuccessors();
+                    Move move = moves.get(random.nextInt(moves.size()));
+                    output.println("move " + EngineProtocol.formatMove(move));
+
+                    String line = input.readLine();
+                    if(line.startsWith("reply ")) {
+                        Move reply = EngineProtocol.parseMove(move.getNext(), line.substring("reply ".length()));
+                        state = GameServerTest._parsePosition(input.readLine());
+                        assertEquals(reply.getNext(), state);
+                    }
+                    else {
+                        assertTrue(line.startsWith("gameover "));
+                        break;
+                    }
+                }
+
+                output.println("move 1-2");
+                assertTrue(input.readLine().startsWith("error "));
+                output.println("new 0");
+                assertTrue(input.readLine().startsWith("error "));
+
+                output.println("stats");
+                String[] stats = input.readLine().split(" ");
+                assertEquals("stats", stats[0]);
+                assertEquals("2", stats[2]);
+                assertEquals("1", stats[4]);
+                assertTrue(Integer.parseInt(stats[6]) > 0);
+
+                output.println("quit");
+                assertNull(input.readLine());
+            }
+
+            assertTrue(server.getLatency().getCount() > 0);
+            assertTrue(pool.getSearches() > 0);
+        }
+    }
+
+    @Test
+    public void testFailedSearchTakesMoveBack() throws IOException {
+        EnginePool pool = new EnginePool(1, 1, 16, null);
+
+        try(GameServer server = new GameServer(pool, 0)) {
+            server.start();
+
+            try(Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+                BufferedReader input = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                PrintWriter output = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.UTF_8);
+
+                assertEquals("hello " + EngineProtocol.NAME, input.readLine());
+                State state = GameServerTest._parsePosition(input.readLine());
+
+                // With the pool closed there is no reply, and the game is left as it was before the move
+                pool.close();
+                String move = EngineProtocol.formatMove(state.getSuccessors().get(0));
+                output.println("move " + move);
+                assertTrue(input.readLine().startsWith("error "));
+
+                output.println("position");
+                assertEquals(state, GameServerTest._parsePosition(input.readLine()));
+                output.println("move " + move);
+                assertTrue(input.readLine().startsWith("error The pool is closed"));
+            }
+        }
+    }
+
+    private static State _parsePosition(String line) {
+        assertTrue(line.startsWith("position "), line);
+        return Perft.parsePosition(line.substring("position ".length()));
+    }
+}
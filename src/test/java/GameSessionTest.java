@@ -0,0 +1,116 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameSessionTest {
+    @Test
+    public void testSessionPlaysWholeGames() {
+        Engine engine = new Engine(1, 1);
+        Random random = new Random(3);
+
+        for(int game = 0; game < 20; game++) {
+            GameSession session = new GameSession(engine);
+
+            // Black moves at random and red searches, until one of them has no moves or the game goes on too long
+            while(!session.isGameOver() && session.getHistory().size() < 200) {
+                ArrayList<Move> moves = session.getLegalMoves();
+
+                if(session.getState().getTurn()) {
+                    session.submitMove(moves.get(random.nextInt(moves.size())));
+                }
+                else {
+                    Move move = session.playEngineMove(1000, 0, 2);
+                    assertEquals(move.getNext(), session.getState());
+                }
+            }
+
+            if(session.isGameOver()) {
+                assertEquals(!session.getState().getTurn(), session.getWinner());
+            }
+        }
+    }
+
+    @Test
+    public void testSessionRejectsIllegalMoves() {
+        GameSession session = new GameSession(new Engine(1, 1));
+        State initial = session.getState();
+        Move move = session.getLegalMoves().get(0);
+
+        // A move from another state, or a move that can't be made at all
+        Move other = new GameSession(new Engine(1, 1), move.getNext()).getLegalMoves().get(0);
+        assertThrows(IllegalArgumentException.class, () -> session.submitMove(other));
+        assertThrows(IllegalArgumentException.class, () -> session.submitMove(CompactMove.encode(0, 31, 0, false)));
+        assertThrows(IllegalStateException.class, session::getWinner);
+
+        session.submitMove(CompactMove.fromMove(move));
+        assertEquals(move.getNext(), session.getState());
+        assertEquals(1, session.getHistory().size());
+
+        assertTrue(session.undo());
+        assertEquals(initial, session.getState());
+        assertFalse(session.undo());
+    }
+
+    @Test
+    public void testControllerRunsWithoutGUI() throws InterruptedException {
+        CountDownLatch replied = new CountDownLatch(1);
+        StateManager stateManager = new StateManager();
+        Controller controller = new Controller(GameSessionTest._createView(replied), stateManager, 1);
+        controller.setPondering(false);
+        controller.setDifficulty(0);
+        controller.setup(false);
+
+        // Black (the human player) moves, then the AI replies on its own thread
+        Move move = stateManager.getState().getSuccessors().get(0);
+        controller.updateState(move.getNext(), null, true);
+
+        assertTrue(replied.await(10, TimeUnit.SECONDS));
+        assertTrue(stateManager.getState().getTurn());
+    }
+
+    @Test
+    public void testPonderingStopsWhenHumanWins() {
+        StateManager stateManager = new StateManager();
+        Controller controller = new Controller(GameSessionTest._createView(new CountDownLatch(1)), stateManager, 1);
+        controller.setup(false);
+
+        // Black can take red's last piece in two ways, so the AI ponders while black thinks
+        State state = Perft.parsePosition("b:.............r..bb..............");
+        controller.updateState(state, null, false);
+        assertTrue(controller.isPondering());
+
+        controller.updateState(state.getSuccessors().get(0).getNext(), null, true);
+        assertTrue(controller.isGameOver());
+        assertFalse(controller.isPondering());
+    }
+
+    /**
+     * @param replied Counted down whenever the AI ends its turn.
+     * @return A view that shows nothing.
+     */
+    private static GameView _createView(CountDownLatch replied) {
+        // Changes from the AI's thread are made straight away, as there is no GUI thread to hand them to
+        return new GameView() {
+            public void setup(State state, boolean reset, Controller controller) {}
+            public void render(State state, ArrayList<Move> successors, Controller controller) {}
+            public void endOfTurn(State newState, State previousState, Controller controller) {
+                if(!previousState.getTurn()) {
+                    replied.countDown();
+                }
+            }
+            public void gameOver(State winningState, State previousState, Controller controller) {}
+            public void setSearchProgress(int depth, long evaluations) {}
+            public void setSearchStatistics(Engine engine) {}
+            public void setBookMove() {}
+            public void setPonderStatistics(int hits, int ponders, long savedMillis) {}
+            public void runLater(Runnable runnable) {
+                runnable.run();
+            }
+        };
+    }
+}
@@ -0,0 +1,27 @@
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getPercentile(50));
+
+        // 1ms to 100ms, once each
+        for(int millis = 1; millis <= 100; millis++) {
+            histogram.record(millis * 1000000L);
+        }
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(50, histogram.getPercentile(50), 50 * 0.04);
+        assertEquals(99, histogram.getPercentile(99), 99 * 0.04);
+        assertEquals(100, histogram.getPercentile(100), 100 * 0.04);
+        assertEquals(1, histogram.getPercentile(0), 1 * 0.04);
+
+        // Latencies under 32µs are exact
+        histogram.clear();
+        histogram.record(5000);
+        assertEquals(0.005, histogram.getPercentile(50), 1e-9);
+    }
+}
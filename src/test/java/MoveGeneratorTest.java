@@ -0,0 +1,93 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoveGeneratorTest {
+    @Test
+    public void testBitBoardSquares() {
+        // Every square index should map to a playable tile and back again
+        for(int square = 0; square < BitBoard.SQUARES; square++) {
+            int x = BitBoard.getX(square);
+            int y = BitBoard.getY(square);
+            assertEquals(1, (x + y) % 2);
+            assertEquals(square, BitBoard.toSquare(x, y));
+        }
+
+        // Tiles that can never hold a piece have no square
+        assertEquals(-1, BitBoard.toSquare(0, 0));
+        assertEquals(-1, BitBoard.toSquare(-1, -1));
+    }
+
+    @Test
+    public void testBitBoardShiftsMatchTables() {
+        // Shifting a single square should agree with the neighbour tables
+        for(int square = 0; square < BitBoard.SQUARES; square++) {
+            int[] shifted = new int[]{
+                    BitBoard.topLeft(1 << square),
+                    BitBoard.topRight(1 << square),
+                    BitBoard.bottomLeft(1 << square),
+                    BitBoard.bottomRight(1 << square)
+            };
+
+            for(int direction = 0; direction < 4; direction++) {
+                int neighbour = BitBoard.NEIGHBOURS[direction][square];
+                assertEquals(neighbour < 0 ? 0 : 1 << neighbour, shifted[direction]);
+            }
+        }
+    }
+
+    @Test
+    public void testMoveGeneratorMatchesLegacyGenerator() {
+        // Play random games and compare the moves offered at every position with the original generator
+        Random random = new Random(42);
+
+        for(int game = 0; game < 200; game++) {
+            State state = StateManager.createInitialState();
+
+            for(int ply = 0; ply < 200; ply++) {
+                ArrayList<Move> moves = state.getSuccessors();
+                ArrayList<Move> expected = new LegacyMoveGenerator(state).getSuccessors();
+
+                assertEquals(MoveGeneratorTest._describe(expected), MoveGeneratorTest._describe(moves));
+
+                // The incrementally updated hash should always match one computed from scratch
+                assertEquals(Zobrist.computeHash(state.getRed(), state.getBlack(), state.getKings(), state.getTurn()), state.getHash());
+
+                if(moves.isEmpty()) {
+                    break;
+                }
+
+                state = moves.get(random.nextInt(moves.size())).getNext();
+            }
+        }
+    }
+
+    /**
+     * Describes each move by the boards along its path, so that two lists of moves can be compared regardless of the
+     * order they were generated in.
+     * @param moves The moves to describe.
+     * @return A sorted list of descriptions.
+     */
+    private static ArrayList<String> _describe(ArrayList<Move> moves) {
+        ArrayList<String> descriptions = new ArrayList<String>();
+
+        for(Move m: moves) {
+            String description = "";
+
+            for(Move step = m; step != null; step = step.getPreviousMove()) {
+                description = Arrays.deepToString(StateManager.create2DGrid(step.getNext().getPieces())) + description;
+            }
+
+            descriptions.add(description + m.getNext().getTurn() + m.isEndMove());
+        }
+
+        Collections.sort(descriptions);
+
+        return descriptions;
+    }
+}
@@ -0,0 +1,43 @@
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoveOrderingTest {
+    @Test
+    public void testMoveOrderingPicksBestMoveThenCaptures() {
+        MoveOrdering ordering = new MoveOrdering();
+        MoveList moves = new MoveList();
+        moves.add(8, 12, 0, false);
+        moves.add(9, 18, 1 << 13, false);
+        moves.add(10, 26, (1 << 14) | (1 << 22), false);
+        moves.add(11, 15, 0, false);
+
+        // Without a stored best move, the longest capture comes first
+        ordering.score(moves, 0, -1);
+        assertEquals(10, CompactMove.getFrom(moves.pickBest(0)));
+        assertEquals(9, CompactMove.getFrom(moves.pickBest(1)));
+
+        // The stored best move comes before everything else
+        ordering.score(moves, 0, CompactMove.getKey(CompactMove.encode(11, 15, 0, false)));
+        assertEquals(11, CompactMove.getFrom(moves.pickBest(0)));
+    }
+
+    @Test
+    public void testMoveOrderingKillersAndHistory() {
+        MoveOrdering ordering = new MoveOrdering();
+        MoveList moves = new MoveList();
+        moves.add(8, 12, 0, false);
+        moves.add(8, 13, 0, false);
+        moves.add(9, 13, 0, false);
+
+        // A quiet move that caused a cutoff is tried first at the same ply, and scores well by history elsewhere
+        ordering.update(moves.get(2), 3, 4);
+        ordering.score(moves, 3, -1);
+        assertEquals(9, CompactMove.getFrom(moves.pickBest(0)));
+
+        ordering.update(moves.get(2), 5, 4);
+        ordering.score(moves, 5, -1);
+        assertTrue(moves.getScore(0) > moves.getScore(1));
+        assertEquals(9, CompactMove.getFrom(moves.get(0)));
+    }
+}
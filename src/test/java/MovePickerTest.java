@@ -0,0 +1,57 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MovePickerTest {
+    @Test
+    public void testMovePickerGivesEveryMoveOnce() {
+        // Play random games and check that the picker gives the same moves as generating them all at once, whatever
+        // best move it is given
+        Random random = new Random(11);
+        MovePicker picker = new MovePicker(new MoveOrdering());
+        MoveList moves = new MoveList();
+
+        for(int game = 0; game < 50; game++) {
+            SearchBoard board = new SearchBoard(StateManager.createInitialState());
+
+            for(int ply = 0; ply < SearchBoard.MAX_PLY - 1; ply++) {
+                board.generateMoves(moves);
+                if(moves.size() == 0) {
+                    break;
+                }
+
+                ArrayList<Long> expected = new ArrayList<Long>();
+                for(int i = 0; i < moves.size(); i++) {
+                    expected.add(moves.get(i));
+                }
+
+                long chosen = moves.get(random.nextInt(moves.size()));
+
+                // A best move from a hash collision may not be legal, so try one from a different position too
+                int[] bestMoves = new int[]{-1, CompactMove.getKey(chosen), CompactMove.getKey(CompactMove.encode(8, 12, 0, false))};
+                for(int bestMove: bestMoves) {
+                    picker.reset(board, bestMove);
+
+                    ArrayList<Long> picked = new ArrayList<Long>();
+                    for(long move = picker.next(); move != CompactMove.NONE; move = picker.next()) {
+                        picked.add(move);
+                    }
+
+                    if(bestMove == CompactMove.getKey(chosen)) {
+                        assertEquals(chosen, (long) picked.get(0));
+                    }
+
+                    Collections.sort(picked);
+                    Collections.sort(expected);
+                    assertEquals(expected, picked);
+                }
+
+                board.makeMove(chosen);
+            }
+        }
+    }
+}
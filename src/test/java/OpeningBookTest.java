@@ -0,0 +1,89 @@
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OpeningBookTest {
+    private static File file;
+
+    @BeforeAll
+    public static void build() throws IOException {
+        file = File.createTempFile("book", ".bin");
+        file.deleteOnExit();
+
+        // A shallow book searched to a fixed depth is quick to build
+        OpeningBookBuilder builder = new OpeningBookBuilder(new Engine(1, 1), 3, 2, 50, 10000, 4);
+        OpeningBook.save(file, builder.build(StateManager.createInitialState()));
+    }
+
+    @Test
+    public void testBookHasInitialMoves() throws IOException {
+        State initial = StateManager.createInitialState();
+
+        try(OpeningBook book = OpeningBook.load(file)) {
+            assertTrue(book.getSize() > 0);
+
+            // At most two moves are kept for each position, and every move that is found can be made
+            int[] weights = book.getWeights(initial);
+            int moves = 0;
+            for(int weight: weights) {
+                moves += weight > 0 ? 1 : 0;
+            }
+            assertTrue(moves >= 1 && moves <= 2);
+
+            // Every move in the book is picked sometimes
+            HashSet<Long> picked = new HashSet<Long>();
+            Random random = new Random(3);
+            for(int i = 0; i < 100; i++) {
+                Move move = book.findMove(initial, random);
+                assertNotNull(move);
+                picked.add(CompactMove.fromMove(move));
+
+                // The book goes on after each of its moves
+                assertNotNull(book.findMove(move.getNext(), random));
+            }
+            assertEquals(moves, picked.size());
+        }
+    }
+
+    @Test
+    public void testBuilderStopsAtFinishedGames() {
+        OpeningBookBuilder builder = new OpeningBookBuilder(new Engine(1, 1), 3, 2, 50, 10000, 4);
+
+        // Black wins with either move, so both are kept, and the states after them have no moves to add
+        State state = Perft.parsePosition("b:.............r..bb..............");
+        assertEquals(2, builder.build(state).size());
+
+        State lost = state.getSuccessors().get(0).getNext();
+        assertTrue(builder.build(lost).isEmpty());
+    }
+
+    @Test
+    public void testBookMissesUnknownStates() throws IOException {
+        try(OpeningBook book = OpeningBook.load(file)) {
+            // Deeper than the book goes
+            State state = StateManager.createInitialState();
+            Random random = new Random(3);
+            for(int i = 0; i < 3; i++) {
+                state = book.findMove(state, random).getNext();
+            }
+            assertNull(book.findMove(state, random));
+
+            // A position that can't come from the opening
+            assertNull(book.findMove(Perft.parsePosition("b:R..r..........B....B............"), random));
+        }
+    }
+
+    @Test
+    public void testLoadRejectsOtherFiles() throws IOException {
+        File other = File.createTempFile("book", ".bin");
+        other.deleteOnExit();
+
+        assertThrows(IOException.class, () -> OpeningBook.load(other));
+    }
+}
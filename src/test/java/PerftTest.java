@@ -0,0 +1,42 @@
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PerftTest {
+    @Test
+    public void testPerftMatchesReferenceCounts() {
+        Perft perft = new Perft(0);
+        State initial = StateManager.createInitialState();
+
+        for(int depth = 0; depth <= 7; depth++) {
+            assertEquals(Perft.REFERENCE_COUNTS[depth], perft.count(initial, depth));
+        }
+
+        // The cache and parallel counting shouldn't change the counts
+        assertEquals(Perft.REFERENCE_COUNTS[8], new Perft(16).count(initial, 8));
+        assertEquals(Perft.REFERENCE_COUNTS[8], perft.countParallel(initial, 8));
+    }
+
+    @Test
+    public void testPerftSearchBoardMatchesStates() {
+        // The search's move generator should reach the same number of states as State#getSuccessors, including from
+        // positions with kings
+        Perft perft = new Perft(0);
+
+        for(State state: SearchBenchmark.createPositions(20, 99)) {
+            assertEquals(Perft.countStates(state, 4), perft.count(state, 4));
+        }
+
+        State kings = Perft.parsePosition("b:.R......r..b.......B.......r...B");
+        assertEquals(Perft.countStates(kings, 6), perft.count(kings, 6));
+    }
+
+    @Test
+    public void testPerftPositionFormat() {
+        State initial = StateManager.createInitialState();
+        String position = Perft.formatPosition(initial);
+
+        assertEquals(initial, Perft.parsePosition(position));
+        assertThrows(IllegalArgumentException.class, () -> Perft.parsePosition("x:" + position.substring(2)));
+    }
+}
@@ -0,0 +1,56 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchBoardTest {
+    @Test
+    public void testSearchBoardMakeAndUnmakeMove() {
+        // Play random games and check that making each move gives the same board as the state's successor, and that
+        // unmaking it gives back the original board
+        Random random = new Random(7);
+
+        for(int game = 0; game < 100; game++) {
+            State state = StateManager.createInitialState();
+            SearchBoard board = new SearchBoard(state);
+            MoveList moves = new MoveList();
+
+            for(int ply = 0; ply < SearchBoard.MAX_PLY - 1; ply++) {
+                ArrayList<Move> successors = state.getSuccessors();
+                board.generateMoves(moves);
+                assertEquals(successors.size(), moves.size());
+                assertEquals(!successors.isEmpty(), board.hasMoves());
+
+                for(int i = 0; i < moves.size(); i++) {
+                    State expected = successors.get(i).getNext();
+
+                    // The encoding should convert to and from the state's move chain
+                    assertEquals(moves.get(i), CompactMove.fromMove(successors.get(i)));
+                    assertEquals(expected, CompactMove.toMove(state, moves.get(i)).getNext());
+
+                    board.makeMove(moves.get(i));
+                    assertEquals(expected, board.toState());
+                    assertEquals(expected.getHash(), board.getHash());
+                    assertEquals(Evaluator.computePieceScore(expected.getRed(), expected.getBlack(), expected.getKings()), board.getPieceScore());
+                    assertEquals(ply + 1, board.getPly());
+
+                    board.unmakeMove(moves.get(i));
+                    assertEquals(state, board.toState());
+                    assertEquals(state.getHash(), board.getHash());
+                    assertEquals(Evaluator.computePieceScore(state.getRed(), state.getBlack(), state.getKings()), board.getPieceScore());
+                }
+
+                if(successors.isEmpty()) {
+                    break;
+                }
+
+                // Carry on down the game on the same board
+                int chosen = random.nextInt(moves.size());
+                board.makeMove(moves.get(chosen));
+                state = successors.get(chosen).getNext();
+            }
+        }
+    }
+}
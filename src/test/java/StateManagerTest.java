@@ -92,6 +92,44 @@ class StateManagerTest {
         assertArrayEquals(expectedInitialGrid, actualInitialGrid);
     }
 
+    @Test
+    public void testStateMasks() {
+        // The masks should describe the same board as the list of pieces
+        State state = this._stateManager.getState();
+        assertArrayEquals(StateManager.create2DGrid(state.getPieces()), StateManager.create2DGrid(state));
+
+        // A state built from masks alone should derive an equivalent list when asked for one
+        State maskState = new State(state.getRed(), state.getBlack(), state.getKings(), state.getTurn());
+        assertArrayEquals(StateManager.create2DGrid(state.getPieces()), StateManager.create2DGrid(maskState.getPieces()));
+        assertEquals(24, maskState.getPieces().size());
+    }
+
+    @Test
+    public void testStateHash() {
+        // createNewState should update the hash to the same value as computing it from scratch
+        State state = this._stateManager.getState();
+        PieceState piece = state.getPieces().get(12);
+        State nextState = StateManager.createNewState(state, piece, new PieceState(4, 3, true), true);
+        assertEquals(Zobrist.computeHash(nextState.getRed(), nextState.getBlack(), nextState.getKings(), nextState.getTurn()), nextState.getHash());
+
+        // As should every step of every move from the test state (which has multi-step jumps)
+        for(Move m: state.getSuccessors()) {
+            for(Move step = m; step != null; step = step.getPreviousMove()) {
+                State s = step.getNext();
+                assertEquals(Zobrist.computeHash(s.getRed(), s.getBlack(), s.getKings(), s.getTurn()), s.getHash());
+            }
+        }
+
+        // States with the same board and turn are equal, no matter how they were created
+        State copy = new State(state.getRed(), state.getBlack(), state.getKings(), state.getTurn());
+        assertEquals(state, copy);
+        assertEquals(state.hashCode(), copy.hashCode());
+
+        copy.setTurn(!copy.getTurn());
+        assertNotEquals(state, copy);
+        assertNotEquals(state.getHash(), copy.getHash());
+    }
+
     @Test
     public void testStateManagerGetSuccessors() {
         this._stateManager.setState(StateManager.createInitialState());
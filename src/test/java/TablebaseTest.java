@@ -0,0 +1,151 @@
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TablebaseTest {
+    private static Tablebase tablebase;
+
+    @BeforeAll
+    public static void generate() {
+        tablebase = new TablebaseGenerator(3, 2).generate(false);
+    }
+
+    @Test
+    public void testTablebaseMatchesSuccessors() {
+        // Every result should follow from the results of the state's successors: the quickest win if any successor is
+        // lost for the opponent, otherwise a draw if any successor is drawn, otherwise the slowest loss
+        int[] position = new int[4];
+        int wins = 0;
+
+        for(Tablebase.Slice slice: tablebase.getSlices()) {
+            for(int index = 0; index < slice.size; index++) {
+                slice.getPosition(index, position);
+                if((position[0] & position[1]) != 0) {
+                    continue;
+                }
+
+                State state = new State(position[0], position[1], position[2], position[3] == 1);
+                assertEquals(index, slice.getIndex(state.getRed(), state.getBlack(), state.getKings(), state.getTurn()));
+
+                int quickestWin = Integer.MAX_VALUE;
+                int slowestLoss = -1;
+                boolean draw = false;
+
+                for(Move move: state.getSuccessors()) {
+                    int result = tablebase.probe(move.getNext());
+                    assertNotEquals(Tablebase.UNKNOWN, result);
+
+                    if(result == Tablebase.DRAW) {
+                        draw = true;
+                    }
+                    else if(Tablebase.isLoss(result)) {
+                        quickestWin = Math.min(quickestWin, Tablebase.getDistance(result) + 1);
+                    }
+                    else {
+                        slowestLoss = Math.max(slowestLoss, Tablebase.getDistance(result) + 1);
+                    }
+                }
+
+                int result = tablebase.probe(state);
+                if(quickestWin != Integer.MAX_VALUE) {
+                    assertTrue(Tablebase.isWin(result));
+                    assertEquals(quickestWin, Tablebase.getDistance(result));
+                    wins++;
+                }
+                else if(draw) {
+                    assertEquals(Tablebase.DRAW, result);
+                }
+                else {
+                    assertTrue(Tablebase.isLoss(result));
+                    assertEquals(Math.max(0, slowestLoss), Tablebase.getDistance(result));
+                }
+            }
+        }
+
+        assertTrue(wins > 0);
+    }
+
+    @Test
+    public void testTablebaseSaveAndLoad() throws IOException {
+        File file = File.createTempFile("tablebase", ".bin");
+        file.deleteOnExit();
+
+        // A tiny cache makes sure that blocks are dropped and decompressed again
+        tablebase.save(file);
+        Tablebase loaded = Tablebase.load(file, 2);
+        assertEquals(3, loaded.getMaxPieces());
+
+        Random random = new Random(3);
+        for(int i = 0; i < 10000; i++) {
+            int red = 1 << random.nextInt(32);
+            int black = (1 << random.nextInt(32)) | (1 << random.nextInt(32));
+            // Men are crowned on the far row, so they are never found there
+            int kings = (random.nextInt() & (red | black)) | (red & BitBoard.RED_KING_ROW) | (black & BitBoard.BLACK_KING_ROW);
+            boolean turn = random.nextBoolean();
+
+            if((red & black) == 0) {
+                assertEquals(tablebase.probe(red, black, kings, turn), loaded.probe(red, black, kings, turn));
+            }
+        }
+
+        // Positions with too many pieces aren't in the tablebase
+        assertEquals(Tablebase.UNKNOWN, loaded.probe(StateManager.createInitialState()));
+
+        assertTrue(loaded.getCacheMisses() > 0);
+        assertTrue(loaded.getCacheHits() > 0);
+        assertTrue(loaded.getDecodeTime() > 0);
+        loaded.close();
+    }
+
+    @Test
+    public void testShortLivedThreadsKeepCounts() throws IOException, InterruptedException {
+        File file = File.createTempFile("tablebase", ".bin");
+        file.deleteOnExit();
+
+        tablebase.save(file);
+        Tablebase loaded = Tablebase.load(file, 2);
+        State state = Perft.parsePosition("b:R.............B....B............");
+
+        // Each thread has a cache of its own, which goes with the thread, but its reads are still counted
+        for(int i = 0; i < 20; i++) {
+            Thread thread = new Thread(() -> {
+                assertEquals(tablebase.probe(state), loaded.probe(state));
+                assertEquals(tablebase.probe(state), loaded.probe(state));
+            });
+            thread.start();
+            thread.join();
+        }
+
+        assertEquals(20, loaded.getCacheMisses());
+        assertEquals(20, loaded.getCacheHits());
+        loaded.close();
+    }
+
+    @Test
+    public void testEngineUsesTablebase() {
+        // Two black kings against a red king is a win for black
+        State state = Perft.parsePosition("b:R.............B....B............");
+        assertTrue(Tablebase.isWin(tablebase.probe(state)));
+
+        Engine engine = new Engine(1, 1);
+        engine.setTablebase(tablebase);
+
+        // The move comes from the tablebase without searching, and keeps the win
+        Move move = engine.search(state, 1000, 0);
+        assertTrue(engine.isTablebaseMove());
+        assertEquals(0, engine.getEvaluations());
+        assertTrue(Tablebase.isLoss(tablebase.probe(move.getNext())));
+        assertEquals(Tablebase.getDistance(tablebase.probe(state)) - 1, Tablebase.getDistance(tablebase.probe(move.getNext())));
+
+        // Within a search, states with few enough pieces are scored by the tablebase
+        State fourPieces = Perft.parsePosition("b:R..r..........B....B............");
+        engine.search(fourPieces, 1000, 0, 4);
+        assertFalse(engine.isTablebaseMove());
+        assertTrue(engine.getTablebaseHits() > 0);
+    }
+}
@@ -0,0 +1,56 @@
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TournamentTest {
+    @Test
+    public void testScoreStatistics() {
+        // An even score is no difference at all
+        Tournament.Score even = new Tournament.Score(40, 20, 40);
+        assertEquals(0, even.getElo(), 1e-9);
+        assertEquals(0.5, even.getMean(), 1e-9);
+        assertTrue(even.getEloError() > 0);
+
+        // A 64% score is about 100 Elo
+        Tournament.Score ahead = new Tournament.Score(54, 20, 26);
+        assertEquals(100, ahead.getElo(), 2);
+        assertEquals(0.64, Tournament.Score.toScore(ahead.getElo()), 1e-9);
+
+        // Winning more than H1 expects is evidence for it, and the evidence grows with the number of games
+        assertTrue(ahead.getLogLikelihoodRatio(0, 10) > 0);
+        assertTrue(new Tournament.Score(540, 200, 260).getLogLikelihoodRatio(0, 10) > ahead.getLogLikelihoodRatio(0, 10));
+        assertTrue(even.getLogLikelihoodRatio(0, 10) < 0);
+        assertTrue(new Tournament.Score(540, 200, 260).getLogLikelihoodRatio(0, 10) > Tournament.Score.getUpperBound(0.05));
+        assertTrue(Tournament.Score.getLowerBound(0.05) < 0);
+    }
+
+    @Test
+    public void testPlayerParsing() {
+        Tournament.Player player = Tournament.Player.parse("time=50, depth=6,mode=alphabeta,lmr=false");
+        assertEquals(50, player.timeBudget);
+        assertEquals(6, player.depthLimit);
+        assertEquals(Engine.SearchMode.ALPHA_BETA, player.searchMode);
+        assertFalse(player.lateMoveReductions);
+        assertTrue(player.probCut);
+
+        assertThrows(IllegalArgumentException.class, () -> Tournament.Player.parse("speed=fast"));
+        assertThrows(IllegalArgumentException.class, () -> Tournament.Player.parse("lmr=maybe"));
+    }
+
+    @Test
+    public void testTournamentPlaysPairsOfGames() throws InterruptedException {
+        Tournament.Player deep = Tournament.Player.parse("time=10000,depth=4");
+        Tournament.Player shallow = Tournament.Player.parse("time=10000,depth=1");
+
+        Tournament tournament = new Tournament(deep, shallow, 2);
+        tournament.setMaxGames(4);
+        tournament.setSeed(3);
+        Tournament.Score score = tournament.run();
+
+        // Too few games for the SPRT to finish early
+        assertEquals(4, score.getGames());
+        assertTrue(score.getAveragePlies() > 0);
+        assertEquals(4, score.getReasons().values().stream().mapToInt(Integer::intValue).sum());
+        assertTrue(score.getGamesPerMinute() > 0);
+    }
+}
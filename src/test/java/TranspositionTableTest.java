@@ -0,0 +1,54 @@
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TranspositionTableTest {
+    @Test
+    public void testTranspositionTableStoreAndProbe() {
+        TranspositionTable table = new TranspositionTable(1);
+        long hash = StateManager.createInitialState().getHash();
+
+        // Nothing has been stored yet
+        assertEquals(0, table.probe(hash));
+
+        table.store(hash, 5, TranspositionTable.LOWER, -42, 3);
+        long entry = table.probe(hash);
+        assertNotEquals(0, entry);
+        assertEquals(5, TranspositionTable.getDepth(entry));
+        assertEquals(TranspositionTable.LOWER, TranspositionTable.getBound(entry));
+        assertEquals(-42, TranspositionTable.getScore(entry));
+        assertEquals(3, TranspositionTable.getMove(entry));
+
+        // A missing move is kept as -1
+        table.store(hash, 6, TranspositionTable.EXACT, 0, -1);
+        assertEquals(-1, TranspositionTable.getMove(table.probe(hash)));
+    }
+
+    @Test
+    public void testTranspositionTableReplacement() {
+        TranspositionTable table = new TranspositionTable(1);
+
+        // These hashes share a bucket, as the bucket is picked by folding the high half of the hash onto the low half
+        long deep = (1L << 40) | (1L << 8);
+        long shallow = (2L << 40) | (2L << 8);
+        long other = (3L << 40) | (3L << 8);
+
+        table.store(deep, 7, TranspositionTable.EXACT, 1, 0);
+        table.store(shallow, 2, TranspositionTable.EXACT, 2, 0);
+
+        // The deeper result stays in the depth-preferred entry, the shallower one goes to the always-replace entry
+        assertNotEquals(0, table.probe(deep));
+        assertNotEquals(0, table.probe(shallow));
+        assertEquals(0, table.getOverwrites());
+
+        // Another shallow result replaces the always-replace entry, but not the deeper result
+        table.store(other, 1, TranspositionTable.EXACT, 3, 0);
+        assertNotEquals(0, table.probe(deep));
+        assertEquals(0, table.probe(shallow));
+        assertNotEquals(0, table.probe(other));
+        assertEquals(1, table.getOverwrites());
+
+        table.clear();
+        assertEquals(0, table.probe(deep));
+    }
+}